@@ -0,0 +1,91 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+/**
+ * A completed bill read back from a BillArchive. The name codes of its lines
+ * refer to the name dictionary of the archive it was read from.
+ */
+class ArchivedBill {
+
+    // Bill ID assigned by the archive
+    private final long billId;
+
+    // Time the bill was completed, in milliseconds since the epoch
+    private final long timestamp;
+
+    // Lane the bill was completed on
+    private final int lane;
+
+    // Total amount of the bill, in minor currency units
+    private final long total;
+
+    // Lines of the bill
+    private final BillLines lines;
+
+    /**
+     * Constructs an ArchivedBill with the specified details.
+     *
+     * @param billId The bill ID.
+     * @param timestamp The completion time, in milliseconds since the epoch.
+     * @param lane The lane number.
+     * @param total The total amount of the bill.
+     * @param lines The lines of the bill.
+     */
+    public ArchivedBill(long billId, long timestamp, int lane, long total, BillLines lines) {
+        this.billId = billId;
+        this.timestamp = timestamp;
+        this.lane = lane;
+        this.total = total;
+        this.lines = lines;
+    }
+
+    /**
+     * Retrieves the bill ID.
+     *
+     * @return The bill ID.
+     */
+    public long getBillId() {
+        return billId;
+    }
+
+    /**
+     * Retrieves the time the bill was completed.
+     *
+     * @return The completion time, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Retrieves the lane the bill was completed on.
+     *
+     * @return The lane number.
+     */
+    public int getLane() {
+        return lane;
+    }
+
+    /**
+     * Retrieves the total amount of the bill: what the customer paid, after
+     * the promotion discount and with exclusive taxes. The line prices are
+     * taken before both, so they only add up to the total when neither
+     * applied.
+     *
+     * @return The total, in minor currency units.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Retrieves the lines of the bill.
+     *
+     * @return The bill lines.
+     */
+    public BillLines getLines() {
+        return lines;
+    }
+}
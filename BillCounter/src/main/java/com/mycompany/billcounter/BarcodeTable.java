@@ -0,0 +1,250 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+
+/**
+ * Immutable lookup table from 64-bit barcodes, such as EAN-13 or UPC codes,
+ * to product IDs, compiled once from a loaded catalog. The barcodes are
+ * placed with a minimal perfect hash: every barcode is hashed to a bucket,
+ * and each bucket stores a small pilot number chosen at build time so that
+ * the barcodes of all buckets land in distinct slots of an array exactly as
+ * long as the number of barcodes. A lookup reads the pilot of its bucket and
+ * probes exactly one slot, so there are no collision chains and no empty
+ * slots.
+ *
+ * Buckets are filled from the largest down and a fixed share of the
+ * barcodes is steered into a smaller share of the buckets, which keeps the
+ * pilot search short even though the table has no spare room.
+ */
+class BarcodeTable {
+
+    // Average number of barcodes per bucket
+    private static final double BUCKET_LOAD = 3.0;
+
+    // Share of the barcodes steered into the dense buckets
+    private static final double DENSE_KEYS = 0.6;
+
+    // Share of the buckets that are dense
+    private static final double DENSE_BUCKETS = 0.3;
+
+    // Smallest limit on the pilots tried for a bucket before starting over
+    // with a new seed; the limit grows with the table, since the last
+    // buckets placed search among very few free slots
+    private static final int MIN_PILOT_LIMIT = 1 << 20;
+
+    // Table without any barcode
+    static final BarcodeTable EMPTY = new BarcodeTable(new long[0], new int[0], 0);
+
+    // Seed mixed into every hash
+    private final long seed;
+
+    // Pilot chosen for each bucket
+    private final int[] pilots;
+
+    // Number of dense buckets, which come first
+    private final int denseBuckets;
+
+    // Barcodes by slot
+    private final long[] barcodes;
+
+    // Product IDs by slot, parallel to barcodes
+    private final int[] ids;
+
+    /**
+     * Compiles a table from barcode and product ID pairs.
+     *
+     * @param barcodes The barcodes, all different.
+     * @param ids The product IDs, parallel to barcodes.
+     * @param count The number of pairs to take from the arrays.
+     * @throws IllegalArgumentException If a barcode occurs twice.
+     */
+    public BarcodeTable(long[] barcodes, int[] ids, int count) {
+        checkDistinct(barcodes, count);
+        this.barcodes = new long[count];
+        this.ids = new int[count];
+        int bucketCount = Math.max(1, (int) Math.ceil(count / BUCKET_LOAD));
+        this.pilots = new int[bucketCount];
+        this.denseBuckets = Math.max(1, (int) (bucketCount * DENSE_BUCKETS));
+        long attempt = 0;
+        while (!place(barcodes, ids, count, mix(++attempt))) {
+            // Some bucket found no pilot; try again with another seed
+        }
+        this.seed = mix(attempt);
+    }
+
+    /**
+     * Finds the product ID of a barcode.
+     *
+     * @param barcode The barcode.
+     * @return The product ID, or -1 if the barcode is not in the table.
+     */
+    public int lookup(long barcode) {
+        int n = barcodes.length;
+        if (n == 0) {
+            return -1;
+        }
+        long hash = mix(barcode ^ seed);
+        int slot = slotOf(hash, pilots[bucketOf(hash, pilots.length, denseBuckets)], n);
+        return barcodes[slot] == barcode ? ids[slot] : -1;
+    }
+
+    /**
+     * Retrieves the number of barcodes in the table.
+     *
+     * @return The barcode count.
+     */
+    public int size() {
+        return barcodes.length;
+    }
+
+    /**
+     * Tries to place every barcode with the given seed: buckets are visited
+     * from the largest down, and each takes the first pilot that sends all of
+     * its barcodes to free and distinct slots.
+     *
+     * @param keys The barcodes.
+     * @param values The product IDs, parallel to keys.
+     * @param count The number of pairs.
+     * @param trySeed The seed to hash with.
+     * @return true if every bucket found a pilot.
+     */
+    private boolean place(long[] keys, int[] values, int count, long trySeed) {
+        int bucketCount = pilots.length;
+        long[] hashes = new long[count];
+        int[] bucketStart = new int[bucketCount + 1];
+        int[] bucketOfKey = new int[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = mix(keys[i] ^ trySeed);
+            bucketOfKey[i] = bucketOf(hashes[i], bucketCount, denseBuckets);
+            bucketStart[bucketOfKey[i] + 1]++;
+        }
+        // Group the keys by bucket with a counting sort
+        int largest = 0;
+        for (int b = 0; b < bucketCount; b++) {
+            largest = Math.max(largest, bucketStart[b + 1]);
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        int[] next = Arrays.copyOf(bucketStart, bucketCount);
+        int[] keysByBucket = new int[count];
+        for (int i = 0; i < count; i++) {
+            keysByBucket[next[bucketOfKey[i]]++] = i;
+        }
+        // Order the buckets from the largest down, again by counting
+        int[] sizeStart = new int[largest + 2];
+        for (int b = 0; b < bucketCount; b++) {
+            sizeStart[largest - (bucketStart[b + 1] - bucketStart[b]) + 1]++;
+        }
+        for (int s = 0; s <= largest; s++) {
+            sizeStart[s + 1] += sizeStart[s];
+        }
+        int[] bucketOrder = new int[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            bucketOrder[sizeStart[largest - (bucketStart[b + 1] - bucketStart[b])]++] = b;
+        }
+
+        boolean[] taken = new boolean[count];
+        int[] slots = new int[Math.max(1, largest)];
+        int pilotLimit = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_PILOT_LIMIT, 8L * count));
+        for (int b : bucketOrder) {
+            int from = bucketStart[b];
+            int size = bucketStart[b + 1] - from;
+            if (size == 0) {
+                break;
+            }
+            int pilot = 0;
+            search:
+            while (true) {
+                if (pilot == pilotLimit) {
+                    return false;
+                }
+                for (int k = 0; k < size; k++) {
+                    int slot = slotOf(hashes[keysByBucket[from + k]], pilot, count);
+                    if (taken[slot]) {
+                        pilot++;
+                        continue search;
+                    }
+                    for (int j = 0; j < k; j++) {
+                        if (slots[j] == slot) {
+                            pilot++;
+                            continue search;
+                        }
+                    }
+                    slots[k] = slot;
+                }
+                break;
+            }
+            pilots[b] = pilot;
+            for (int k = 0; k < size; k++) {
+                int key = keysByBucket[from + k];
+                taken[slots[k]] = true;
+                barcodes[slots[k]] = keys[key];
+                ids[slots[k]] = values[key];
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rejects a set of barcodes that contains the same barcode twice, which
+     * no perfect hash can separate.
+     *
+     * @param keys The barcodes.
+     * @param count The number of barcodes.
+     * @throws IllegalArgumentException If a barcode occurs twice.
+     */
+    private static void checkDistinct(long[] keys, int count) {
+        long[] sorted = Arrays.copyOf(keys, count);
+        Arrays.sort(sorted);
+        for (int i = 1; i < count; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                throw new IllegalArgumentException("Barcode " + sorted[i] + " is used by more than one product");
+            }
+        }
+    }
+
+    /**
+     * Picks the bucket of a hash, steering DENSE_KEYS of all hashes into the
+     * first denseBuckets buckets.
+     *
+     * @param hash The hash of the barcode.
+     * @param bucketCount The number of buckets.
+     * @param denseBuckets The number of dense buckets.
+     * @return The bucket.
+     */
+    private static int bucketOf(long hash, int bucketCount, int denseBuckets) {
+        long high = hash >>> 32;
+        if (high < (long) (DENSE_KEYS * (1L << 32))) {
+            return (int) (((hash & 0xFFFFFFFFL) * denseBuckets) >>> 32);
+        }
+        int sparse = bucketCount - denseBuckets;
+        return sparse == 0 ? 0 : denseBuckets + (int) (((hash & 0xFFFFFFFFL) * sparse) >>> 32);
+    }
+
+    /**
+     * Computes the slot of a hash displaced by a pilot.
+     *
+     * @param hash The hash of the barcode.
+     * @param pilot The pilot of its bucket.
+     * @param n The number of slots.
+     * @return The slot.
+     */
+    private static int slotOf(long hash, int pilot, int n) {
+        long mixed = mix(hash ^ (pilot * 0x9E3779B97F4A7C15L));
+        return (int) (((mixed >>> 32) * n) >>> 32);
+    }
+
+    /**
+     * Scrambles the bits of a 64-bit value (the SplitMix64 finalizer).
+     *
+     * @param z The value.
+     * @return The scrambled value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
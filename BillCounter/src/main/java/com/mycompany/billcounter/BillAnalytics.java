@@ -0,0 +1,77 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Runs sales queries over a BillArchive. The archive is split into ranges of
+ * records that a parallel stream scans on the common fork-join pool; every
+ * worker fills its own SalesReport straight from the mapped segments, and
+ * the partial reports are merged once at the end, so a whole day is read in
+ * a single pass without locking or decoding bills into objects.
+ */
+class BillAnalytics {
+
+    // Approximate number of bills scanned by one task
+    static final int BILLS_PER_TASK = 4096;
+
+    // Archive the queries run over
+    private final BillArchive archive;
+
+    // Time zone that defines days and hours
+    private final ZoneId zone;
+
+    /**
+     * Constructs a BillAnalytics object over an archive.
+     *
+     * @param archive The archive of completed bills.
+     * @param zone The time zone that defines days and hours.
+     */
+    public BillAnalytics(BillArchive archive, ZoneId zone) {
+        this.archive = archive;
+        this.zone = zone;
+    }
+
+    /**
+     * Builds the sales report of the bills completed within a time window.
+     * Hours are placed using the zone offset in effect at the start of the
+     * window.
+     *
+     * @param fromTimestamp The start of the window, inclusive, in
+     * milliseconds since the epoch.
+     * @param toTimestamp The end of the window, exclusive.
+     * @return The report.
+     */
+    public SalesReport report(long fromTimestamp, long toTimestamp) {
+        long offsetMillis = zone.getRules().getOffset(Instant.ofEpochMilli(fromTimestamp)).getTotalSeconds() * 1000L;
+        return archive.ranges(fromTimestamp, toTimestamp, BILLS_PER_TASK).parallelStream()
+                .collect(() -> new SalesReport(offsetMillis), (report, range) -> range.scan(report),
+                        SalesReport::merge);
+    }
+
+    /**
+     * Builds the sales report of one day.
+     *
+     * @param day The day.
+     * @return The report.
+     */
+    public SalesReport report(LocalDate day) {
+        long from = day.atStartOfDay(zone).toInstant().toEpochMilli();
+        long to = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return report(from, to);
+    }
+
+    /**
+     * Retrieves the archive the queries run over, whose name dictionary
+     * resolves the name codes of a report.
+     *
+     * @return The bill archive.
+     */
+    public BillArchive getArchive() {
+        return archive;
+    }
+}
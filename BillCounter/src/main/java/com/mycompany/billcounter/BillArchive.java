@@ -0,0 +1,737 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only archive of completed bills, kept in a directory of
+ * memory-mapped segment files. A segment is created at a fixed size and
+ * filled with bill records; once the next record does not fit, a new
+ * segment is started. Each record is laid out little-endian as:
+ *
+ * <pre>
+ * int length, int crc, long billId, long timestamp, int lane,
+ * int lineCount, long total,
+ * lineCount x (int itemId, int quantity, long price, int nameCode)
+ * </pre>
+ *
+ * where length covers the whole record and the CRC32C covers everything
+ * after the crc field. The total is the amount charged, after the promotion
+ * discount and with exclusive taxes, while the line prices are those of the
+ * quantities scanned. The length is written last, so a zero length marks
+ * the end of a segment and a torn record fails its checksum. Name codes
+ * refer to the archive's own name dictionary, which is appended to a
+ * separate names file, so records stay valid across restarts.
+ *
+ * Bill IDs are sequential and timestamps never decrease, so a sparse
+ * in-memory index holding every INDEX_INTERVAL-th record and the first
+ * record of every segment answers point lookups by ID or time with a
+ * binary search and a short forward walk. The index is rebuilt by reading
+ * the record headers when the archive is opened. The same index splits the
+ * archive into ranges of records that can be scanned in parallel.
+ */
+class BillArchive implements Closeable {
+
+    // Segment size used when none is configured
+    static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    // Number of records between two entries of the sparse index
+    static final int INDEX_INTERVAL = 64;
+
+    // Size of the fixed part of a record
+    private static final int RECORD_HEADER_SIZE = 40;
+
+    // Size of one line in a record
+    private static final int LINE_SIZE = 20;
+
+    // Name of the file holding the archive's name dictionary
+    private static final String NAMES_FILE = "names.dat";
+
+    // Prefix and suffix of segment file names
+    private static final String SEGMENT_PREFIX = "bills-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // Directory holding the archive files
+    private final Path directory;
+
+    // Size new segments are created with
+    private final int segmentSize;
+
+    // Name dictionary the archived lines refer to
+    private final NameDictionary names = new NameDictionary();
+
+    // Channel appending new names to the names file
+    private final FileChannel namesChannel;
+
+    // Number of names already written to the names file
+    private int persistedNames;
+
+    // Whether names were written since the names file was last synced
+    private boolean namesDirty;
+
+    // Segments in bill ID order; the last one receives new records
+    private final List<Segment> segments = new ArrayList<>();
+
+    // ID the next archived bill will get
+    private long nextBillId = 1;
+
+    // ID of the oldest archived bill
+    private long firstBillId = 1;
+
+    // Timestamp of the newest archived bill
+    private long lastTimestamp;
+
+    // Records written since the last index entry
+    private int sinceIndexed;
+
+    // Sparse index: bill ID, timestamp, segment number and record offset
+    private long[] indexBillIds = new long[64];
+    private long[] indexTimestamps = new long[64];
+    private int[] indexSegments = new int[64];
+    private int[] indexOffsets = new int[64];
+    private int indexSize;
+
+    // Checksum reused for every record
+    private final CRC32C crc = new CRC32C();
+
+    // Whether the archive has been closed
+    private boolean closed;
+
+    /**
+     * Opens or creates an archive with the default segment size.
+     *
+     * @param directory The directory holding the archive files.
+     * @throws IOException If the archive cannot be opened.
+     */
+    public BillArchive(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens or creates an archive. Existing segments are scanned to rebuild
+     * the index, and a torn record at the end of the last segment is wiped.
+     *
+     * @param directory The directory holding the archive files.
+     * @param segmentSize The size new segments are created with.
+     * @throws IOException If the archive cannot be opened or is corrupt.
+     */
+    public BillArchive(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < RECORD_HEADER_SIZE + LINE_SIZE) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        this.namesChannel = FileChannel.open(directory.resolve(NAMES_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadNames();
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (Path file : files) {
+            openSegment(file);
+        }
+        if (!segments.isEmpty()) {
+            firstBillId = segments.get(0).firstBillId;
+        }
+    }
+
+    /**
+     * Reads the names file into the dictionary, dropping a torn last entry.
+     *
+     * @throws IOException If the file cannot be read or is corrupt.
+     */
+    private void loadNames() throws IOException {
+        long size = namesChannel.size();
+        ByteBuffer data = namesChannel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        int valid = 0;
+        while (data.remaining() >= 4) {
+            int length = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                break;
+            }
+            byte[] name = new byte[length];
+            data.get(name);
+            if (names.encode(new String(name, StandardCharsets.UTF_8)) != names.size() - 1) {
+                throw new IOException(directory.resolve(NAMES_FILE) + " holds a duplicate name");
+            }
+            valid = data.position();
+        }
+        if (valid < size) {
+            namesChannel.truncate(valid);
+        }
+        namesChannel.position(valid);
+        persistedNames = names.size();
+    }
+
+    /**
+     * Maps an existing segment, indexes its records and finds its end.
+     *
+     * @param file The segment file.
+     * @throws IOException If the segment cannot be mapped.
+     */
+    private void openSegment(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        long first;
+        try {
+            first = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException(file + " is not a bill archive segment");
+        }
+        if (segments.isEmpty()) {
+            nextBillId = first;
+        } else if (first != nextBillId) {
+            throw new IOException(file + " does not follow the previous segment");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) Math.min(Integer.MAX_VALUE, channel.size());
+        Segment segment = new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), first);
+        segments.add(segment);
+        sinceIndexed = 0;
+        ByteBuffer map = segment.map;
+        int offset = 0;
+        while (offset <= capacity - RECORD_HEADER_SIZE) {
+            int length = map.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < RECORD_HEADER_SIZE || length > capacity - offset || !checksumMatches(map, offset, length)
+                    || map.getLong(offset + 8) != nextBillId) {
+                // Torn or stale record: wipe the rest so it cannot resurface
+                for (int i = offset; i < capacity; i++) {
+                    map.put(i, (byte) 0);
+                }
+                segment.map.force();
+                break;
+            }
+            indexRecord(segments.size() - 1, offset, nextBillId, map.getLong(offset + 16));
+            lastTimestamp = map.getLong(offset + 16);
+            nextBillId++;
+            offset += length;
+        }
+        segment.end = offset;
+        segment.synced = offset;
+        if (offset == 0) {
+            // Left empty by a crash right after it was created
+            segments.remove(segments.size() - 1);
+            channel.close();
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Checks the CRC32C of a record.
+     *
+     * @param map The segment holding the record.
+     * @param offset The offset of the record.
+     * @param length The length of the record.
+     * @return true if the checksum matches.
+     */
+    private boolean checksumMatches(ByteBuffer map, int offset, int length) {
+        crc.reset();
+        crc.update(map.slice(offset + 8, length - 8));
+        return (int) crc.getValue() == map.getInt(offset + 4);
+    }
+
+    /**
+     * Adds a record to the sparse index if it starts a segment or the
+     * interval since the last entry has passed.
+     *
+     * @param segmentNo The number of the segment holding the record.
+     * @param offset The offset of the record.
+     * @param billId The bill ID of the record.
+     * @param timestamp The timestamp of the record.
+     */
+    private void indexRecord(int segmentNo, int offset, long billId, long timestamp) {
+        if (offset != 0 && sinceIndexed < INDEX_INTERVAL) {
+            sinceIndexed++;
+            return;
+        }
+        if (indexSize == indexBillIds.length) {
+            int capacity = indexSize * 2;
+            indexBillIds = Arrays.copyOf(indexBillIds, capacity);
+            indexTimestamps = Arrays.copyOf(indexTimestamps, capacity);
+            indexSegments = Arrays.copyOf(indexSegments, capacity);
+            indexOffsets = Arrays.copyOf(indexOffsets, capacity);
+        }
+        indexBillIds[indexSize] = billId;
+        indexTimestamps[indexSize] = timestamp;
+        indexSegments[indexSize] = segmentNo;
+        indexOffsets[indexSize] = offset;
+        indexSize++;
+        sinceIndexed = 1;
+    }
+
+    /**
+     * Appends a completed bill.
+     *
+     * @param lane The lane the bill was completed on.
+     * @param lines The compacted lines of the bill.
+     * @param lineNames The dictionary resolving the name codes of the lines.
+     * @param total The total amount of the bill.
+     * @return The ID assigned to the bill.
+     * @throws IOException If the bill cannot be written.
+     */
+    public synchronized long append(int lane, BillLines lines, NameDictionary lineNames, long total)
+            throws IOException {
+        if (closed) {
+            throw new IOException("Bill archive is closed");
+        }
+        int lineCount = lines.size();
+        long recordSize = RECORD_HEADER_SIZE + (long) LINE_SIZE * lineCount;
+        if (recordSize > Integer.MAX_VALUE) {
+            throw new IOException("Bill too large to archive: " + lineCount + " lines");
+        }
+        int length = (int) recordSize;
+
+        // Translate the name codes and persist new names before the record
+        int[] nameCodes = new int[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            nameCodes[i] = names.encode(lineNames.decode(lines.nameCodeAt(i)));
+        }
+        persistNewNames();
+
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || segment.map.capacity() - segment.end < length) {
+            segment = rotate(length);
+        }
+        long billId = nextBillId;
+        long timestamp = Math.max(lastTimestamp, System.currentTimeMillis());
+        ByteBuffer map = segment.map;
+        int offset = segment.end;
+        map.putLong(offset + 8, billId);
+        map.putLong(offset + 16, timestamp);
+        map.putInt(offset + 24, lane);
+        map.putInt(offset + 28, lineCount);
+        map.putLong(offset + 32, total);
+        int at = offset + RECORD_HEADER_SIZE;
+        for (int i = 0; i < lineCount; i++) {
+            map.putInt(at, lines.itemIdAt(i));
+            map.putInt(at + 4, lines.quantityAt(i));
+            map.putLong(at + 8, lines.priceAt(i));
+            map.putInt(at + 16, nameCodes[i]);
+            at += LINE_SIZE;
+        }
+        crc.reset();
+        crc.update(map.slice(offset + 8, length - 8));
+        map.putInt(offset + 4, (int) crc.getValue());
+        // Publish the record by writing its length last
+        map.putInt(offset, length);
+
+        indexRecord(segments.size() - 1, offset, billId, timestamp);
+        segment.end = offset + length;
+        lastTimestamp = timestamp;
+        nextBillId++;
+        return billId;
+    }
+
+    /**
+     * Writes the names added to the dictionary since the last call.
+     *
+     * @throws IOException If the names file cannot be written.
+     */
+    private void persistNewNames() throws IOException {
+        int size = names.size();
+        if (persistedNames == size) {
+            return;
+        }
+        List<byte[]> added = new ArrayList<>();
+        int bytes = 0;
+        for (int code = persistedNames; code < size; code++) {
+            byte[] name = names.decode(code).getBytes(StandardCharsets.UTF_8);
+            added.add(name);
+            bytes += 4 + name.length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (byte[] name : added) {
+            out.putInt(name.length).put(name);
+        }
+        out.flip();
+        while (out.hasRemaining()) {
+            namesChannel.write(out);
+        }
+        persistedNames = size;
+        namesDirty = true;
+    }
+
+    /**
+     * Syncs the current segment and starts a new one named after the next
+     * bill ID.
+     *
+     * @param recordSize The size of the record that must fit.
+     * @return The new segment.
+     * @throws IOException If the segment cannot be created.
+     */
+    private Segment rotate(int recordSize) throws IOException {
+        if (!segments.isEmpty()) {
+            segments.get(segments.size() - 1).map.force();
+        }
+        Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextBillId, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = Math.max(segmentSize, recordSize);
+        Segment segment = new Segment(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity), nextBillId);
+        segments.add(segment);
+        return segment;
+    }
+
+    /**
+     * Looks up an archived bill by its ID.
+     *
+     * @param billId The bill ID.
+     * @return The bill, or null if no bill has that ID.
+     */
+    public synchronized ArchivedBill get(long billId) {
+        if (billId < firstBillId || billId >= nextBillId) {
+            return null;
+        }
+        // Last index entry at or before the bill
+        int entry = Arrays.binarySearch(indexBillIds, 0, indexSize, billId);
+        if (entry < 0) {
+            entry = -entry - 2;
+        }
+        Segment segment = segments.get(indexSegments[entry]);
+        int offset = indexOffsets[entry];
+        for (long id = indexBillIds[entry]; id < billId; id++) {
+            offset += segment.map.getInt(offset);
+        }
+        return readBill(segment.map, offset);
+    }
+
+    /**
+     * Finds the first bill completed at or after a point in time.
+     *
+     * @param timestamp The time, in milliseconds since the epoch.
+     * @return The ID of the bill, or -1 if every bill is older.
+     */
+    public synchronized long findFirstAtOrAfter(long timestamp) {
+        if (indexSize == 0 || lastTimestamp < timestamp) {
+            return -1;
+        }
+        // Last index entry strictly before the time, where the walk starts
+        int low = 0;
+        int high = indexSize - 1;
+        int entry = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (indexTimestamps[mid] < timestamp) {
+                entry = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (entry < 0) {
+            return indexBillIds[0];
+        }
+        Segment segment = segments.get(indexSegments[entry]);
+        int end = entry + 1 < indexSize && indexSegments[entry + 1] == indexSegments[entry]
+                ? indexOffsets[entry + 1] : segment.end;
+        int offset = indexOffsets[entry];
+        while (offset < end) {
+            if (segment.map.getLong(offset + 16) >= timestamp) {
+                return segment.map.getLong(offset + 8);
+            }
+            offset += segment.map.getInt(offset);
+        }
+        // Every bill of this run is older, so the next entry is the answer
+        return indexBillIds[entry + 1];
+    }
+
+    /**
+     * Splits the bills completed within a time window into ranges of
+     * consecutive records that can be scanned independently, for example by
+     * a parallel stream. Ranges follow the sparse index, so each one lies in
+     * a single segment, and runs of records that are entirely outside the
+     * window are skipped without being read. Bills archived later are not
+     * included.
+     *
+     * @param fromTimestamp The start of the window, inclusive, in
+     * milliseconds since the epoch.
+     * @param toTimestamp The end of the window, exclusive.
+     * @param recordsPerRange The approximate number of records per range.
+     * @return The ranges, in bill ID order.
+     */
+    public synchronized List<Range> ranges(long fromTimestamp, long toTimestamp, int recordsPerRange) {
+        List<Range> ranges = new ArrayList<>();
+        int runsPerRange = Math.max(1, recordsPerRange / INDEX_INTERVAL);
+        Range open = null;
+        int runs = 0;
+        for (int entry = 0; entry < indexSize; entry++) {
+            boolean lastInSegment = entry + 1 == indexSize || indexSegments[entry + 1] != indexSegments[entry];
+            long runLast = entry + 1 < indexSize ? indexTimestamps[entry + 1] : lastTimestamp;
+            if (runLast < fromTimestamp || indexTimestamps[entry] >= toTimestamp) {
+                open = null;
+                continue;
+            }
+            Segment segment = segments.get(indexSegments[entry]);
+            int end = lastInSegment ? segment.end : indexOffsets[entry + 1];
+            if (open != null && runs < runsPerRange) {
+                open.end = end;
+                runs++;
+            } else {
+                open = new Range(segment.map, indexOffsets[entry], end, fromTimestamp, toTimestamp);
+                ranges.add(open);
+                runs = 1;
+            }
+            if (lastInSegment) {
+                open = null;
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Decodes the record at an offset.
+     *
+     * @param map The segment holding the record.
+     * @param offset The offset of the record.
+     * @return The bill.
+     */
+    private static ArchivedBill readBill(ByteBuffer map, int offset) {
+        int lineCount = map.getInt(offset + 28);
+        BillLines lines = new BillLines(lineCount);
+        int at = offset + RECORD_HEADER_SIZE;
+        for (int i = 0; i < lineCount; i++) {
+            lines.append(map.getInt(at), map.getInt(at + 4), map.getLong(at + 8), map.getInt(at + 16));
+            at += LINE_SIZE;
+        }
+        return new ArchivedBill(map.getLong(offset + 8), map.getLong(offset + 16), map.getInt(offset + 24),
+                map.getLong(offset + 32), lines);
+    }
+
+    /**
+     * Retrieves the name dictionary the archived lines refer to.
+     *
+     * @return The name dictionary.
+     */
+    public NameDictionary getNames() {
+        return names;
+    }
+
+    /**
+     * Retrieves the number of archived bills.
+     *
+     * @return The bill count.
+     */
+    public synchronized long getBillCount() {
+        return nextBillId - firstBillId;
+    }
+
+    /**
+     * Retrieves the ID the next archived bill will get.
+     *
+     * @return The next bill ID.
+     */
+    public synchronized long getNextBillId() {
+        return nextBillId;
+    }
+
+    /**
+     * Forces the names written and the records appended since the last sync
+     * to disk, names first so no durable record refers to a lost name. Bills
+     * are appended without a sync; a journal recording their completion
+     * calls this before each commit, so one sync covers a whole batch.
+     *
+     * @throws IOException If the files cannot be synced.
+     */
+    public synchronized void sync() throws IOException {
+        if (namesDirty) {
+            namesChannel.force(false);
+            namesDirty = false;
+        }
+        if (!segments.isEmpty()) {
+            Segment segment = segments.get(segments.size() - 1);
+            if (segment.synced < segment.end) {
+                segment.map.force(segment.synced, segment.end - segment.synced);
+                segment.synced = segment.end;
+            }
+        }
+    }
+
+    /**
+     * Finds the newest bill completed on a lane after a given bill, walking
+     * back from the newest bill.
+     *
+     * @param lane The lane number.
+     * @param afterBillId The bill ID to stop at.
+     * @return The ID of the bill, or 0 if no later bill is from the lane.
+     */
+    public synchronized long findLastOfLane(int lane, long afterBillId) {
+        for (long billId = nextBillId - 1; billId > afterBillId && billId >= firstBillId; billId--) {
+            if (get(billId).getLane() == lane) {
+                return billId;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Syncs and closes the archive files.
+     *
+     * @throws IOException If the files cannot be synced or closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            sync();
+        } finally {
+            closed = true;
+            namesChannel.close();
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    /**
+     * A run of consecutive records in one segment, filtered to a time window.
+     * The records of a range never change once it is created, so ranges can
+     * be scanned from any thread without locking.
+     */
+    static final class Range {
+
+        // Segment holding the records
+        private final ByteBuffer map;
+
+        // Offset of the first record
+        private final int start;
+
+        // Offset just past the last record
+        private int end;
+
+        // Time window of the bills to visit
+        private final long fromTimestamp;
+        private final long toTimestamp;
+
+        /**
+         * Constructs a Range over part of a segment.
+         *
+         * @param map The segment holding the records.
+         * @param start The offset of the first record.
+         * @param end The offset just past the last record.
+         * @param fromTimestamp The start of the window, inclusive.
+         * @param toTimestamp The end of the window, exclusive.
+         */
+        Range(ByteBuffer map, int start, int end, long fromTimestamp, long toTimestamp) {
+            this.map = map;
+            this.start = start;
+            this.end = end;
+            this.fromTimestamp = fromTimestamp;
+            this.toTimestamp = toTimestamp;
+        }
+
+        /**
+         * Visits every bill of the range that lies in the time window, reading
+         * the fields straight from the mapped segment.
+         *
+         * @param visitor The visitor to call for each bill and line.
+         */
+        void scan(BillVisitor visitor) {
+            int offset = start;
+            while (offset < end) {
+                int length = map.getInt(offset);
+                long timestamp = map.getLong(offset + 16);
+                if (timestamp >= fromTimestamp && timestamp < toTimestamp) {
+                    int lineCount = map.getInt(offset + 28);
+                    visitor.visitBill(map.getLong(offset + 8), timestamp, map.getInt(offset + 24), lineCount,
+                            map.getLong(offset + 32));
+                    int at = offset + RECORD_HEADER_SIZE;
+                    for (int i = 0; i < lineCount; i++) {
+                        visitor.visitLine(map.getInt(at), map.getInt(at + 4), map.getLong(at + 8),
+                                map.getInt(at + 16));
+                        at += LINE_SIZE;
+                    }
+                }
+                offset += length;
+            }
+        }
+    }
+
+    /**
+     * Callback used to scan archived bills without decoding them into
+     * objects.
+     */
+    interface BillVisitor {
+
+        /**
+         * Called once for each bill, before its lines.
+         *
+         * @param billId The bill ID.
+         * @param timestamp The completion time, in milliseconds since the
+         * epoch.
+         * @param lane The lane number.
+         * @param lineCount The number of lines of the bill.
+         * @param total The total amount of the bill.
+         */
+        void visitBill(long billId, long timestamp, int lane, int lineCount, long total);
+
+        /**
+         * Called once for each line of the bill last visited.
+         *
+         * @param itemId The item ID.
+         * @param quantity The quantity.
+         * @param price The price of the quantity.
+         * @param nameCode The code of the item name in the archive's name
+         * dictionary.
+         */
+        void visitLine(int itemId, int quantity, long price, int nameCode);
+    }
+
+    /**
+     * One mapped segment file.
+     */
+    private static final class Segment {
+
+        // Channel of the segment file
+        final FileChannel channel;
+
+        // Mapping of the whole segment, in little-endian order
+        final MappedByteBuffer map;
+
+        // ID of the first bill in the segment
+        final long firstBillId;
+
+        // Offset just past the last record
+        int end;
+
+        // Offset up to which the records are forced to disk
+        int synced;
+
+        /**
+         * Constructs a Segment over a mapped file.
+         *
+         * @param channel The channel of the segment file.
+         * @param map The mapping of the file.
+         * @param firstBillId The ID of the first bill in the segment.
+         */
+        Segment(FileChannel channel, MappedByteBuffer map, long firstBillId) {
+            this.channel = channel;
+            this.map = map;
+            this.firstBillId = firstBillId;
+            map.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+}
@@ -3,32 +3,42 @@
  */
 package com.mycompany.billcounter;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+import javax.management.JMException;
 
 /**
  *
  * @author sethu
  */
 /**
- * Represents a pair of a string value and an integer value.
+ * Represents a pair of a string value and a long value.
  */
-class StringIntPair {
+class StringLongPair {
 
     // The string value of the pair
     private final String stringValue;
 
-    // The integer value of the pair
-    private final int intValue;
+    // The long value of the pair
+    private final long longValue;
 
     /**
-     * Constructs a new StringIntPair with the given string and integer values.
+     * Constructs a new StringLongPair with the given string and long values.
      *
      * @param stringValue the string value
-     * @param intValue the integer value
+     * @param longValue the long value
      */
-    public StringIntPair(String stringValue, int intValue) {
+    public StringLongPair(String stringValue, long longValue) {
         this.stringValue = stringValue;
-        this.intValue = intValue;
+        this.longValue = longValue;
     }
 
     /**
@@ -41,32 +51,211 @@ class StringIntPair {
     }
 
     /**
-     * Gets the integer value of the pair.
+     * Gets the long value of the pair.
+     *
+     * @return the long value
+     */
+    public long getLongValue() {
+        return longValue;
+    }
+}
+
+
+/**
+ * Represents a pair of an int value and a long value.
+ */
+class IntLongPair {
+
+    // The int value of the pair
+    private final int intValue;
+
+    // The long value of the pair
+    private final long longValue;
+
+    /**
+     * Constructs a new IntLongPair with the given int and long values.
+     *
+     * @param intValue the int value
+     * @param longValue the long value
+     */
+    public IntLongPair(int intValue, long longValue) {
+        this.intValue = intValue;
+        this.longValue = longValue;
+    }
+
+    /**
+     * Gets the int value of the pair.
      *
-     * @return the integer value
+     * @return the int value
      */
     public int getIntValue() {
         return intValue;
     }
+
+    /**
+     * Gets the long value of the pair.
+     *
+     * @return the long value
+     */
+    public long getLongValue() {
+        return longValue;
+    }
 }
 
 
 /**
- * Represents a collection of products with their details.
+ * Represents a collection of products with their details. A single instance
+ * can be shared by many checkout lanes: lookups run as optimistic reads that
+ * take no lock unless they race with a write, and writes hold the write lock
+ * only for the duration of a single table update. Names are stored as codes
+ * of a NameDictionary shared with the bill lines. A NameSearchIndex and a
+ * CatalogListing are kept in step with the table to find products by name
+ * and to list the catalog page by page. Products may carry a 64-bit barcode,
+ * which is resolved through a BarcodeTable compiled after the price file is
+ * loaded. Every write publishes a new CatalogVersions version, and an open
+ * bill reads the details of the version it pinned.
  */
 class Products {
 
-    // HashMap to store products with their IDs as keys
-    private final HashMap<Integer, StringIntPair> bunchOfProducts = new HashMap<>();
+    // Barcode argument that leaves the barcode of a product unchanged
+    private static final long KEEP_BARCODE = -1;
+
+    // Primitive int-keyed table to store products with their IDs as keys
+    private final ProductTable bunchOfProducts = new ProductTable();
+
+    // Dictionary of the product names referenced by the table
+    private final NameDictionary names = new NameDictionary();
+
+    // Word index over the product names, guarded by the same lock
+    private final NameSearchIndex searchIndex = new NameSearchIndex();
+
+    // Sorted views of the table for paginated listings
+    private final CatalogListing listing = new CatalogListing(bunchOfProducts, names);
+
+    // Versions of the table pinned by open bills, guarded by the same lock
+    private final CatalogVersions versions = new CatalogVersions();
+
+    // Barcodes compiled into a perfect hash table; replaced as a whole
+    private volatile BarcodeTable barcodeTable = BarcodeTable.EMPTY;
+
+    // Barcodes assigned since the table was compiled, guarded by the lock
+    private final HashMap<Long, Integer> recentBarcodes = new HashMap<>();
+
+    // Whether any barcode was assigned or removed since the table was
+    // compiled, so its answers must be checked against the catalog
+    private volatile boolean barcodesChanged;
+
+    // Lock guarding the table; readers normally only validate a stamp
+    private final StampedLock lock = new StampedLock();
 
     /**
      * Retrieves the details of a product with the given ID.
      *
      * @param id The ID of the product to retrieve.
-     * @return The details of the product as a StringIntPair.
+     * @return The details of the product as a StringLongPair, or null if the
+     * ID is not found.
+     */
+    StringLongPair getDetails(int id) {
+        IntLongPair details = getEncodedDetails(id);
+        if (details == null) {
+            return null;
+        }
+        return new StringLongPair(names.decode(details.getIntValue()), details.getLongValue());
+    }
+
+    /**
+     * Retrieves the details of a product with the given ID, with the name
+     * left as its dictionary code.
+     *
+     * @param id The ID of the product to retrieve.
+     * @return The name code and price of the product as an IntLongPair, or
+     * null if the ID is not found.
+     */
+    IntLongPair getEncodedDetails(int id) {
+        long stamp = lock.tryOptimisticRead();
+        IntLongPair details = readDetails(id);
+        if (!lock.validate(stamp)) {
+            // A write raced with the lookup, so repeat it under the read lock
+            stamp = lock.readLock();
+            try {
+                details = readDetails(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return details;
+    }
+
+    /**
+     * Retrieves the details a product had at a pinned version of the
+     * catalog. While the catalog is unchanged since that version this is an
+     * optimistic read of the table; otherwise the details replaced since are
+     * looked up under the read lock.
+     *
+     * @param id The ID of the product to retrieve.
+     * @param version The version returned by pinVersion.
+     * @return The name code and price of the product at that version, or
+     * null if the product did not exist then.
+     */
+    IntLongPair getEncodedDetails(int id, long version) {
+        long stamp = lock.tryOptimisticRead();
+        if (versions.current() == version) {
+            IntLongPair details = readDetails(id);
+            if (lock.validate(stamp)) {
+                return details;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            int entry = versions.entryAt(id, version);
+            if (entry == IntIntMap.MISSING) {
+                return readDetails(id);
+            }
+            int nameCode = versions.nameCodeAt(entry);
+            return nameCode == CatalogVersions.ABSENT ? null : new IntLongPair(nameCode, versions.priceAt(entry));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Pins the current version of the catalog for a bill being opened, so
+     * the bill keeps reading the details of that version until it releases
+     * it.
+     *
+     * @return The pinned version.
+     */
+    long pinVersion() {
+        long stamp = lock.readLock();
+        try {
+            return versions.pin();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Releases a version pinned by pinVersion, letting the details replaced
+     * since be reclaimed once no other bill needs them.
+     *
+     * @param version The pinned version.
+     */
+    void releaseVersion(long version) {
+        versions.unpin(version);
+    }
+
+    /**
+     * Reads the details of a product from the table without locking.
+     *
+     * @param id The ID of the product to read.
+     * @return The details of the product, or null if the ID is not found.
      */
-    StringIntPair getDetails(int id) {
-        return bunchOfProducts.get(id);
+    private IntLongPair readDetails(int id) {
+        int slot = bunchOfProducts.indexOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        return new IntLongPair(bunchOfProducts.nameCodeAt(slot), bunchOfProducts.priceAt(slot));
     }
 
     /**
@@ -76,7 +265,17 @@ class Products {
      * @return 1 if the product exists, 0 otherwise.
      */
     public int isTheIdAvailable(int id) {
-        if (bunchOfProducts.containsKey(id)) {
+        long stamp = lock.tryOptimisticRead();
+        boolean available = bunchOfProducts.contains(id);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                available = bunchOfProducts.contains(id);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (available) {
             return 1;
         } else {
             return 0;
@@ -88,10 +287,129 @@ class Products {
      *
      * @param id The ID of the product.
      * @param name The name of the product.
-     * @param price The price of the product.
+     * @param price The price of the product, in minor currency units.
+     */
+    public void setDetails(int id, String name, long price) {
+        setDetails(id, name, price, KEEP_BARCODE);
+    }
+
+    /**
+     * Adds a new product with the given details and barcode to the
+     * collection.
+     *
+     * @param id The ID of the product.
+     * @param name The name of the product.
+     * @param price The price of the product, in minor currency units.
+     * @param barcode The barcode of the product, or ProductTable.NO_BARCODE.
+     */
+    public void setDetails(int id, String name, long price, long barcode) {
+        int nameCode = names.encode(name);
+        long stamp = lock.writeLock();
+        try {
+            long write = versions.beginWrite();
+            putIndexed(write, id, name, nameCode, price, barcode);
+            versions.publish(write);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Adds many products at once under a single write lock, growing the
+     * table once for the whole batch.
+     *
+     * @param ids The IDs of the products.
+     * @param names The names of the products, parallel to ids.
+     * @param prices The prices of the products, parallel to ids.
+     * @param count The number of products to take from the arrays.
+     */
+    void setAllDetails(int[] ids, String[] names, long[] prices, int count) {
+        setAllDetails(ids, names, prices, null, count);
+    }
+
+    /**
+     * Adds many products with their barcodes at once under a single write
+     * lock, growing the table once for the whole batch.
+     *
+     * @param ids The IDs of the products.
+     * @param names The names of the products, parallel to ids.
+     * @param prices The prices of the products, parallel to ids.
+     * @param barcodes The barcodes of the products, parallel to ids, or null
+     * to leave the barcodes unchanged.
+     * @param count The number of products to take from the arrays.
+     */
+    void setAllDetails(int[] ids, String[] names, long[] prices, long[] barcodes, int count) {
+        int[] nameCodes = new int[count];
+        for (int i = 0; i < count; i++) {
+            nameCodes[i] = this.names.encode(names[i]);
+        }
+        long stamp = lock.writeLock();
+        try {
+            bunchOfProducts.ensureCapacity(bunchOfProducts.size() + count);
+            long write = versions.beginWrite();
+            for (int i = 0; i < count; i++) {
+                putIndexed(write, ids[i], names[i], nameCodes[i], prices[i],
+                        barcodes == null ? KEEP_BARCODE : barcodes[i]);
+            }
+            versions.publish(write);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Stores a product, moves it to its new name in the search index and
+     * records the change for the sorted listings and for the bills reading
+     * older versions. Must be called under the write lock.
+     *
+     * @param write The version being written.
+     * @param id The ID of the product.
+     * @param name The name of the product.
+     * @param nameCode The dictionary code of the name.
+     * @param price The price of the product, in minor currency units.
+     * @param barcode The barcode of the product, ProductTable.NO_BARCODE, or
+     * KEEP_BARCODE to leave it unchanged.
+     */
+    private void putIndexed(long write, int id, String name, int nameCode, long price, long barcode) {
+        int slot = bunchOfProducts.indexOf(id);
+        if (slot < 0) {
+            versions.record(write, id, CatalogVersions.ABSENT, 0);
+            searchIndex.add(id, name);
+            listing.changed(id);
+        } else if (bunchOfProducts.nameCodeAt(slot) != nameCode) {
+            versions.record(write, id, bunchOfProducts.nameCodeAt(slot), bunchOfProducts.priceAt(slot));
+            searchIndex.add(id, name);
+            listing.changed(id);
+        } else if (bunchOfProducts.priceAt(slot) != price) {
+            versions.record(write, id, nameCode, bunchOfProducts.priceAt(slot));
+            listing.changed(id);
+        }
+        if (barcode == KEEP_BARCODE) {
+            bunchOfProducts.put(id, nameCode, price);
+            return;
+        }
+        long oldBarcode = slot < 0 ? ProductTable.NO_BARCODE : bunchOfProducts.barcodeAt(slot);
+        if (barcode != oldBarcode) {
+            if (barcode != ProductTable.NO_BARCODE) {
+                recentBarcodes.put(barcode, id);
+            }
+            barcodesChanged = true;
+        }
+        bunchOfProducts.put(id, nameCode, price, barcode);
+    }
+
+    /**
+     * Retrieves the number of products in the collection.
+     *
+     * @return The product count.
      */
-    public void setDetails(int id, String name, int price) {
-        bunchOfProducts.put(id, new StringIntPair(name, price));
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return bunchOfProducts.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
@@ -100,48 +418,264 @@ class Products {
      * @param id The ID of the product to remove.
      */
     public void removeDetails(int id) {
-        if (!bunchOfProducts.containsKey(id)) {
+        if (!deleteDetails(id)) {
             System.out.print("Id Not Found!\n");
-            return;
         } else {
-            bunchOfProducts.remove(id);
             System.out.println("Deleted product with ID " + id + "\n");
         }
     }
 
     /**
-     * Deletes all products from the collection.
+     * Removes a product with the given ID from the collection without
+     * printing anything.
+     *
+     * @param id The ID of the product to remove.
+     * @return true if the product was removed, false if it was not found.
+     */
+    boolean deleteDetails(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = bunchOfProducts.indexOf(id);
+            if (slot < 0) {
+                return false;
+            }
+            long write = versions.beginWrite();
+            versions.record(write, id, bunchOfProducts.nameCodeAt(slot), bunchOfProducts.priceAt(slot));
+            searchIndex.remove(id);
+            listing.changed(id);
+            if (bunchOfProducts.barcodeAt(slot) != ProductTable.NO_BARCODE) {
+                barcodesChanged = true;
+            }
+            bunchOfProducts.remove(id);
+            versions.publish(write);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Deletes all products from the collection. While bills have older
+     * versions pinned, every product is logged first so they can still read
+     * it.
      */
     public void deleteAllDetails() {
-        bunchOfProducts.clear();
+        long stamp = lock.writeLock();
+        try {
+            long write = versions.beginWrite();
+            bunchOfProducts.forEach((id, nameCode, price) -> versions.record(write, id, nameCode, price));
+            bunchOfProducts.clear();
+            searchIndex.clear();
+            listing.invalidate();
+            barcodeTable = BarcodeTable.EMPTY;
+            recentBarcodes.clear();
+            barcodesChanged = false;
+            versions.publish(write);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
     }
 
     /**
-     * Retrieves all products from the collection.
+     * Retrieves all products from the collection. The map is a copy built on
+     * demand, so changes to it do not affect the catalog.
      *
      * @return A HashMap containing all products with their IDs as keys.
      */
-    HashMap<Integer, StringIntPair> ShowAllProducts() {
-        return bunchOfProducts;
+    HashMap<Integer, StringLongPair> ShowAllProducts() {
+        HashMap<Integer, StringLongPair> allProducts = new HashMap<>();
+        long stamp = lock.readLock();
+        try {
+            bunchOfProducts.forEach((id, nameCode, price)
+                    -> allProducts.put(id, new StringLongPair(names.decode(nameCode), price)));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return allProducts;
+    }
+
+    /**
+     * Visits every product in the collection with its barcode under one
+     * read lock, so the visitor sees a single consistent catalog.
+     *
+     * @param visitor The visitor to call for each product.
+     */
+    void forEachEntry(ProductTable.EntryVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            bunchOfProducts.forEach(visitor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Compiles the barcodes of the catalog into a perfect hash table, so
+     * every scan afterwards costs a single probe. Meant to run once the price
+     * file is loaded; barcodes assigned later are still found, through a
+     * slower path, until the next compilation.
+     *
+     * @return The number of barcodes compiled.
+     * @throws IllegalArgumentException If two products share a barcode.
+     */
+    int compileBarcodes() {
+        long stamp = lock.writeLock();
+        try {
+            int[] ids = new int[bunchOfProducts.size()];
+            long[] barcodes = new long[ids.length];
+            int[] count = {0};
+            bunchOfProducts.forEach((int id, long barcode) -> {
+                ids[count[0]] = id;
+                barcodes[count[0]++] = barcode;
+            });
+            barcodeTable = new BarcodeTable(barcodes, ids, count[0]);
+            recentBarcodes.clear();
+            barcodesChanged = false;
+            return count[0];
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Finds the product carrying a barcode. While the catalog is unchanged
+     * since the barcodes were compiled this is a single lock-free probe of
+     * the barcode table.
+     *
+     * @param barcode The scanned barcode.
+     * @return The product ID, or -1 if no product carries the barcode.
+     */
+    int findByBarcode(long barcode) {
+        int id = barcodeTable.lookup(barcode);
+        if (!barcodesChanged) {
+            return id;
+        }
+        long stamp = lock.readLock();
+        try {
+            Integer recent = recentBarcodes.get(barcode);
+            if (recent != null) {
+                id = recent;
+            }
+            int slot = id < 0 ? -1 : bunchOfProducts.indexOf(id);
+            return slot >= 0 && bunchOfProducts.barcodeAt(slot) == barcode ? id : -1;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Visits the barcode of every product that has one under the read lock.
+     *
+     * @param visitor The visitor to call for each product.
+     */
+    void forEachBarcode(ProductTable.BarcodeVisitor visitor) {
+        long stamp = lock.readLock();
+        try {
+            bunchOfProducts.forEach(visitor);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Lists one page of the catalog in the given order. The sorted order is
+     * cached between calls and only patched with the products changed since,
+     * so paging through a large catalog does not sort it again.
+     *
+     * @param order The order to list the products in.
+     * @param after The cursor returned with the previous page, or null for
+     * the first page.
+     * @param limit The largest number of products on the page.
+     * @return The page, with the cursor of the next one.
+     */
+    CatalogListing.Page listProducts(CatalogListing.Order order, CatalogListing.Cursor after, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return listing.page(order, after, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds products by the start of the words of their names, as typed so
+     * far by a cashier. Every query word must start a word of the name.
+     *
+     * @param query The words typed so far.
+     * @param limit The largest number of products to return.
+     * @return The IDs of up to limit matching products.
+     */
+    int[] searchByPrefix(String query, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return searchIndex.searchPrefix(query, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds products by name allowing typos in the query, closest names
+     * first.
+     *
+     * @param query The query words.
+     * @param limit The largest number of products to return.
+     * @return The IDs of up to limit matching products.
+     */
+    int[] searchFuzzy(String query, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return searchIndex.searchFuzzy(query, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Retrieves the dictionary that resolves the name codes of the products
+     * and of the bill lines scanned from them.
+     *
+     * @return The name dictionary.
+     */
+    NameDictionary getNames() {
+        return names;
     }
 }
 
 
 /**
  * Represents an administrator responsible for managing product details.
+ * When changes are journaled, each one is applied and journaled while
+ * holding the journal's monitor, so admins sharing a catalog and journal
+ * journal their changes in the order they applied them.
  */
 class Admin {
 
     // Products instance to perform administrative tasks
     private final Products products;
 
+    // Journal recording catalog changes, or null if they are not recorded
+    private final Journal journal;
+
     /**
      * Constructs an Admin object with the specified Products instance.
      *
      * @param products The Products instance to manage.
      */
     public Admin(Products products) {
+        this(products, null);
+    }
+
+    /**
+     * Constructs an Admin object that records every catalog change in a
+     * journal.
+     *
+     * @param products The Products instance to manage.
+     * @param journal The journal to record changes in, or null.
+     */
+    public Admin(Products products, Journal journal) {
         this.products = products;
+        this.journal = journal;
     }
 
     /**
@@ -149,10 +683,17 @@ class Admin {
      *
      * @param id The ID of the product to add.
      * @param name The name of the product.
-     * @param price The price of the product.
+     * @param price The price of the product, in minor currency units.
      */
-    public void addProductDetails(int id, String name, int price) {
-        products.setDetails(id, name, price);
+    public void addProductDetails(int id, String name, long price) {
+        if (journal == null) {
+            products.setDetails(id, name, price);
+            return;
+        }
+        synchronized (journal) {
+            products.setDetails(id, name, price);
+            journal.productSet(id, name, price);
+        }
     }
 
     /**
@@ -160,270 +701,1295 @@ class Admin {
      *
      * @param id The ID of the product to remove.
      */
-    public void removeProductDetails(int id) {
-        products.removeDetails(id);
+    public void removeProductDetails(int id) {
+        if (!delete(id)) {
+            System.out.print("Id Not Found!\n");
+        } else {
+            System.out.println("Deleted product with ID " + id + "\n");
+        }
+    }
+
+    /**
+     * Removes the product with the specified ID without printing anything.
+     *
+     * @param id The ID of the product to remove.
+     * @return true if the product was removed, false if it was not found.
+     */
+    public boolean deleteProductDetails(int id) {
+        return delete(id);
+    }
+
+    /**
+     * Removes a product and journals the removal if it was listed.
+     *
+     * @param id The ID of the product to remove.
+     * @return true if the product was removed, false if it was not found.
+     */
+    private boolean delete(int id) {
+        if (journal == null) {
+            return products.deleteDetails(id);
+        }
+        synchronized (journal) {
+            boolean removed = products.deleteDetails(id);
+            if (removed) {
+                journal.productRemove(id);
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Clears all product details from the system.
+     */
+    public void clearAllProductDetails() {
+        if (journal == null) {
+            products.deleteAllDetails();
+            return;
+        }
+        synchronized (journal) {
+            products.deleteAllDetails();
+            journal.productClear();
+        }
+    }
+
+    /**
+     * Retrieves details of all products.
+     *
+     * @return A HashMap containing details of all products.
+     */
+    public HashMap<Integer, StringLongPair> ShowAllProducts() {
+        return products.ShowAllProducts();
+    }
+
+    /**
+     * Lists one page of the products in the given order.
+     *
+     * @param order The order to list the products in.
+     * @param after The cursor returned with the previous page, or null for
+     * the first page.
+     * @param limit The largest number of products on the page.
+     * @return The page, with the cursor of the next one.
+     */
+    public CatalogListing.Page listProducts(CatalogListing.Order order, CatalogListing.Cursor after, int limit) {
+        return products.listProducts(order, after, limit);
+    }
+}
+
+
+/**
+ * Represents the format of a bill item.
+ */
+class BillFormat {
+
+    // Item ID
+    private final int itemId;
+
+    // Quantity of the item
+    private final int quantity;
+
+    // Price of the quantity of the item, in minor currency units
+    private final long price;
+
+    // Dictionary code of the name of the item
+    private final int nameCode;
+
+    /**
+     * Constructs a BillFormat object with the specified details.
+     *
+     * @param id The ID of the item.
+     * @param quantity The quantity of the item.
+     * @param price The price of the quantity of the item.
+     * @param nameCode The dictionary code of the name of the item.
+     */
+    public BillFormat(int id, int quantity, long price, int nameCode) {
+        this.itemId = id;
+        this.quantity = quantity;
+        this.price = price;
+        this.nameCode = nameCode;
+    }
+
+    /**
+     * Retrieves the ID of the item.
+     *
+     * @return The item ID.
+     */
+    public int getItemId() {
+        return itemId;
+    }
+
+    /**
+     * Retrieves the quantity of the item.
+     *
+     * @return The quantity.
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Retrieves the price of the quantity of the item.
+     *
+     * @return The price, in minor currency units.
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * Retrieves the dictionary code of the name of the item.
+     *
+     * @return The item name code.
+     */
+    public int getNameCode() {
+        return nameCode;
+    }
+
+    /**
+     * Retrieves the name of the item.
+     *
+     * @param names The dictionary the name code was taken from.
+     * @return The item name.
+     */
+    public String getItemName(NameDictionary names) {
+        return names.decode(nameCode);
+    }
+}
+
+
+/**
+ * Represents a bill counter staff member responsible for managing bill items.
+ */
+class BillCounterGuy {
+
+    // Catalog version of a bill that has not read the catalog yet
+    private static final long NO_VERSION = -1;
+
+    // Largest gross amount a bill may reach. Every amount the discounts and
+    // taxes derive from the lines is bounded by a small multiple of the
+    // gross amount, so staying this far below the range of a long keeps
+    // them from overflowing after a mutation has been accepted
+    static final long MAX_GROSS_AMOUNT = Long.MAX_VALUE >> 10;
+
+    // Reference to the Products class for fetching product details
+    private final Products products;
+
+    // Item ID
+    private int itemId;
+
+    // Dictionary code of the item name
+    private int itemNameCode;
+
+    // Quantity of the item
+    private int quantity;
+
+    // Price of the item
+    private long price;
+
+    // Counter for items
+    private int itemNo;
+
+    // Total amount of the bill, in minor currency units
+    private long totalAmount;
+
+    // Sum of the magnitudes of the line amounts, in minor currency units
+    private long grossAmount;
+
+    // Columnar store of the bill lines. Removed lines leave a hole until the
+    // lines are compacted
+    private final BillLines billDetails = new BillLines();
+
+    // Index from item ID to the position of its first line in billDetails
+    private final IntIntMap firstLine = new IntIntMap();
+
+    // Index from item ID to the position of its last line in billDetails
+    private final IntIntMap lastLine = new IntIntMap();
+
+    // Position of the next line with the same item ID, parallel to billDetails
+    private int[] nextSameId = new int[16];
+
+    // Whether repeated scans of an item are merged into its existing line
+    private final boolean mergeRepeatedScans;
+
+    // Whether item operations skip printing their result
+    private boolean quiet;
+
+    // Journal recording bill changes, or null if they are not recorded
+    private Journal journal;
+
+    // Session number identifying this bill in the journal
+    private int session;
+
+    // Archive completed bills are appended to, or null if they are discarded
+    private BillArchive archive;
+
+    // Lane number recorded with archived bills
+    private int lane;
+
+    // Running sales per product updated by every change, or null
+    private LiveSales liveSales;
+
+    // Catalog version pinned by the open bill, or NO_VERSION
+    private long catalogVersion = NO_VERSION;
+
+    // Running discount of the bill under the active promotions, or null
+    private BillDiscounts discounts;
+
+    // Running taxes of the bill under the tax table, or null
+    private BillTaxes taxes;
+
+    // Printer completed bills are queued on, or null if none are printed
+    private ReceiptPrinter receiptPrinter;
+
+    /**
+     * Constructs a BillCounterGuy object with the specified Products instance.
+     * Every scan is added as its own bill line.
+     *
+     * @param products The Products instance to fetch product details from.
+     */
+    public BillCounterGuy(Products products) {
+        this(products, false);
+    }
+
+    /**
+     * Constructs a BillCounterGuy object with the specified Products instance.
+     *
+     * @param products The Products instance to fetch product details from.
+     * @param mergeRepeatedScans true to add the quantity of a repeated scan to
+     * the existing line of that item instead of adding a new line.
+     */
+    public BillCounterGuy(Products products, boolean mergeRepeatedScans) {
+        this.products = products;
+        this.mergeRepeatedScans = mergeRepeatedScans;
+    }
+
+    /**
+     * Checks if the given item ID is available in the bill.
+     *
+     * @param id The item ID to check.
+     * @return 1 if the item ID is available, otherwise 0.
+     */
+    public int isTheIdAvailable(int id) {
+        if (firstLine.containsKey(id)) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Checks if the given product ID is listed in the catalog version the
+     * bill reads. A product added after the bill opened is not listed until
+     * the next bill.
+     *
+     * @param id The product ID to check.
+     * @return 1 if the product is listed, otherwise 0.
+     */
+    public int isTheIdListed(int id) {
+        if (fetchProductDetails(id) != null) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Fetches product details for the given item ID. The first lookup of a
+     * bill pins the current catalog version, and every later lookup of the
+     * bill reads that version, so the lines of a bill are priced alike even
+     * if the catalog is changed while it is open.
+     *
+     * @param id The item ID to fetch details for.
+     * @return The IntLongPair containing the name code and price of the
+     * product, or null if it is not listed in the pinned version.
+     */
+    IntLongPair fetchProductDetails(int id) {
+        if (catalogVersion == NO_VERSION) {
+            catalogVersion = products.pinVersion();
+        }
+        return products.getEncodedDetails(id, catalogVersion);
+    }
+
+    /**
+     * Releases the catalog version pinned by the open bill, so the catalog
+     * can reclaim the details it keeps for it. The next lookup pins the
+     * version current at that time.
+     */
+    void releaseCatalogVersion() {
+        if (catalogVersion != NO_VERSION) {
+            products.releaseVersion(catalogVersion);
+            catalogVersion = NO_VERSION;
+        }
+    }
+
+    /**
+     * Adds an item to the bill with the specified ID and quantity. When
+     * repeated scans are merged and the item is already on the bill, the
+     * quantity is added to its existing line.
+     *
+     * @param id The ID of the item to add.
+     * @param qty The quantity of the item to add.
+     */
+    public void addItem(int id, int qty) {
+        // Fetch product details
+        IntLongPair details = fetchProductDetails(id);
+        this.itemNameCode = details.getIntValue();
+        this.price = Money.times(details.getLongValue(), qty);
+        long newTotal = Money.plus(totalAmount, price);
+        long newGross = grossAfter(0, price);
+        this.itemId = id;
+        this.quantity = qty;
+
+        int position = addLine(id, quantity, price, itemNameCode);
+        this.totalAmount = newTotal;
+        this.grossAmount = newGross;
+        if (quiet) {
+            return;
+        }
+        System.out.println("Added Item:\nItem ID: " + id + "\nItem Name: "
+                + products.getNames().decode(billDetails.nameCodeAt(position)) + "\nItem Qty: "
+                + billDetails.quantityAt(position) + "\nItem Price: "
+                + Money.format(billDetails.priceAt(position)));
+    }
+
+    /**
+     * Adds a burst of scanned items to the bill. Every ID is resolved once and
+     * the whole batch is validated against the catalog, and every amount and
+     * merged quantity it leads to is worked out, before any line is added,
+     * so either every item is added or none is. Nothing is printed.
+     *
+     * @param ids The IDs of the items to add.
+     * @param qtys The quantities of the items, parallel to ids.
+     * @return The outcome of the batch.
+     * @throws IllegalArgumentException If the arrays differ in length or a
+     * quantity is below one.
+     * @throws ArithmeticException If an amount or merged quantity would
+     * overflow; the bill is then unchanged.
+     */
+    public ScanBatchResult addItems(int[] ids, int[] qtys) {
+        if (ids.length != qtys.length) {
+            throw new IllegalArgumentException("ids and qtys must have the same length");
+        }
+        for (int i = 0; i < qtys.length; i++) {
+            if (qtys[i] <= 0) {
+                throw new IllegalArgumentException("Quantity below one at index " + i + ": " + qtys[i]);
+            }
+        }
+
+        // Resolve and validate the whole batch first
+        IntLongPair[] details = new IntLongPair[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            details[i] = fetchProductDetails(ids[i]);
+            if (details[i] == null) {
+                return ScanBatchResult.rejected(i, ids[i]);
+            }
+        }
+
+        // Add all the lines and update the total once
+        billDetails.ensureCapacity(billDetails.size() + ids.length);
+        long[] lineAmounts = new long[ids.length];
+        long batchAmount = 0;
+        long batchGross = 0;
+        for (int i = 0; i < ids.length; i++) {
+            lineAmounts[i] = Money.times(details[i].getLongValue(), qtys[i]);
+            batchAmount = Money.plus(batchAmount, lineAmounts[i]);
+            batchGross = Money.plus(batchGross, Math.absExact(lineAmounts[i]));
+        }
+        long newTotal = Money.plus(totalAmount, batchAmount);
+        long newGross = grossAfter(0, batchGross);
+        if (mergeRepeatedScans) {
+            checkMergedQuantities(ids, qtys);
+        }
+        for (int i = 0; i < ids.length; i++) {
+            addLine(ids[i], qtys[i], lineAmounts[i], details[i].getIntValue());
+        }
+        this.totalAmount = newTotal;
+        this.grossAmount = newGross;
+        return ScanBatchResult.accepted(ids.length, batchAmount);
+    }
+
+    /**
+     * Works out the quantity every line reaches when a batch is merged into
+     * the bill, so a quantity that would overflow is found before any line
+     * is added.
+     *
+     * @param ids The IDs of the items to add.
+     * @param qtys The quantities of the items, parallel to ids.
+     * @throws ArithmeticException If a merged quantity would overflow.
+     */
+    private void checkMergedQuantities(int[] ids, int[] qtys) {
+        IntIntMap merged = new IntIntMap();
+        for (int i = 0; i < ids.length; i++) {
+            int qty;
+            if (merged.containsKey(ids[i])) {
+                qty = merged.get(ids[i]);
+            } else {
+                int position = firstLine.get(ids[i]);
+                qty = position == IntIntMap.MISSING ? 0 : billDetails.quantityAt(position);
+            }
+            merged.put(ids[i], Math.addExact(qty, qtys[i]));
+        }
+    }
+
+    /**
+     * Adds a scanned item as a new line, or merges it into the existing line
+     * of the item when repeated scans are merged.
+     *
+     * @param id The ID of the item.
+     * @param qty The quantity scanned.
+     * @param lineAmount The price of the scanned quantity.
+     * @param nameCode The dictionary code of the name of the item.
+     * @return The position of the line holding the item.
+     */
+    private int addLine(int id, int qty, long lineAmount, int nameCode) {
+        int position = mergeRepeatedScans ? firstLine.get(id) : IntIntMap.MISSING;
+        // Work out the merged line before anything is recorded, so an
+        // overflow leaves the bill unchanged
+        int mergedQty = position == IntIntMap.MISSING ? qty : Math.addExact(billDetails.quantityAt(position), qty);
+        long mergedAmount = position == IntIntMap.MISSING
+                ? lineAmount : Money.plus(billDetails.priceAt(position), lineAmount);
+        if (liveSales != null) {
+            liveSales.record(id, qty, lineAmount);
+        }
+        if (discounts != null) {
+            discounts.record(id, qty, lineAmount);
+        }
+        if (taxes != null) {
+            taxes.record(id, lineAmount);
+        }
+        if (position != IntIntMap.MISSING) {
+            // Merge the scan into the existing line
+            billDetails.set(position, mergedQty, mergedAmount, nameCode);
+            if (journal != null) {
+                journal.itemAdd(session, id, qty, lineAmount);
+            }
+            return position;
+        }
+        // Add item to bill details
+        position = appendLine(id, qty, lineAmount, nameCode);
+        if (journal != null) {
+            journal.itemAdd(session, id, qty, lineAmount);
+        }
+        return position;
+    }
+
+    /**
+     * Modifies the quantity of an item in the bill. If the item has several
+     * lines, its first line is modified.
+     *
+     * @param id The ID of the item to modify.
+     * @param qty The new quantity of the item.
+     */
+    public void modifyItem(int id, int qty) {
+        int position = firstLine.get(id);
+        if (position == IntIntMap.MISSING) {
+            return;
+        }
+        IntLongPair details = fetchProductDetails(id);
+        this.itemNameCode = details.getIntValue();
+        this.price = Money.times(details.getLongValue(), qty);
+        replaceLine(position, id, qty, price, itemNameCode);
+        if (quiet) {
+            return;
+        }
+        System.out.println("Modified Item:\nItem ID: " + id + "\nItem Name: "
+                + products.getNames().decode(itemNameCode) + "\nItem Qty: " + qty + "\nItem Price: "
+                + Money.format(price));
+    }
+
+    /**
+     * Removes an item from the bill. If the item has several lines, its first
+     * line is removed.
+     *
+     * @param id The ID of the item to remove.
+     */
+    void removeItem(int id) {
+        int position = firstLine.get(id);
+        if (position == IntIntMap.MISSING) {
+            if (!quiet) {
+                System.out.println("Item not found!!");
+            }
+            return;
+        }
+        totalAmount = Money.minus(totalAmount, billDetails.priceAt(position));
+        grossAmount -= Math.abs(billDetails.priceAt(position));
+        unlinkFirstLine(id, position);
+        if (!quiet) {
+            System.out.println("Product ID: " + id + " has been removed!!");
+        }
+    }
+
+    /**
+     * Replaces a line of the bill and adjusts the total by the difference.
+     *
+     * @param position The position of the line.
+     * @param id The ID of the item.
+     * @param qty The new quantity.
+     * @param lineAmount The new price of the line.
+     * @param nameCode The dictionary code of the name of the item.
+     */
+    private void replaceLine(int position, int id, int qty, long lineAmount, int nameCode) {
+        // Work out the new total before anything is recorded, so an overflow
+        // leaves the bill unchanged
+        long newTotal = Money.plus(Money.minus(totalAmount, billDetails.priceAt(position)), lineAmount);
+        long newGross = grossAfter(billDetails.priceAt(position), lineAmount);
+        long amountDelta = Money.minus(lineAmount, billDetails.priceAt(position));
+        long qtyDelta = (long) qty - billDetails.quantityAt(position);
+        if (liveSales != null) {
+            liveSales.record(id, qtyDelta, amountDelta);
+        }
+        if (discounts != null) {
+            discounts.record(id, qtyDelta, amountDelta);
+        }
+        if (taxes != null) {
+            taxes.record(id, amountDelta);
+        }
+        this.totalAmount = newTotal;
+        this.grossAmount = newGross;
+        billDetails.set(position, qty, lineAmount, nameCode);
+        if (journal != null) {
+            journal.itemModify(session, id, qty, lineAmount);
+        }
+    }
+
+    /**
+     * Re-applies a journaled addition with the amount that was charged.
+     *
+     * @param id The ID of the item.
+     * @param qty The quantity added.
+     * @param lineAmount The price charged for the quantity.
+     */
+    void restoreAdd(int id, int qty, long lineAmount) {
+        long newTotal = Money.plus(totalAmount, lineAmount);
+        long newGross = grossAfter(0, lineAmount);
+        addLine(id, qty, lineAmount, nameCodeOf(id));
+        this.totalAmount = newTotal;
+        this.grossAmount = newGross;
+    }
+
+    /**
+     * Works out the gross amount of the bill after a line amount is replaced,
+     * before anything is recorded.
+     *
+     * @param oldAmount The amount of the line replaced, or 0 for a new line.
+     * @param newAmount The amount of the new line.
+     * @return The new gross amount.
+     * @throws ArithmeticException If the gross amount would pass
+     * MAX_GROSS_AMOUNT.
+     */
+    private long grossAfter(long oldAmount, long newAmount) {
+        long gross = Money.plus(grossAmount - Math.abs(oldAmount), Math.absExact(newAmount));
+        if (gross > MAX_GROSS_AMOUNT) {
+            throw new ArithmeticException("Bill amount out of range");
+        }
+        return gross;
+    }
+
+    /**
+     * Re-applies a journaled modification with the amount that was charged.
+     *
+     * @param id The ID of the item.
+     * @param qty The new quantity.
+     * @param lineAmount The new price of the line.
+     */
+    void restoreModify(int id, int qty, long lineAmount) {
+        int position = firstLine.get(id);
+        if (position != IntIntMap.MISSING) {
+            replaceLine(position, id, qty, lineAmount, nameCodeOf(id));
+        }
+    }
+
+    /**
+     * Re-applies a journaled removal.
+     *
+     * @param id The ID of the item.
+     */
+    void restoreRemove(int id) {
+        int position = firstLine.get(id);
+        if (position != IntIntMap.MISSING) {
+            totalAmount = Money.minus(totalAmount, billDetails.priceAt(position));
+            grossAmount -= Math.abs(billDetails.priceAt(position));
+            unlinkFirstLine(id, position);
+        }
+    }
+
+    /**
+     * Looks up the current name code of a product for a restored line.
+     *
+     * @param id The ID of the item.
+     * @return The product name code, or the code of the empty name if it is
+     * no longer listed.
+     */
+    private int nameCodeOf(int id) {
+        IntLongPair details = fetchProductDetails(id);
+        return details == null ? NameDictionary.EMPTY : details.getIntValue();
+    }
+
+    /**
+     * Appends a line to the bill and links it into the index of its item ID.
+     *
+     * @param id The ID of the item.
+     * @param qty The quantity of the item.
+     * @param lineAmount The price of the quantity.
+     * @param nameCode The dictionary code of the name of the item.
+     * @return The position of the new line.
+     */
+    private int appendLine(int id, int qty, long lineAmount, int nameCode) {
+        int position = billDetails.append(id, qty, lineAmount, nameCode);
+        if (position == nextSameId.length) {
+            nextSameId = Arrays.copyOf(nextSameId, position * 2);
+        }
+        linkLine(id, position);
+        return position;
+    }
+
+    /**
+     * Links a line at the end of the index chain of its item ID.
+     *
+     * @param id The ID of the item.
+     * @param position The position of the line.
+     */
+    private void linkLine(int id, int position) {
+        nextSameId[position] = IntIntMap.MISSING;
+        int last = lastLine.get(id);
+        if (last == IntIntMap.MISSING) {
+            firstLine.put(id, position);
+        } else {
+            nextSameId[last] = position;
+        }
+        lastLine.put(id, position);
+    }
+
+    /**
+     * Removes the first line of an item ID by leaving a hole in its place.
+     * The list is compacted once holes outnumber the remaining lines.
+     *
+     * @param id The item ID.
+     * @param position The position of the first line of the item ID.
+     */
+    private void unlinkFirstLine(int id, int position) {
+        if (journal != null) {
+            journal.itemRemove(session, id);
+        }
+        if (liveSales != null) {
+            liveSales.record(id, -(long) billDetails.quantityAt(position), -billDetails.priceAt(position));
+        }
+        if (discounts != null) {
+            discounts.record(id, -(long) billDetails.quantityAt(position), -billDetails.priceAt(position));
+        }
+        if (taxes != null) {
+            taxes.record(id, -billDetails.priceAt(position));
+        }
+        int next = nextSameId[position];
+        if (next == IntIntMap.MISSING) {
+            firstLine.remove(id);
+            lastLine.remove(id);
+        } else {
+            firstLine.put(id, next);
+        }
+        billDetails.remove(position);
+        if (billDetails.holes() * 2 > billDetails.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Closes the holes left by removed lines, keeping the order of the
+     * remaining lines, and rebuilds the index.
+     */
+    private void compact() {
+        billDetails.compact();
+        firstLine.clear();
+        lastLine.clear();
+        for (int position = 0; position < billDetails.size(); position++) {
+            linkLine(billDetails.itemIdAt(position), position);
+        }
+    }
+
+    /**
+     * Sets whether item operations skip printing their result, for callers
+     * that drive the bill without a console.
+     *
+     * @param quiet true to stop printing item operation results.
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    /**
+     * Starts recording every change to this bill in a journal. Attach the
+     * journal only after the bill has been recovered from it.
+     *
+     * @param journal The journal to record changes in.
+     * @param session The session number identifying this bill.
+     */
+    public void setJournal(Journal journal, int session) {
+        this.journal = journal;
+        this.session = session;
+    }
+
+    /**
+     * Starts appending completed bills to an archive.
+     *
+     * @param archive The archive to append completed bills to.
+     * @param lane The lane number recorded with each bill.
+     */
+    public void setArchive(BillArchive archive, int lane) {
+        this.archive = archive;
+        this.lane = lane;
+    }
+
+    /**
+     * Starts queueing the receipt of every completed bill on a printer.
+     *
+     * @param receiptPrinter The printer to queue receipts on, or null to
+     * print none.
+     */
+    public void setReceiptPrinter(ReceiptPrinter receiptPrinter) {
+        this.receiptPrinter = receiptPrinter;
+    }
+
+    /**
+     * Starts applying every change of this bill to running sales counters
+     * shared with other lanes. The lines already on the bill are recorded
+     * straight away, so removing them later leaves the counters even.
+     *
+     * @param liveSales The counters to update, or null to stop updating.
+     */
+    public void setLiveSales(LiveSales liveSales) {
+        this.liveSales = liveSales;
+        if (liveSales == null) {
+            return;
+        }
+        for (int position = 0; position < billDetails.size(); position++) {
+            if (!billDetails.isHole(position)) {
+                liveSales.record(billDetails.itemIdAt(position), billDetails.quantityAt(position),
+                        billDetails.priceAt(position));
+            }
+        }
+    }
+
+    /**
+     * Applies a set of promotions to this bill. The lines already on the
+     * bill are evaluated under the new promotions straight away; from then
+     * on every change re-evaluates only the promotions of the changed item.
+     *
+     * @param promotions The promotions to apply, or null to apply none.
+     */
+    public void setPromotions(Promotions promotions) {
+        if (discounts != null) {
+            // Give the old discounts back to the taxable amounts
+            discounts.setTaxes(null);
+        }
+        if (promotions == null) {
+            this.discounts = null;
+            return;
+        }
+        BillDiscounts applied = new BillDiscounts(promotions);
+        applied.setTaxes(taxes);
+        for (int position = 0; position < billDetails.size(); position++) {
+            if (!billDetails.isHole(position)) {
+                applied.record(billDetails.itemIdAt(position), billDetails.quantityAt(position),
+                        billDetails.priceAt(position));
+            }
+        }
+        this.discounts = applied;
+    }
+
+    /**
+     * Applies a tax table to this bill. The lines already on the bill are
+     * taxed under the new table straight away, less the discount of the
+     * active promotions; from then on every change updates only the rates of
+     * the changed item.
+     *
+     * @param table The tax table to apply, or null to charge no taxes.
+     */
+    public void setTaxTable(TaxTable table) {
+        if (table == null) {
+            if (discounts != null) {
+                discounts.setTaxes(null);
+            }
+            this.taxes = null;
+            return;
+        }
+        BillTaxes applied = new BillTaxes(table);
+        for (int position = 0; position < billDetails.size(); position++) {
+            if (!billDetails.isHole(position)) {
+                applied.record(billDetails.itemIdAt(position), billDetails.priceAt(position));
+            }
+        }
+        if (discounts != null) {
+            discounts.setTaxes(applied);
+        }
+        this.taxes = applied;
+    }
+
+    /**
+     * Completes the bill: a bill with lines is appended to the archive, if
+     * one is set, its receipt is queued on the printer, if one is set, and
+     * the session is reset for the next customer. The receipt is printed in
+     * the background, so the next customer is not kept waiting for it. The
+     * line storage is kept, so the next bill reuses it.
+     *
+     * @return The archive ID of the bill, or 0 if it was not archived.
+     * @throws IOException If the bill cannot be archived, in which case it
+     * is left open, or the thread is interrupted while waiting for room on
+     * the printer, in which case the bill is completed without a receipt.
+     */
+    public long completeBill() throws IOException {
+        BillLines lines = generateLines();
+        long billId = 0;
+        if (archive != null && lines.size() > 0) {
+            billId = archive.append(lane, lines, products.getNames(), getBillAmount());
+        }
+        if (journal != null) {
+            journal.billComplete(session, billId);
+        }
+        try {
+            if (receiptPrinter != null && lines.size() > 0) {
+                receiptPrinter.print(lines, getNames(), getDiscount(), getTaxes(), getBillAmount());
+            }
+        } finally {
+            resetBill();
+        }
+        return billId;
+    }
+
+    /**
+     * Re-applies a journaled bill completion.
+     */
+    void restoreComplete() {
+        resetBill();
+    }
+
+    /**
+     * Discards the open bill without archiving it and starts a new one, for
+     * a customer who walked away or a lane that is closed.
+     */
+    public void discardBill() {
+        if (liveSales != null) {
+            // The walked-away sales never happened
+            for (int position = 0; position < billDetails.size(); position++) {
+                if (!billDetails.isHole(position)) {
+                    liveSales.record(billDetails.itemIdAt(position), -(long) billDetails.quantityAt(position),
+                            -billDetails.priceAt(position));
+                }
+            }
+        }
+        if (journal != null && billDetails.size() > 0) {
+            journal.billDiscard(session);
+        }
+        resetBill();
+    }
+
+    /**
+     * Re-applies a journaled bill discard.
+     */
+    void restoreDiscard() {
+        resetBill();
     }
 
     /**
-     * Clears all product details from the system.
+     * Empties the bill and its index so the session can start a new bill.
      */
-    public void clearAllProductDetails() {
-        products.deleteAllDetails();
+    private void resetBill() {
+        releaseCatalogVersion();
+        billDetails.clear();
+        firstLine.clear();
+        lastLine.clear();
+        totalAmount = 0;
+        grossAmount = 0;
+        itemNo = 0;
+        if (discounts != null) {
+            discounts.clear();
+        }
+        if (taxes != null) {
+            taxes.clear();
+        }
     }
 
     /**
-     * Retrieves details of all products.
+     * Retrieves the total amount of the bill, less the discount of the
+     * active promotions and plus the exclusive taxes.
      *
-     * @return A HashMap containing details of all products.
+     * @return The total bill amount, in minor currency units.
      */
-    public HashMap<Integer, StringIntPair> ShowAllProducts() {
-        return products.ShowAllProducts();
+    public long getBillAmount() {
+        long amount = Money.minus(totalAmount, getDiscount());
+        return taxes == null ? amount : Money.plus(amount, taxes.getExclusiveTax());
     }
-}
-
-
-/**
- * Represents the format of a bill item.
- */
-class BillFormat {
-
-    // Item ID
-    private final int itemId;
-
-    // Quantity of the item
-    private final int quantity;
-
-    // Price per unit of the item
-    private final int price;
-
-    // Name of the item
-    private final String itemName;
 
     /**
-     * Constructs a BillFormat object with the specified details.
+     * Retrieves the tax of every rate charged on the bill.
      *
-     * @param id The ID of the item.
-     * @param quantity The quantity of the item.
-     * @param price The price per unit of the item.
-     * @param name The name of the item.
+     * @return The tax totals, or null if no tax table is applied.
      */
-    public BillFormat(int id, int quantity, int price, String name) {
-        this.itemId = id;
-        this.quantity = quantity;
-        this.price = price;
-        this.itemName = name;
+    public BillTaxes.Totals getTaxes() {
+        return taxes == null ? null : taxes.totals();
     }
 
     /**
-     * Retrieves the ID of the item.
+     * Retrieves the discount the active promotions take off the bill. The
+     * discount of each product is already capped at its amount, and the sum
+     * is capped at the sum of the lines in case other lines are negative.
      *
-     * @return The item ID.
+     * @return The discount, in minor currency units, or 0 if no promotions
+     * are applied.
      */
-    public int getItemId() {
-        return itemId;
+    public long getDiscount() {
+        return discounts == null ? 0 : Math.min(discounts.getDiscount(), Math.max(totalAmount, 0));
     }
 
     /**
-     * Retrieves the quantity of the item.
+     * Retrieves the dictionary that resolves the name codes of the bill
+     * lines.
      *
-     * @return The quantity.
+     * @return The name dictionary.
      */
-    public int getQuantity() {
-        return quantity;
+    public NameDictionary getNames() {
+        return products.getNames();
     }
 
     /**
-     * Retrieves the price per unit of the item.
+     * Generates the bill with all the items and their details.
      *
-     * @return The price.
+     * @return The list of BillFormat objects representing the bill, a view
+     * that builds each line on access.
      */
-    public int getPrice() {
-        return price;
+    public List<BillFormat> generateBill() {
+        return generateLines().asList();
     }
 
     /**
-     * Retrieves the name of the item.
+     * Generates the bill as its columnar lines, without building a line
+     * object per item. The lines are owned by this bill and must not be
+     * changed by the caller.
      *
-     * @return The item name.
+     * @return The compacted lines of the bill.
      */
-    public String getItemName() {
-        return itemName;
+    BillLines generateLines() {
+        if (billDetails.holes() > 0) {
+            compact();
+        }
+        return billDetails;
     }
 }
 
 
 /**
- * Represents a bill counter staff member responsible for managing bill items.
+ * The BillCounter class manages the bill counter operations for XYZ. It allows
+ * both admins and bill counter guys to perform their respective operations.
  */
-class BillCounterGuy {
+public class BillCounter {
 
-    // Reference to the Products class for fetching product details
-    private final Products products;
+    // Number of products listed by a name search
+    private static final int SEARCH_RESULTS = 10;
 
-    // Item ID
-    private int itemId;
+    // Number of products shown per page of the catalog listing
+    private static final int LISTING_PAGE_SIZE = 20;
 
-    // Item name
-    private String itemName;
+    // Scanner object for taking user input
+    private final Scanner sc = new Scanner(System.in);
 
-    // Quantity of the item
-    private int quantity;
+    // Instances of Admin and BillCounterGuy classes
+    Admin admin;
+    BillCounterGuy billCounterGuy;
 
-    // Price of the item
-    private int price;
+    // Instance of Products class for managing products
+    private final Products products = new Products();
 
-    // Counter for items
-    private int itemNo;
+    // Journal of catalog and bill changes, or null if none is kept
+    private Journal journal;
+
+    // Operation metrics, or null if operations are not measured
+    private CheckoutMetrics metrics;
+
+    // Archive of completed bills, or null if completed bills are discarded
+    private BillArchive archive;
+
+    // Running units and revenue per product since the counter started
+    private final LiveSales liveSales = new LiveSales();
+
+    // Lanes of remote terminals and HTTP bills, created on first use
+    private CheckoutLanes lanes;
+
+    // Promotions applied to every bill, or null
+    private Promotions promotions;
+
+    // Tax rates and classes applied to every bill, or null
+    private TaxTable taxTable;
+
+    // Reusable renderer for product listings
+    private final ReceiptRenderer receiptRenderer = new ReceiptRenderer();
 
-    // Total amount of the bill
-    private int totalAmount;
+    // Background printer for bill receipts, created on first use
+    private ReceiptPrinter receiptPrinter;
 
-    // List to store bill details
-    private final List<BillFormat> billDetails = new ArrayList<>();
+    // Address the terminal server and HTTP API listen on; loopback unless
+    // remote terminals are let in on purpose
+    private InetAddress bindAddress = InetAddress.getLoopbackAddress();
+
+    // Variables for storing user role and passwords
+    private int role;
+    private final int adminPassword = 1234;
+    private final int userPassword = 5678;
 
     /**
-     * Constructs a BillCounterGuy object with the specified Products instance.
-     *
-     * @param products The Products instance to fetch product details from.
+     * Constructor for BillCounter class. Initializes instances of Admin and
+     * BillCounterGuy classes with the same Products instance.
      */
-    public BillCounterGuy(Products products) {
-        this.products = products;
+    public BillCounter() {
+        this.admin = new Admin(products); // Passing the same Products instance to Admin
+        this.billCounterGuy = new BillCounterGuy(products); // Passing the same Products instance to BillCounterGuy
+        this.billCounterGuy.setLiveSales(liveSales);
     }
 
     /**
-     * Checks if the given item ID is available in the bill.
+     * Keeps the catalog and bill in a journal file. The catalog and the open
+     * bill are first recovered from the file, then every later change is
+     * appended to it. Open the archive first, so a bill that was archived
+     * just before a crash, without its completion reaching the journal, is
+     * completed instead of being recovered as open and archived twice. A
+     * journal grown past Journal.CHECKPOINT_SIZE is checkpointed once
+     * recovered, after which the catalog is restored from the checkpoint
+     * rather than from the catalog file.
      *
-     * @param id The item ID to check.
-     * @return 1 if the item ID is available, otherwise 0.
+     * @param journalFile The journal file to recover from and append to.
+     * @throws IOException If the journal cannot be read or opened.
      */
-    public int isTheIdAvailable(int id) {
-        for (BillFormat item : billDetails) {
-            if (item.getItemId() == id) {
-                return 1;
+    public void openJournal(Path journalFile) throws IOException {
+        // The journal holds every past bill, which must not count as today's
+        // sales; only the bill left open is recorded once recovered
+        billCounterGuy.setLiveSales(null);
+        HashMap<Integer, BillCounterGuy> laneBills = new HashMap<>();
+        Journal.Recovery recovery = Journal.recover(journalFile, products, session -> session == 0
+                ? billCounterGuy : laneBills.computeIfAbsent(session, s -> new BillCounterGuy(products)));
+        // A lane ends with its terminal or HTTP client, so the bills it left
+        // open are replayed only to be dropped
+        for (BillCounterGuy laneBill : laneBills.values()) {
+            laneBill.releaseCatalogVersion();
+        }
+        long completedBillId = 0;
+        if (archive != null && billCounterGuy.generateLines().size() > 0) {
+            // A console bill archived after its last journaled change was
+            // archived but never recorded as complete; other lanes may have
+            // archived bills after it
+            completedBillId = archive.findLastOfLane(0, recovery.getArchivedBefore(0));
+            if (completedBillId > 0) {
+                billCounterGuy.restoreComplete();
             }
         }
-        return 0;
+        if (Files.exists(journalFile) && Files.size(journalFile) > Journal.CHECKPOINT_SIZE) {
+            long lastBillId = archive == null ? recovery.getLastBillId()
+                    : Math.max(recovery.getLastBillId(), archive.getNextBillId() - 1);
+            Journal.checkpoint(journalFile, products, 0, billCounterGuy, lastBillId);
+            // The archive mark of the checkpoint stands in for the completion
+            completedBillId = 0;
+        }
+        this.journal = new Journal(journalFile, Journal.DEFAULT_COMMIT_INTERVAL_MILLIS);
+        this.admin = metrics == null ? new Admin(products, journal) : new MeteredAdmin(products, journal, metrics);
+        if (archive != null) {
+            journal.syncWith(archive);
+        }
+        if (completedBillId > 0) {
+            journal.billComplete(0, completedBillId);
+        }
+        this.billCounterGuy.setLiveSales(liveSales);
+        this.billCounterGuy.setJournal(journal, 0);
     }
 
     /**
-     * Fetches product details for the given item ID.
+     * Starts measuring every catalog, bill and receipt operation and publishes
+     * the figures over JMX. Must be called before the catalog or journal is
+     * loaded, since it starts a fresh bill.
      *
-     * @param id The item ID to fetch details for.
-     * @return The StringIntPair containing the name and price of the product.
+     * @throws JMException If the metrics cannot be registered.
      */
-    StringIntPair fetchProductDetails(int id) {
-        return products.getDetails(id);
+    public void enableMetrics() throws JMException {
+        this.metrics = new CheckoutMetrics();
+        this.metrics.register();
+        this.admin = new MeteredAdmin(products, journal, metrics);
+        this.billCounterGuy = new MeteredBillCounterGuy(products, false, metrics);
+        this.billCounterGuy.setLiveSales(liveSales);
     }
 
     /**
-     * Adds an item to the bill with the specified ID and quantity.
+     * Loads the catalog from a price file or a catalog snapshot. A ".csv"
+     * file is imported in parallel; any other file is read as a snapshot.
+     * The barcodes of the catalog are then compiled for scanning.
      *
-     * @param id The ID of the item to add.
-     * @param qty The quantity of the item to add.
+     * @param catalogFile The price file or snapshot to load.
+     * @return The number of products loaded.
+     * @throws IOException If the file cannot be read or two products share a
+     * barcode.
      */
-    public void addItem(int id, int qty) {
-        // Fetch product details
-        this.itemName = fetchProductDetails(id).getStringValue();
-        this.price = fetchProductDetails(id).getIntValue();
-        this.price *= qty;
-        this.totalAmount += price;
-        this.itemId = id;
-        this.quantity = qty;
+    public int loadCatalog(Path catalogFile) throws IOException {
+        int loaded;
+        if (catalogFile.getFileName().toString().endsWith(".csv")) {
+            loaded = new CatalogImporter().importCsv(catalogFile, products);
+        } else {
+            loaded = CatalogSnapshot.load(catalogFile, products);
+        }
+        try {
+            products.compileBarcodes();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(catalogFile + ": " + e.getMessage());
+        }
+        return loaded;
+    }
 
-        // Add item to bill details list
-        billDetails.add(new BillFormat(id, quantity, price, itemName));
-        System.out.println("Added Item:\nItem ID: " + billDetails.get(billDetails.size() - 1).getItemId() + "\nItem Name: "
-                + billDetails.get(billDetails.size() - 1).getItemName() + "\nItem Qty: " + billDetails.get(billDetails.size() - 1).getQuantity() + "\nItem Price: "
-                + billDetails.get(billDetails.size() - 1).getPrice());
+    /**
+     * Saves the catalog to a snapshot file, which --catalog loads faster
+     * than the price file.
+     *
+     * @param snapshotFile The snapshot file to write.
+     * @return The number of products saved.
+     * @throws IOException If the file cannot be written.
+     */
+    public int saveSnapshot(Path snapshotFile) throws IOException {
+        return CatalogSnapshot.save(products, snapshotFile);
     }
 
     /**
-     * Modifies the quantity of an item in the bill.
+     * Appends every completed bill to an archive in the given directory.
      *
-     * @param id The ID of the item to modify.
-     * @param qty The new quantity of the item.
+     * @param archiveDirectory The directory holding the archive segments.
+     * @throws IOException If the archive cannot be opened.
      */
-    public void modifyItem(int id, int qty) {
-        for (BillFormat item : billDetails) {
-            if (item.getItemId() == id) {
-                this.totalAmount -= item.getPrice();
-                this.itemName = fetchProductDetails(id).getStringValue();
-                this.price = fetchProductDetails(id).getIntValue();
-                this.price *= qty;
-                this.totalAmount += price;
-                item = new BillFormat(id, qty, price, itemName);
-                System.out.println("Modified Item:\nItem ID: " + item.getItemId() + "\nItem Name: "
-                        + item.getItemName() + "\nItem Qty: " + item.getQuantity() + "\nItem Price: "
-                        + item.getPrice());
-            }
+    public void openArchive(Path archiveDirectory) throws IOException {
+        this.archive = new BillArchive(archiveDirectory);
+        this.billCounterGuy.setArchive(archive, 0);
+        if (journal != null) {
+            journal.syncWith(archive);
         }
     }
 
     /**
-     * Removes an item from the bill.
+     * Loads the promotions applied to the console bill and to the bills of
+     * lanes opened from now on.
      *
-     * @param id The ID of the item to remove.
+     * @param promotionsFile The promotions file to load.
+     * @return The number of promotions loaded.
+     * @throws IOException If the file cannot be read or a line is malformed.
      */
-    void removeItem(int id) {
-        for (BillFormat item : billDetails) {
-            if (item.getItemId() == id) {
-                totalAmount -= item.getPrice();
-                billDetails.remove(item);
-                System.out.println("Product ID: " + id + " has been removed!!");
-                return;
-            }
+    public int loadPromotions(Path promotionsFile) throws IOException {
+        this.promotions = Promotions.load(promotionsFile);
+        this.billCounterGuy.setPromotions(promotions);
+        if (lanes != null) {
+            lanes.setPromotions(promotions);
         }
-        System.out.println("Item not found!!");
+        return promotions.getPromotionCount();
     }
 
     /**
-     * Retrieves the total amount of the bill.
+     * Loads the tax rates, classes and product class assignments charged
+     * on the console bill and on the bills of lanes opened from now on. The
+     * assignments are kept by the tax table rather than the catalog, so
+     * they cover products listed later and survive catalog changes.
      *
-     * @return The total bill amount.
+     * @param taxFile The tax file to load.
+     * @return The number of tax rates loaded.
+     * @throws IOException If the file cannot be read or a line is malformed.
      */
-    public int getBillAmount() {
-        return this.totalAmount;
+    public int loadTaxes(Path taxFile) throws IOException {
+        this.taxTable = TaxTable.load(taxFile);
+        this.billCounterGuy.setTaxTable(taxTable);
+        if (lanes != null) {
+            lanes.setTaxTable(taxTable);
+        }
+        return taxTable.getRateCount();
     }
 
     /**
-     * Generates the bill with all the items and their details.
+     * Sets the address the terminal server and HTTP API listen on. Neither
+     * authenticates its clients, so they only listen on the loopback
+     * address unless another one is set.
      *
-     * @return The list of BillFormat objects representing the bill.
+     * @param bindAddress The address to listen on.
      */
-    public List<BillFormat> generateBill() {
-        return billDetails;
+    public void setBindAddress(InetAddress bindAddress) {
+        this.bindAddress = bindAddress;
     }
-}
-
-
-/**
- * The BillCounter class manages the bill counter operations for XYZ. It allows
- * both admins and bill counter guys to perform their respective operations.
- */
-public class BillCounter {
 
-    // Scanner object for taking user input
-    private final Scanner sc = new Scanner(System.in);
+    /**
+     * Starts serving the HTTP/JSON API for back-office tools in the
+     * background. Its bills are lanes next to those of the terminal server.
+     *
+     * @param port The port to listen on.
+     * @return The running API.
+     * @throws IOException If the port cannot be bound.
+     */
+    public HttpApi startHttpApi(int port) throws IOException {
+        HttpApi api = new HttpApi(lanes(), new InetSocketAddress(bindAddress, port));
+        api.start();
+        System.out.println("Serving the HTTP API on port " + api.getPort());
+        return api;
+    }
 
-    // Instances of Admin and BillCounterGuy classes
-    Admin admin;
-    BillCounterGuy billCounterGuy;
+    /**
+     * Retrieves the lanes remote terminals and HTTP bills are served as,
+     * creating them on first use over the shared catalog.
+     *
+     * @return The checkout lanes.
+     */
+    private CheckoutLanes lanes() {
+        if (lanes == null) {
+            lanes = new CheckoutLanes(products, false, metrics, journal);
+            lanes.setArchive(archive);
+            lanes.setLiveSales(liveSales);
+            lanes.setPromotions(promotions);
+            lanes.setTaxTable(taxTable);
+        }
+        return lanes;
+    }
 
-    // Instance of Products class for managing products
-    private final Products products = new Products();
+    /**
+     * Retrieves the printer bill receipts are handed to, starting it on first
+     * use.
+     *
+     * @return The receipt printer.
+     */
+    private ReceiptPrinter receiptPrinter() {
+        if (receiptPrinter == null) {
+            receiptPrinter = new ReceiptPrinter(System.out, ReceiptPrinter.DEFAULT_CAPACITY, metrics);
+        }
+        return receiptPrinter;
+    }
 
-    // Variables for storing user role and passwords
-    private int role;
-    private final int adminPassword = 1234;
-    private final int userPassword = 5678;
+    /**
+     * Serves lane terminals over TCP until the process is stopped. Every
+     * terminal is served as its own lane over the shared catalog, and
+     * completed bills are appended to the archive if one is open.
+     *
+     * @param port The port to listen on.
+     * @throws IOException If the port cannot be bound.
+     */
+    public void serve(int port) throws IOException {
+        try (TerminalServer server = new TerminalServer(lanes(), new InetSocketAddress(bindAddress, port))) {
+            System.out.println("Serving lane terminals on port " + server.getPort());
+            server.serve();
+        }
+    }
 
     /**
-     * Constructor for BillCounter class. Initializes instances of Admin and
-     * BillCounterGuy classes with the same Products instance.
+     * Prints the receipts still queued, then commits and closes the journal
+     * and the bill archive, if in use.
+     *
+     * @throws IOException If the journal or archive could not be written.
      */
-    public BillCounter() {
-        this.admin = new Admin(products); // Passing the same Products instance to Admin
-        this.billCounterGuy = new BillCounterGuy(products); // Passing the same Products instance to BillCounterGuy
+    public void close() throws IOException {
+        try {
+            if (receiptPrinter != null) {
+                receiptPrinter.close();
+            }
+        } finally {
+            try {
+                if (journal != null) {
+                    journal.close();
+                }
+            } finally {
+                if (archive != null) {
+                    archive.close();
+                }
+            }
+        }
     }
 
     /**
@@ -458,7 +2024,7 @@ public class BillCounter {
                            What Operation You Want to perform: (Choose a number)
                             1) Add Product Details\t 2) Remove Product Details
                             3) Clear All Product Details\t 4) Show All Products
-                            5) Exit\n
+                            5) Today's Sales Report\t 6) Exit\n
                            """);
             int option = sc.nextInt(); // Take user input for selected option
             sc.nextLine(); // Consume newline character for error purpose
@@ -473,8 +2039,7 @@ public class BillCounter {
                     int id = sc.nextInt();
                     sc.nextLine();
                     System.out.println("Enter the Price:");
-                    int price = sc.nextInt();
-                    sc.nextLine();
+                    long price = Money.parse(sc.nextLine());
                     admin.addProductDetails(id, name, price);
                     System.out.println("Product " + name + " added with ID " + id);
                 }
@@ -490,17 +2055,28 @@ public class BillCounter {
                     admin.clearAllProductDetails();
                     System.out.println("Deleted all the products!\n");
                 }
-                // Case for showing all products
+                // Case for showing all products, one page at a time
                 case 4 -> {
-                    HashMap<Integer, StringIntPair> productDetails = admin.ShowAllProducts();
-                    System.out.println("ID\tName\tPrice");
-                    for (int productId : productDetails.keySet()) {
-                        System.out.println(productId + "\t" + productDetails.get(productId).getStringValue()
-                                + "\t" + productDetails.get(productId).getIntValue());
+                    System.out.println("Sort by: 1) ID\t 2) Name\t 3) Price");
+                    int sortOption = sc.nextInt();
+                    sc.nextLine();
+                    if (sortOption < 1 || sortOption > 3) {
+                        System.out.println("Please select the given option number!");
+                    } else {
+                        showProducts(CatalogListing.Order.values()[sortOption - 1]);
                     }
                 }
-                // Case for exiting admin operations
+                // Case for showing the sales report of today
                 case 5 -> {
+                    printLiveSales();
+                    if (archive == null) {
+                        System.out.println("No bill archive is open.");
+                    } else {
+                        printSalesReport(new BillAnalytics(archive, ZoneId.systemDefault()).report(LocalDate.now()));
+                    }
+                }
+                // Case for exiting admin operations
+                case 6 -> {
                     this.role = -1;
                 }
                 // Default case for handling invalid option
@@ -511,6 +2087,124 @@ public class BillCounter {
         } catch (InputMismatchException e) {
             System.out.println("Retry! Please enter a valid input.");
             sc.nextLine(); // Consume invalid input
+        } catch (IOException e) {
+            System.out.println("Failed to print the product list: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Prints the running sales of the console bill and every lane, open
+     * bills included, with the products selling best so far.
+     */
+    private void printLiveSales() {
+        System.out.println("Live Sales: " + liveSales.getTotalUnits() + " units, "
+                + Money.format(liveSales.getTotalRevenue()));
+        LiveSales.Counters counters = liveSales.copy();
+        System.out.println("Live Top Sellers:\nID\tName\tUnits\tRevenue");
+        for (int position : counters.getTopSellers(10)) {
+            int id = counters.productIdAt(position);
+            StringLongPair details = products.getDetails(id);
+            System.out.println(id + "\t" + (details == null ? "" : details.getStringValue()) + "\t"
+                    + counters.unitsAt(position) + "\t" + Money.format(counters.revenueAt(position)));
+        }
+    }
+
+    /**
+     * Prints the revenue, top sellers, hourly sales and basket sizes of a
+     * sales report. The revenue of the bills and hours is what was charged;
+     * that of the top sellers is taken from their line prices.
+     *
+     * @param report The report to print.
+     */
+    private void printSalesReport(SalesReport report) {
+        System.out.println("Bills: " + report.getBillCount() + "\tLines: " + report.getLineCount()
+                + "\tRevenue: " + Money.format(report.getTotalRevenue()));
+        System.out.println("Top Sellers (before discounts and taxes):\nID\tName\tUnits\tRevenue");
+        NameDictionary names = archive.getNames();
+        for (int id : report.getTopSellers(10)) {
+            System.out.println(id + "\t" + names.decode(report.getNameCode(id)) + "\t" + report.getUnits(id)
+                    + "\t" + Money.format(report.getRevenue(id)));
+        }
+        System.out.println("Hourly Sales:\nHour\tBills\tRevenue");
+        long[] hourlyBills = report.getHourlyBills();
+        long[] hourlyRevenue = report.getHourlyRevenue();
+        for (int hour = 0; hour < 24; hour++) {
+            if (hourlyBills[hour] > 0) {
+                System.out.println(hour + "\t" + hourlyBills[hour] + "\t" + Money.format(hourlyRevenue[hour]));
+            }
+        }
+        System.out.println("Basket Sizes:\nLines\tBills");
+        long[] basketSizes = report.getBasketSizes();
+        for (int size = 1; size < basketSizes.length; size++) {
+            if (basketSizes[size] > 0) {
+                System.out.println((size == SalesReport.MAX_BASKET_SIZE ? size + "+" : size) + "\t" + basketSizes[size]);
+            }
+        }
+    }
+
+    /**
+     * Resolves a number entered at the bill counter, which is either a
+     * scanned barcode or a product ID. Barcodes are tried first since they
+     * are what the scanner sends.
+     *
+     * @param code The barcode or product ID.
+     * @return The product ID, or -1 if no product matches.
+     */
+    private int productIdOf(long code) {
+        int id = products.findByBarcode(code);
+        if (id < 0 && code >= 0 && code <= Integer.MAX_VALUE && products.isTheIdAvailable((int) code) == 1) {
+            id = (int) code;
+        }
+        return id;
+    }
+
+    /**
+     * Prints the catalog in the given order one page at a time, waiting for
+     * the user before each further page.
+     *
+     * @param order The order to list the products in.
+     * @throws IOException If the listing cannot be written.
+     */
+    private void showProducts(CatalogListing.Order order) throws IOException {
+        CatalogListing.Cursor cursor = null;
+        do {
+            long start = System.nanoTime();
+            CatalogListing.Page page = admin.listProducts(order, cursor, LISTING_PAGE_SIZE);
+            receiptRenderer.renderProducts(page, products.getNames()).writeTo(System.out);
+            if (metrics != null) {
+                metrics.record(CheckoutMetrics.Operation.PRINT_RECEIPT, start);
+            }
+            cursor = page.getNext();
+            if (cursor != null) {
+                System.out.println("Press Enter for the next page or q to stop:");
+                if (sc.nextLine().trim().equalsIgnoreCase("q")) {
+                    cursor = null;
+                }
+            }
+        } while (cursor != null);
+    }
+
+    /**
+     * Prints the products whose names start with the given words, falling
+     * back to a typo-tolerant search when nothing starts with them.
+     *
+     * @param query The name, or the start of it, as typed by the cashier.
+     */
+    private void searchProducts(String query) {
+        int[] ids = products.searchByPrefix(query, SEARCH_RESULTS);
+        if (ids.length == 0) {
+            ids = products.searchFuzzy(query, SEARCH_RESULTS);
+        }
+        if (ids.length == 0) {
+            System.out.println("No products match " + query);
+            return;
+        }
+        System.out.println("ID\tName\tPrice");
+        for (int id : ids) {
+            StringLongPair details = products.getDetails(id);
+            if (details != null) {
+                System.out.println(id + "\t" + details.getStringValue() + "\t" + Money.format(details.getLongValue()));
+            }
         }
     }
 
@@ -525,19 +2219,20 @@ public class BillCounter {
                            What Operation You Want to perform: (Choose a number)
                             1) Add Item to Bill\t 2) Modify Item in Bill
                             3) Remove Item from Bill\t 4) Show Bill Amount
-                            5) Generate Bill\t 6) Exit\n
+                            5) Generate Bill\t 6) Complete Bill
+                            7) Search Product by Name\t 8) Exit\n
                            """);
             int option = sc.nextInt();
             sc.nextLine();
 
             // Perform operation based on the selected option
             switch (option) {
-                // Case for adding item to bill
+                // Case for adding item to bill by ID or scanned barcode
                 case 1 -> {
-                    System.out.println("Enter the Product ID:");
-                    int id = sc.nextInt();
+                    System.out.println("Enter the Product ID or Barcode:");
+                    int id = productIdOf(sc.nextLong());
                     sc.nextLine();
-                    if (products.isTheIdAvailable(id) == 0) {
+                    if (id < 0 || billCounterGuy.isTheIdListed(id) == 0) {
                         System.out.println("Item not found!!");
                     } else {
                         System.out.println("Enter the Quantity:");
@@ -579,23 +2274,43 @@ public class BillCounter {
                 }
                 // Case for showing bill amount
                 case 4 -> {
-                    int billAmount = billCounterGuy.getBillAmount();
-                    System.out.println("Bill Amount: " + billAmount);
+                    long billAmount = billCounterGuy.getBillAmount();
+                    long discount = billCounterGuy.getDiscount();
+                    if (discount > 0) {
+                        System.out.println("Discount: " + Money.format(discount));
+                    }
+                    System.out.println("Bill Amount: " + Money.format(billAmount));
                 }
                 // Case for generating bill
                 case 5 -> {
-                    int billAmount = billCounterGuy.getBillAmount();
-                    List<BillFormat> bill = billCounterGuy.generateBill();
-                    System.out.println("Generated Bill:");
-                    System.out.println("itemId\titemName\tquantity\tprice");
-                    for (BillFormat item : bill) {
-                        System.out.println(item.getItemId() + "\t" + item.getItemName() + "\t"
-                                + item.getQuantity() + "\t" + item.getPrice());
+                    long billAmount = billCounterGuy.getBillAmount();
+                    BillLines bill = billCounterGuy.generateLines();
+                    receiptPrinter().print(bill, billCounterGuy.getNames(), billCounterGuy.getDiscount(),
+                            billCounterGuy.getTaxes(), billAmount);
+                }
+                // Case for completing the bill and starting the next one
+                case 6 -> {
+                    billCounterGuy.setReceiptPrinter(receiptPrinter());
+                    try {
+                        long billId = billCounterGuy.completeBill();
+                        if (billId > 0) {
+                            System.out.println("Bill " + billId + " archived. Ready for the next customer.");
+                        } else {
+                            System.out.println("Bill closed. Ready for the next customer.");
+                        }
+                    } catch (InterruptedIOException e) {
+                        System.out.println("Bill closed without a receipt: " + e.getMessage());
+                    } catch (IOException e) {
+                        System.out.println("Failed to archive the bill: " + e.getMessage());
                     }
-                    System.out.println("Bill Amount: " + billAmount);
+                }
+                // Case for looking up product IDs by name
+                case 7 -> {
+                    System.out.println("Enter the Product Name:");
+                    searchProducts(sc.nextLine());
                 }
                 // Case for exiting bill counter guy operations
-                case 6 -> {
+                case 8 -> {
                     this.role = -1;
                 }
                 // Default case for handling invalid option
@@ -606,6 +2321,8 @@ public class BillCounter {
         } catch (InputMismatchException e) {
             System.out.println("Retry! Please enter a valid input.");
             sc.nextLine(); // to Consume invalid input
+        } catch (IOException e) {
+            System.out.println("Failed to print the bill: " + e.getMessage());
         }
     }
 
@@ -616,11 +2333,104 @@ public class BillCounter {
      * or a bill counter guy and perform operations. Handles exceptions and
      * provides retry options for invalid inputs.
      *
-     * @param args The command-line arguments (not used in this program).
+     * @param args The command-line arguments. "--script [file]" replays a
+     * command script from the file, or from standard input when no file or
+     * "-" is given, instead of starting the interactive console.
+     * "--catalog file" loads a price file (.csv) or catalog snapshot first,
+     * and "--journal file" then recovers the catalog and bill from a journal
+     * file and records every later change in it. "--save-snapshot file"
+     * saves the loaded catalog to a snapshot file. "--archive directory"
+     * appends completed bills to a bill archive. "--promotions file" applies
+     * the promotions of a promotions file to every bill, and "--taxes file"
+     * charges the tax rates of a tax file once the catalog is loaded.
+     * "--metrics" publishes operation latencies over JMX. "--serve port"
+     * serves lane terminals and "--http port" the HTTP API, on the loopback
+     * address unless "--bind address" names another one.
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--script")) {
+            try {
+                ScriptReplay.replay(args.length > 1 ? args[1] : "-");
+            } catch (IOException e) {
+                System.out.println("Failed to replay script: " + e.getMessage());
+            }
+            return;
+        }
+
         Scanner sc = new Scanner(System.in);
         BillCounter billCounter = new BillCounter();
+        Path catalogFile = null;
+        Path journalFile = null;
+        Path snapshotFile = null;
+        Path archiveDirectory = null;
+        Path promotionsFile = null;
+        Path taxFile = null;
+        boolean metricsEnabled = false;
+        int servePort = -1;
+        int httpPort = -1;
+        String bindHost = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--catalog" -> catalogFile = i + 1 < args.length ? Path.of(args[++i]) : null;
+                case "--journal" -> journalFile = i + 1 < args.length ? Path.of(args[++i]) : null;
+                case "--save-snapshot" -> snapshotFile = i + 1 < args.length ? Path.of(args[++i]) : null;
+                case "--archive" -> archiveDirectory = i + 1 < args.length ? Path.of(args[++i]) : null;
+                case "--promotions" -> promotionsFile = i + 1 < args.length ? Path.of(args[++i]) : null;
+                case "--taxes" -> taxFile = i + 1 < args.length ? Path.of(args[++i]) : null;
+                case "--metrics" -> metricsEnabled = true;
+                case "--serve" -> servePort = i + 1 < args.length ? Integer.parseInt(args[++i]) : 0;
+                case "--http" -> httpPort = i + 1 < args.length ? Integer.parseInt(args[++i]) : 0;
+                case "--bind" -> bindHost = i + 1 < args.length ? args[++i] : null;
+                default -> System.out.println("Ignoring unknown option " + args[i]);
+            }
+        }
+        try {
+            if (metricsEnabled) {
+                billCounter.enableMetrics();
+            }
+            if (catalogFile != null) {
+                System.out.println("Loaded " + billCounter.loadCatalog(catalogFile) + " products");
+            }
+            if (promotionsFile != null) {
+                System.out.println("Loaded " + billCounter.loadPromotions(promotionsFile) + " promotions");
+            }
+            if (archiveDirectory != null) {
+                billCounter.openArchive(archiveDirectory);
+            }
+            if (journalFile != null) {
+                billCounter.openJournal(journalFile);
+            }
+            if (snapshotFile != null) {
+                System.out.println("Saved " + billCounter.saveSnapshot(snapshotFile) + " products to " + snapshotFile);
+            }
+            if (taxFile != null) {
+                System.out.println("Loaded " + billCounter.loadTaxes(taxFile) + " tax rates");
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    billCounter.close();
+                } catch (IOException e) {
+                    System.out.println("Failed to close: " + e.getMessage());
+                }
+            }));
+            if (bindHost != null) {
+                billCounter.setBindAddress(InetAddress.getByName(bindHost));
+            }
+            if (httpPort >= 0) {
+                billCounter.startHttpApi(httpPort);
+            }
+            if (servePort >= 0) {
+                billCounter.serve(servePort);
+                return;
+            }
+            if (httpPort >= 0) {
+                // The HTTP server keeps the process running
+                return;
+            }
+        } catch (IOException | JMException e) {
+            System.out.println("Failed to start: " + e.getMessage());
+            return;
+        }
 
         // Infinite loop for user interaction
         while (true) {
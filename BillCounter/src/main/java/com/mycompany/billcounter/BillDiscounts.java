@@ -0,0 +1,331 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+
+/**
+ * Running discount of one bill under a set of promotions. The bill reports
+ * the exact change of every mutation, and only the promotions touching the
+ * changed product are re-evaluated: a multi-buy from the running quantity
+ * and amount of its product, a percentage by swapping the share of the old
+ * amount for that of the new one, and a bundle from its few members. The
+ * cost of a scan therefore depends on the promotions of the scanned product,
+ * not on the number of lines on the bill or of promotions in the set.
+ *
+ * The unit price of a product is taken as its amount on the bill divided by
+ * its quantity; since a bill reads one catalog version, the lines of a
+ * product normally share one unit price.
+ *
+ * The discount is also allotted to the products it was granted on: a
+ * multi-buy or percentage to its own product, and a bundle to its members in
+ * proportion to their unit prices. Since promotions stack, the discount
+ * taken off each product is its allotment capped at its amount on the bill,
+ * so no product is ever charged below zero, and the discount of the bill is
+ * the sum of those capped discounts. They are also taken off the taxable
+ * amounts of the products. Like the bill it belongs to, a BillDiscounts must
+ * only be used by one thread at a time.
+ */
+class BillDiscounts {
+
+    // Promotions applied to the bill
+    private final Promotions promotions;
+
+    // Quantity of each promoted product on the bill, by product number
+    private final long[] quantities;
+
+    // Amount of each promoted product on the bill, by product number
+    private final long[] amounts;
+
+    // Whether each product number is listed in touched
+    private final boolean[] isTouched;
+
+    // Product numbers changed since the bill was cleared
+    private final int[] touched;
+
+    // Number of entries in touched
+    private int touchedCount;
+
+    // Current discount of each promotion, by promotion number
+    private final long[] discounts;
+
+    // Sum of the discounts taken off every product
+    private long discount;
+
+    // Product ID of each product number listed in touched
+    private final int[] productIds;
+
+    // Discount allotted to each product, by product number
+    private final long[] productDiscounts;
+
+    // Discount taken off each product: its allotment capped at its amount,
+    // by product number
+    private final long[] takenDiscounts;
+
+    // Discount a bundle allots to each of its members, by member index
+    private final long[] memberDiscounts;
+
+    // Taxes the allotted discounts are taken off, or null
+    private BillTaxes taxes;
+
+    /**
+     * Constructs a BillDiscounts for an empty bill.
+     *
+     * @param promotions The promotions to apply.
+     */
+    public BillDiscounts(Promotions promotions) {
+        this.promotions = promotions;
+        int productCount = promotions.getProductCount();
+        this.quantities = new long[productCount];
+        this.amounts = new long[productCount];
+        this.isTouched = new boolean[productCount];
+        this.touched = new int[productCount];
+        this.discounts = new long[promotions.getPromotionCount()];
+        this.productIds = new int[productCount];
+        this.productDiscounts = new long[productCount];
+        this.takenDiscounts = new long[productCount];
+        this.memberDiscounts = new long[promotions.getMemberCount()];
+    }
+
+    /**
+     * Retrieves the promotions applied to the bill.
+     *
+     * @return The promotions.
+     */
+    public Promotions getPromotions() {
+        return promotions;
+    }
+
+    /**
+     * Starts taking the discount allotted to every product off its taxable
+     * amount in a set of taxes. The discounts already allotted are moved
+     * from the previous taxes, if any, to the new ones.
+     *
+     * @param taxes The taxes to take the discounts off, or null to stop.
+     */
+    public void setTaxes(BillTaxes taxes) {
+        for (int t = 0; t < touchedCount; t++) {
+            int productNo = touched[t];
+            long taken = takenDiscounts[productNo];
+            if (taken == 0) {
+                continue;
+            }
+            if (this.taxes != null) {
+                this.taxes.record(productIds[productNo], taken);
+            }
+            if (taxes != null) {
+                taxes.record(productIds[productNo], -taken);
+            }
+        }
+        this.taxes = taxes;
+    }
+
+    /**
+     * Applies the change made by one bill mutation to a product,
+     * re-evaluates the promotions the product takes part in and caps the
+     * discounts of the products they touch at their new amounts.
+     *
+     * @param productId The product ID.
+     * @param quantityDelta The change in quantity.
+     * @param amountDelta The change in amount, in minor currency units.
+     */
+    public void record(int productId, long quantityDelta, long amountDelta) {
+        int productNo = promotions.productNo(productId);
+        if (productNo == IntIntMap.MISSING) {
+            return;
+        }
+        if (!isTouched[productNo]) {
+            isTouched[productNo] = true;
+            touched[touchedCount++] = productNo;
+            productIds[productNo] = productId;
+        }
+        long oldAmount = amounts[productNo];
+        quantities[productNo] += quantityDelta;
+        amounts[productNo] = Money.plus(oldAmount, amountDelta);
+        for (int i = promotions.promotionsFrom(productNo), end = promotions.promotionsTo(productNo); i < end; i++) {
+            int promotion = promotions.promotionAt(i);
+            long before = discounts[promotion];
+            long after = switch (promotions.kindOf(promotion)) {
+                case MULTI_BUY -> multiBuyDiscount(promotion, productNo);
+                case PERCENT_OFF -> before - share(promotion, oldAmount) + share(promotion, amounts[productNo]);
+                case BUNDLE -> bundleDiscount(promotion);
+            };
+            discounts[promotion] = after;
+            if (promotions.kindOf(promotion) == Promotions.Kind.BUNDLE) {
+                allotBundle(promotion, after);
+            } else {
+                allot(productNo, after - before);
+            }
+        }
+        // The amount changed even if no allotment did
+        take(productNo);
+    }
+
+    /**
+     * Retrieves the discount of the bill.
+     *
+     * @return The sum of the discounts taken off every product, in minor
+     * currency units.
+     */
+    public long getDiscount() {
+        return discount;
+    }
+
+    /**
+     * Resets the discount for a new bill, touching only the products and
+     * promotions the last bill used.
+     */
+    public void clear() {
+        for (int t = 0; t < touchedCount; t++) {
+            int productNo = touched[t];
+            isTouched[productNo] = false;
+            quantities[productNo] = 0;
+            amounts[productNo] = 0;
+            productDiscounts[productNo] = 0;
+            takenDiscounts[productNo] = 0;
+            for (int i = promotions.promotionsFrom(productNo), end = promotions.promotionsTo(productNo); i < end; i++) {
+                int promotion = promotions.promotionAt(i);
+                discounts[promotion] = 0;
+                Arrays.fill(memberDiscounts, promotions.membersFrom(promotion), promotions.membersTo(promotion), 0);
+            }
+        }
+        touchedCount = 0;
+        discount = 0;
+    }
+
+    /**
+     * Changes the discount allotted to a product and updates the discount
+     * taken off it.
+     *
+     * @param productNo The product number.
+     * @param change The change in discount.
+     */
+    private void allot(int productNo, long change) {
+        if (change == 0) {
+            return;
+        }
+        productDiscounts[productNo] += change;
+        take(productNo);
+    }
+
+    /**
+     * Caps the discount allotted to a product at its amount on the bill and
+     * takes the change in the capped discount off the bill discount and the
+     * taxable amount of the product.
+     *
+     * @param productNo The product number.
+     */
+    private void take(int productNo) {
+        long taken = Math.min(productDiscounts[productNo], Math.max(amounts[productNo], 0));
+        long change = taken - takenDiscounts[productNo];
+        if (change == 0) {
+            return;
+        }
+        takenDiscounts[productNo] = taken;
+        discount += change;
+        if (taxes != null) {
+            taxes.record(productIds[productNo], -change);
+        }
+    }
+
+    /**
+     * Allots the discount of a bundle to its members. Each member takes the
+     * part of the bundle price its unit price stands for off its unit price
+     * for every set, and the last member takes what is left, so the parts
+     * add up to the discount exactly.
+     *
+     * @param promotion The promotion number.
+     * @param bundleDiscount The current discount of the bundle.
+     */
+    private void allotBundle(int promotion, long bundleDiscount) {
+        int from = promotions.membersFrom(promotion);
+        int to = promotions.membersTo(promotion);
+        long sets = 0;
+        long unitPrices = 0;
+        if (bundleDiscount != 0) {
+            sets = Long.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                int member = promotions.memberAt(i);
+                sets = Math.min(sets, quantities[member]);
+                unitPrices += amounts[member] / quantities[member];
+            }
+        }
+        long left = bundleDiscount;
+        for (int i = from; i < to; i++) {
+            int member = promotions.memberAt(i);
+            long part = 0;
+            if (bundleDiscount != 0) {
+                if (i == to - 1) {
+                    part = left;
+                } else {
+                    long unitPrice = amounts[member] / quantities[member];
+                    long priceShare = Money.scale(promotions.priceOf(promotion), unitPrice, unitPrices);
+                    part = Math.multiplyExact(sets, unitPrice - priceShare);
+                    left -= part;
+                }
+            }
+            allot(member, part - memberDiscounts[i]);
+            memberDiscounts[i] = part;
+        }
+    }
+
+    /**
+     * Computes the discount of a multi-buy: every complete group of units
+     * costs the promotion price instead of the units at their unit price.
+     *
+     * @param promotion The promotion number.
+     * @param productNo The number of its product.
+     * @return The discount.
+     */
+    private long multiBuyDiscount(int promotion, int productNo) {
+        int units = promotions.countOf(promotion);
+        long quantity = quantities[productNo];
+        if (quantity < units) {
+            return 0;
+        }
+        long saving = Math.multiplyExact(amounts[productNo] / quantity, (long) units) - promotions.priceOf(promotion);
+        return saving <= 0 ? 0 : Math.multiplyExact(quantity / units, saving);
+    }
+
+    /**
+     * Computes the share a percentage takes off an amount, rounded down.
+     * The whole multiples of Promotions.WHOLE are shared apart from the
+     * remainder, so no amount a bill can hold overflows.
+     *
+     * @param promotion The promotion number.
+     * @param amount The amount of one product.
+     * @return The share.
+     */
+    private long share(int promotion, long amount) {
+        if (amount <= 0) {
+            return 0;
+        }
+        long percent = promotions.countOf(promotion);
+        return amount / Promotions.WHOLE * percent + amount % Promotions.WHOLE * percent / Promotions.WHOLE;
+    }
+
+    /**
+     * Computes the discount of a bundle: every complete set of one unit of
+     * each member costs the promotion price instead of the units at their
+     * unit prices.
+     *
+     * @param promotion The promotion number.
+     * @return The discount.
+     */
+    private long bundleDiscount(int promotion) {
+        long sets = Long.MAX_VALUE;
+        long unitPrices = 0;
+        for (int i = promotions.membersFrom(promotion), end = promotions.membersTo(promotion); i < end; i++) {
+            int member = promotions.memberAt(i);
+            long quantity = quantities[member];
+            if (quantity <= 0) {
+                return 0;
+            }
+            sets = Math.min(sets, quantity);
+            unitPrices = Money.plus(unitPrices, amounts[member] / quantity);
+        }
+        long saving = unitPrices - promotions.priceOf(promotion);
+        return saving <= 0 ? 0 : Math.multiplyExact(sets, saving);
+    }
+}
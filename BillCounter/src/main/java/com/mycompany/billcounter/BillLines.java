@@ -0,0 +1,276 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar storage for the lines of one bill. Item IDs, quantities, prices
+ * and name codes are kept in parallel primitive arrays, so a bill is a
+ * handful of arrays however many lines it has, and totals and rendering walk
+ * contiguous memory.
+ *
+ * A removed line leaves a hole, marked by a HOLE name code, until the lines
+ * are compacted. Positions stay stable between compactions.
+ */
+class BillLines {
+
+    // Name code marking a removed line
+    static final int HOLE = -1;
+
+    // Item ID of each line
+    private int[] itemIds;
+
+    // Quantity of each line
+    private int[] quantities;
+
+    // Price of the quantity of each line, in minor currency units
+    private long[] prices;
+
+    // Dictionary code of the item name of each line, or HOLE
+    private int[] nameCodes;
+
+    // Number of positions in use, including holes
+    private int size;
+
+    // Number of holes
+    private int holes;
+
+    /**
+     * Constructs empty BillLines.
+     */
+    public BillLines() {
+        this(16);
+    }
+
+    /**
+     * Constructs empty BillLines with room for the expected number of lines.
+     *
+     * @param expectedLines The number of lines expected on the bill.
+     */
+    public BillLines(int expectedLines) {
+        int capacity = Math.max(1, expectedLines);
+        itemIds = new int[capacity];
+        quantities = new int[capacity];
+        prices = new long[capacity];
+        nameCodes = new int[capacity];
+    }
+
+    /**
+     * Grows the arrays so the given number of positions fit.
+     *
+     * @param capacity The number of positions needed.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > itemIds.length) {
+            int grown = Math.max(capacity, itemIds.length * 2);
+            itemIds = Arrays.copyOf(itemIds, grown);
+            quantities = Arrays.copyOf(quantities, grown);
+            prices = Arrays.copyOf(prices, grown);
+            nameCodes = Arrays.copyOf(nameCodes, grown);
+        }
+    }
+
+    /**
+     * Appends a line.
+     *
+     * @param itemId The ID of the item.
+     * @param quantity The quantity of the item.
+     * @param price The price of the quantity.
+     * @param nameCode The dictionary code of the item name.
+     * @return The position of the new line.
+     */
+    public int append(int itemId, int quantity, long price, int nameCode) {
+        ensureCapacity(size + 1);
+        int position = size++;
+        itemIds[position] = itemId;
+        quantities[position] = quantity;
+        prices[position] = price;
+        nameCodes[position] = nameCode;
+        return position;
+    }
+
+    /**
+     * Replaces the quantity, price and name of a line, keeping its item ID.
+     *
+     * @param position The position of the line.
+     * @param quantity The new quantity.
+     * @param price The new price of the quantity.
+     * @param nameCode The new dictionary code of the item name.
+     */
+    public void set(int position, int quantity, long price, int nameCode) {
+        quantities[position] = quantity;
+        prices[position] = price;
+        nameCodes[position] = nameCode;
+    }
+
+    /**
+     * Removes a line by leaving a hole in its place.
+     *
+     * @param position The position of the line.
+     */
+    public void remove(int position) {
+        nameCodes[position] = HOLE;
+        holes++;
+    }
+
+    /**
+     * Closes every hole, keeping the order of the remaining lines.
+     */
+    public void compact() {
+        int live = 0;
+        for (int i = 0; i < size; i++) {
+            if (nameCodes[i] != HOLE) {
+                itemIds[live] = itemIds[i];
+                quantities[live] = quantities[i];
+                prices[live] = prices[i];
+                nameCodes[live] = nameCodes[i];
+                live++;
+            }
+        }
+        size = live;
+        holes = 0;
+    }
+
+    /**
+     * Copies the lines that are not holes, in order, into new storage sized
+     * to fit, so the copy stays as it is while these lines change.
+     *
+     * @return The compacted copy.
+     */
+    public BillLines copy() {
+        BillLines copy = new BillLines(size - holes);
+        for (int i = 0; i < size; i++) {
+            if (nameCodes[i] != HOLE) {
+                copy.append(itemIds[i], quantities[i], prices[i], nameCodes[i]);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Removes every line while keeping the allocated arrays.
+     */
+    public void clear() {
+        size = 0;
+        holes = 0;
+    }
+
+    /**
+     * Retrieves the number of positions in use, including holes.
+     *
+     * @return The number of positions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Retrieves the number of holes left by removed lines.
+     *
+     * @return The number of holes.
+     */
+    public int holes() {
+        return holes;
+    }
+
+    /**
+     * Checks whether the line at a position was removed.
+     *
+     * @param position The position.
+     * @return true if the position holds a hole.
+     */
+    public boolean isHole(int position) {
+        return nameCodes[position] == HOLE;
+    }
+
+    /**
+     * Retrieves the item ID of a line.
+     *
+     * @param position The position of the line.
+     * @return The item ID.
+     */
+    public int itemIdAt(int position) {
+        return itemIds[position];
+    }
+
+    /**
+     * Retrieves the quantity of a line.
+     *
+     * @param position The position of the line.
+     * @return The quantity.
+     */
+    public int quantityAt(int position) {
+        return quantities[position];
+    }
+
+    /**
+     * Retrieves the price of a line.
+     *
+     * @param position The position of the line.
+     * @return The price, in minor currency units.
+     */
+    public long priceAt(int position) {
+        return prices[position];
+    }
+
+    /**
+     * Retrieves the name code of a line.
+     *
+     * @param position The position of the line.
+     * @return The dictionary code of the item name, or HOLE.
+     */
+    public int nameCodeAt(int position) {
+        return nameCodes[position];
+    }
+
+    /**
+     * Adds up the prices of every line that is not a hole.
+     *
+     * @return The total, in minor currency units.
+     * @throws ArithmeticException If the total overflows.
+     */
+    public long total() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            if (nameCodes[i] != HOLE) {
+                total = Money.plus(total, prices[i]);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Retrieves a read-only list view of the lines. Each element is a
+     * BillFormat built on access, and the view reflects later changes. The
+     * lines must be compacted first, since holes are not skipped.
+     *
+     * @return The list view.
+     */
+    public List<BillFormat> asList() {
+        return new LineList();
+    }
+
+    /**
+     * Read-only list view that builds a BillFormat for each accessed line.
+     */
+    private final class LineList extends AbstractList<BillFormat> implements RandomAccess {
+
+        @Override
+        public BillFormat get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return new BillFormat(itemIds[index], quantities[index], prices[index], nameCodes[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
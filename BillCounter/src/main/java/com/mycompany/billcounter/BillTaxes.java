@@ -0,0 +1,186 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+
+/**
+ * Running taxes of one bill under a tax table. The bill reports the change
+ * in amount of every mutation, which is added to the taxable amount of each
+ * rate the product's class charges; the tax of those rates is then worked
+ * out again from their running amounts, and the per-rate and bill totals
+ * are adjusted by the difference. Reading the taxes of the bill therefore
+ * never goes over its lines.
+ *
+ * The tax class of a product is read from the tax table, which never
+ * changes, so removing a line always takes its amount off the rates it was
+ * added to.
+ * Taxes are charged on the line amounts less the promotion discount
+ * allotted to each product, which the bill's BillDiscounts reports here as
+ * it changes, so a customer pays tax on what they are charged.
+ * Like the bill it belongs to, a BillTaxes must only be used by one thread
+ * at a time.
+ */
+class BillTaxes {
+
+    // Tax rates and classes applied to the bill
+    private final TaxTable table;
+
+    // Running taxable amount of each entry of the table
+    private final long[] amounts;
+
+    // Tax of each entry of the table on its running amount
+    private final long[] entryTaxes;
+
+    // Tax of each rate over every class, by rate number
+    private final long[] rateTaxes;
+
+    // Sum of the taxes of the exclusive rates, added to the bill amount
+    private long exclusiveTax;
+
+    // Sum of the taxes of the inclusive rates, contained in the bill amount
+    private long inclusiveTax;
+
+    /**
+     * Constructs a BillTaxes for an empty bill.
+     *
+     * @param table The tax rates and classes to apply.
+     */
+    public BillTaxes(TaxTable table) {
+        this.table = table;
+        this.amounts = new long[table.getEntryCount()];
+        this.entryTaxes = new long[table.getEntryCount()];
+        this.rateTaxes = new long[table.getRateCount()];
+    }
+
+    /**
+     * Retrieves the tax table applied to the bill.
+     *
+     * @return The tax table.
+     */
+    public TaxTable getTable() {
+        return table;
+    }
+
+    /**
+     * Applies a change in the taxable amount of a product to its rates: the
+     * change in amount made by one bill mutation, or the negated change in
+     * the discount allotted to the product.
+     *
+     * @param productId The product ID.
+     * @param amountDelta The change in amount, in minor currency units.
+     */
+    public void record(int productId, long amountDelta) {
+        if (amountDelta == 0) {
+            return;
+        }
+        int taxClass = table.classOf(productId);
+        for (int entry = table.entriesFrom(taxClass), end = table.entriesTo(taxClass); entry < end; entry++) {
+            amounts[entry] = Money.plus(amounts[entry], amountDelta);
+            long tax = table.taxOf(entry, amounts[entry]);
+            long change = tax - entryTaxes[entry];
+            if (change == 0) {
+                continue;
+            }
+            entryTaxes[entry] = tax;
+            int rate = table.rateOf(entry);
+            rateTaxes[rate] += change;
+            if (table.getRate(rate).inclusive) {
+                inclusiveTax += change;
+            } else {
+                exclusiveTax += change;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the tax added on top of the line amounts.
+     *
+     * @return The sum of the exclusive taxes, in minor currency units.
+     */
+    public long getExclusiveTax() {
+        return exclusiveTax;
+    }
+
+    /**
+     * Retrieves the tax contained in the line amounts.
+     *
+     * @return The sum of the inclusive taxes, in minor currency units.
+     */
+    public long getInclusiveTax() {
+        return inclusiveTax;
+    }
+
+    /**
+     * Copies the current tax of every rate, for a receipt.
+     *
+     * @return The tax totals.
+     */
+    public Totals totals() {
+        return new Totals(table, rateTaxes.clone());
+    }
+
+    /**
+     * Resets the taxes for a new bill.
+     */
+    public void clear() {
+        Arrays.fill(amounts, 0);
+        Arrays.fill(entryTaxes, 0);
+        Arrays.fill(rateTaxes, 0);
+        exclusiveTax = 0;
+        inclusiveTax = 0;
+    }
+
+    /**
+     * Immutable tax of every rate of a bill at one moment.
+     */
+    static final class Totals {
+
+        // Tax rates the totals are for
+        private final TaxTable table;
+
+        // Tax of each rate, by rate number
+        private final long[] taxes;
+
+        /**
+         * Constructs Totals.
+         *
+         * @param table The tax table.
+         * @param taxes The tax of each rate, owned by these totals.
+         */
+        Totals(TaxTable table, long[] taxes) {
+            this.table = table;
+            this.taxes = taxes;
+        }
+
+        /**
+         * Retrieves the number of rates.
+         *
+         * @return The rate count.
+         */
+        public int getRateCount() {
+            return taxes.length;
+        }
+
+        /**
+         * Retrieves a rate.
+         *
+         * @param rate The rate number.
+         * @return The rate.
+         */
+        public TaxTable.Rate getRate(int rate) {
+            return table.getRate(rate);
+        }
+
+        /**
+         * Retrieves the tax of a rate.
+         *
+         * @param rate The rate number.
+         * @return The tax, in minor currency units.
+         */
+        public long getTax(int rate) {
+            return taxes[rate];
+        }
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk loads a price file of "id,name,price" lines into Products, with prices
+ * written as decimal amounts such as 12.50. The file is memory-mapped and
+ * split into chunks at line boundaries, the chunks are parsed in parallel
+ * into primitive arrays, and the results are added to the catalog in one
+ * batch. Names may contain commas: the name is everything between the first
+ * and the last comma of a line, with surrounding blanks and double quotes
+ * removed. A first line that does not start with a number
+ * is treated as a header and skipped.
+ *
+ * A header whose second column is named "barcode" announces files of
+ * "id,barcode,name,price" lines, where the barcode is an EAN or UPC code of
+ * up to 18 digits, or empty for products without one. The name then starts
+ * after the second comma.
+ */
+class CatalogImporter {
+
+    // Largest chunk mapped at once, well under the 2 GB mapping limit
+    private static final long MAX_CHUNK_SIZE = 1L << 28;
+
+    // Number of chunks parsed in parallel
+    private final int parallelism;
+
+    /**
+     * Constructs a CatalogImporter using every available processor.
+     */
+    public CatalogImporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a CatalogImporter with the specified number of chunks.
+     *
+     * @param parallelism The number of chunks to split the file into.
+     */
+    public CatalogImporter(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Imports every product of a price file into the catalog.
+     *
+     * @param csvFile The price file.
+     * @param products The catalog to add the products to.
+     * @return The number of products imported.
+     * @throws IOException If the file cannot be read or a line is malformed.
+     */
+    public int importCsv(Path csvFile, Products products) throws IOException {
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size);
+            boolean withBarcodes = hasBarcodeColumn(channel);
+            List<Chunk> chunks;
+            try {
+                chunks = IntStream.range(0, bounds.length - 1).parallel()
+                        .mapToObj(i -> parseChunk(channel, bounds[i], bounds[i + 1], withBarcodes))
+                        .toList();
+            } catch (MalformedLineException e) {
+                throw new IOException(csvFile + ": " + e.getMessage());
+            }
+            int imported = 0;
+            for (Chunk chunk : chunks) {
+                products.setAllDetails(chunk.ids, chunk.names, chunk.prices, chunk.barcodes, chunk.count);
+                imported += chunk.count;
+            }
+            return imported;
+        }
+    }
+
+    /**
+     * Checks whether the file starts with a header naming a barcode column
+     * second.
+     *
+     * @param channel The channel of the file.
+     * @return true if the lines carry a barcode after the ID.
+     * @throws IOException If the file cannot be read.
+     */
+    private static boolean hasBarcodeColumn(FileChannel channel) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        channel.read(window, 0);
+        String start = new String(window.array(), 0, window.position(), StandardCharsets.UTF_8);
+        int lineEnd = start.indexOf('\n');
+        String[] columns = (lineEnd < 0 ? start : start.substring(0, lineEnd)).split(",");
+        String first = columns[0].trim();
+        boolean header = !first.isEmpty() && first.charAt(0) != '-'
+                && (first.charAt(0) < '0' || first.charAt(0) > '9');
+        return header && columns.length > 2 && columns[1].trim().equalsIgnoreCase("barcode");
+    }
+
+    /**
+     * Splits the file into chunks that each start at the beginning of a line.
+     *
+     * @param channel The channel of the file.
+     * @param size The size of the file.
+     * @return The chunk boundaries, starting with 0 and ending with size.
+     * @throws IOException If the file cannot be read.
+     */
+    private long[] chunkBounds(FileChannel channel, long size) throws IOException {
+        int count = (int) Math.max(parallelism, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long[] bounds = new long[count + 1];
+        ByteBuffer window = ByteBuffer.allocate(4096);
+        for (int i = 1; i < count; i++) {
+            long bound = Math.max(bounds[i - 1], size * i / count);
+            // Move the boundary just past the next line break
+            search:
+            while (bound < size) {
+                window.clear();
+                int read = channel.read(window, bound);
+                if (read <= 0) {
+                    bound = size;
+                    break;
+                }
+                for (int j = 0; j < read; j++) {
+                    if (window.get(j) == '\n') {
+                        bound += j + 1;
+                        break search;
+                    }
+                }
+                bound += read;
+            }
+            bounds[i] = Math.min(bound, size);
+        }
+        bounds[count] = size;
+        return bounds;
+    }
+
+    /**
+     * Parses every line of one chunk.
+     *
+     * @param channel The channel of the file.
+     * @param start The offset of the first line of the chunk.
+     * @param end The offset just past the chunk.
+     * @param withBarcodes Whether the lines carry a barcode after the ID.
+     * @return The parsed products.
+     */
+    private static Chunk parseChunk(FileChannel channel, long start, long end, boolean withBarcodes) {
+        Chunk chunk = new Chunk((int) Math.max(16, (end - start) / 24), withBarcodes);
+        if (end <= start) {
+            return chunk;
+        }
+        MappedByteBuffer data;
+        try {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new MalformedLineException("cannot map offset " + start + ": " + e.getMessage());
+        }
+        int limit = data.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && data.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            parseLine(data, lineStart, lineEnd, start == 0 && lineStart == 0, chunk, start, withBarcodes);
+            lineStart = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    /**
+     * Parses one "id,name,price" or "id,barcode,name,price" line into the
+     * chunk.
+     *
+     * @param data The mapped chunk.
+     * @param from The offset of the line in the chunk.
+     * @param to The offset of the line break, or the end of the chunk.
+     * @param firstLine Whether this is the first line of the file.
+     * @param chunk The chunk to add the product to.
+     * @param base The file offset of the chunk, for error messages.
+     * @param withBarcodes Whether the line carries a barcode after the ID.
+     */
+    private static void parseLine(ByteBuffer data, int from, int to, boolean firstLine, Chunk chunk, long base,
+            boolean withBarcodes) {
+        while (to > from && data.get(to - 1) <= ' ') {
+            to--;
+        }
+        while (from < to && data.get(from) <= ' ') {
+            from++;
+        }
+        if (from == to) {
+            return;
+        }
+        byte first = data.get(from);
+        if (firstLine && first != '-' && (first < '0' || first > '9')) {
+            return; // Header line
+        }
+        int firstComma = from;
+        while (firstComma < to && data.get(firstComma) != ',') {
+            firstComma++;
+        }
+        int lastComma = to - 1;
+        while (lastComma > firstComma && data.get(lastComma) != ',') {
+            lastComma--;
+        }
+        if (lastComma <= firstComma) {
+            throw new MalformedLineException("malformed line at offset " + (base + from));
+        }
+        int id = parseInt(data, from, firstComma, base);
+        long barcode = ProductTable.NO_BARCODE;
+        if (withBarcodes) {
+            int barcodeStart = firstComma + 1;
+            firstComma = barcodeStart;
+            while (firstComma < lastComma && data.get(firstComma) != ',') {
+                firstComma++;
+            }
+            if (firstComma == lastComma) {
+                throw new MalformedLineException("malformed line at offset " + (base + from));
+            }
+            barcode = parseBarcode(data, barcodeStart, firstComma, base);
+        }
+        long price;
+        try {
+            price = Money.parse(data, lastComma + 1, to);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new MalformedLineException("invalid price at offset " + (base + lastComma + 1));
+        }
+        int nameFrom = firstComma + 1;
+        int nameTo = lastComma;
+        while (nameFrom < nameTo && data.get(nameFrom) <= ' ') {
+            nameFrom++;
+        }
+        while (nameTo > nameFrom && data.get(nameTo - 1) <= ' ') {
+            nameTo--;
+        }
+        if (nameTo - nameFrom >= 2 && data.get(nameFrom) == '"' && data.get(nameTo - 1) == '"') {
+            nameFrom++;
+            nameTo--;
+        }
+        byte[] name = new byte[nameTo - nameFrom];
+        data.get(nameFrom, name);
+        chunk.add(id, new String(name, StandardCharsets.UTF_8), price, barcode);
+    }
+
+    /**
+     * Parses a decimal integer field, ignoring surrounding blanks.
+     *
+     * @param data The mapped chunk.
+     * @param from The offset of the field.
+     * @param to The offset just past the field.
+     * @param base The file offset of the chunk, for error messages.
+     * @return The parsed value.
+     */
+    private static int parseInt(ByteBuffer data, int from, int to, long base) {
+        while (from < to && data.get(from) <= ' ') {
+            from++;
+        }
+        while (to > from && data.get(to - 1) <= ' ') {
+            to--;
+        }
+        boolean negative = from < to && data.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            throw new MalformedLineException("missing number at offset " + (base + from));
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            byte c = data.get(i);
+            if (c < '0' || c > '9' || value > Integer.MAX_VALUE) {
+                throw new MalformedLineException("invalid number at offset " + (base + from));
+            }
+            value = value * 10 + (c - '0');
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new MalformedLineException("invalid number at offset " + (base + from));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a barcode field of up to 18 digits, ignoring surrounding
+     * blanks. An empty field stands for a product without a barcode.
+     *
+     * @param data The mapped chunk.
+     * @param from The offset of the field.
+     * @param to The offset just past the field.
+     * @param base The file offset of the chunk, for error messages.
+     * @return The barcode, or ProductTable.NO_BARCODE.
+     */
+    private static long parseBarcode(ByteBuffer data, int from, int to, long base) {
+        while (from < to && data.get(from) <= ' ') {
+            from++;
+        }
+        while (to > from && data.get(to - 1) <= ' ') {
+            to--;
+        }
+        if (to - from > 18) {
+            throw new MalformedLineException("invalid barcode at offset " + (base + from));
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            byte c = data.get(i);
+            if (c < '0' || c > '9') {
+                throw new MalformedLineException("invalid barcode at offset " + (base + from));
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Products parsed from one chunk, held in growable parallel arrays.
+     */
+    private static final class Chunk {
+
+        // Parsed product IDs
+        int[] ids;
+
+        // Parsed product names, parallel to ids
+        String[] names;
+
+        // Parsed product prices, parallel to ids
+        long[] prices;
+
+        // Parsed barcodes, parallel to ids, or null if the file has none
+        long[] barcodes;
+
+        // Number of parsed products
+        int count;
+
+        /**
+         * Constructs an empty Chunk with room for the expected products.
+         *
+         * @param expected The expected number of products.
+         * @param withBarcodes Whether the products carry barcodes.
+         */
+        Chunk(int expected, boolean withBarcodes) {
+            ids = new int[expected];
+            names = new String[expected];
+            prices = new long[expected];
+            barcodes = withBarcodes ? new long[expected] : null;
+        }
+
+        /**
+         * Adds a parsed product.
+         *
+         * @param id The product ID.
+         * @param name The product name.
+         * @param price The product price.
+         * @param barcode The product barcode, ignored if the file has none.
+         */
+        void add(int id, String name, long price, long barcode) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                names = Arrays.copyOf(names, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                if (barcodes != null) {
+                    barcodes = Arrays.copyOf(barcodes, capacity);
+                }
+            }
+            ids[count] = id;
+            names[count] = name;
+            prices[count] = price;
+            if (barcodes != null) {
+                barcodes[count] = barcode;
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Thrown by chunk workers when a line cannot be parsed.
+     */
+    private static final class MalformedLineException extends RuntimeException {
+
+        // Version of the serialized form
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs a MalformedLineException with the specified message.
+         *
+         * @param message The description of the problem.
+         */
+        MalformedLineException(String message) {
+            super(message);
+        }
+    }
+}
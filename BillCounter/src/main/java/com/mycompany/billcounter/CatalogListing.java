@@ -0,0 +1,484 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, paginated views of the product catalog. The first listing in an
+ * order sorts the catalog once into primitive arrays; afterwards every
+ * catalog change only records the changed product ID against each sorted
+ * view, and the next listing patches the view with a single merge pass
+ * instead of sorting it again. A view collecting too many changes is
+ * dropped and sorted afresh on its next use.
+ *
+ * Pages are addressed with a cursor holding the sort key and ID of the last
+ * product shown, so a page continues after that product even if products
+ * were added or removed in between. Products calls every method under its
+ * lock; listings are additionally serialized here because patching a view
+ * happens under the read lock.
+ */
+class CatalogListing {
+
+    /**
+     * Orders a listing can be sorted in. Ties are broken by product ID.
+     */
+    enum Order {
+        ID, NAME, PRICE
+    }
+
+    // Smallest number of changes a view may collect before being dropped
+    private static final int MIN_PENDING = 1024;
+
+    // Table the listings read products from
+    private final ProductTable table;
+
+    // Dictionary resolving the name codes of the table
+    private final NameDictionary names;
+
+    // Sorted view per order, or null until it is first listed
+    private final View[] views = new View[Order.values().length];
+
+    /**
+     * Constructs a CatalogListing over a product table.
+     *
+     * @param table The table holding the products.
+     * @param names The dictionary resolving the name codes of the table.
+     */
+    public CatalogListing(ProductTable table, NameDictionary names) {
+        this.table = table;
+        this.names = names;
+    }
+
+    /**
+     * Records that a product was added, changed or removed. Must be called
+     * under the write lock of the catalog.
+     *
+     * @param id The product ID.
+     */
+    public synchronized void changed(int id) {
+        for (int i = 0; i < views.length; i++) {
+            View view = views[i];
+            if (view != null && !view.pending.containsKey(id)) {
+                if (view.pendingCount == Math.max(MIN_PENDING, view.size / 4)) {
+                    // Sorting again is now cheaper than patching
+                    views[i] = null;
+                } else {
+                    view.addPending(id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops every sorted view, for example after the catalog is cleared.
+     */
+    public synchronized void invalidate() {
+        Arrays.fill(views, null);
+    }
+
+    /**
+     * Lists one page of products in the given order. Must be called under
+     * the read lock of the catalog.
+     *
+     * @param order The order to list the products in.
+     * @param after The cursor of the previous page, or null for the first
+     * page.
+     * @param limit The largest number of products on the page.
+     * @return The page.
+     */
+    public synchronized Page page(Order order, Cursor after, int limit) {
+        if (after != null && after.order != order) {
+            throw new IllegalArgumentException("Cursor of a " + after.order + " listing used for " + order);
+        }
+        View view = views[order.ordinal()];
+        if (view == null) {
+            view = build(order);
+            views[order.ordinal()] = view;
+        } else if (view.pendingCount > 0) {
+            patch(view, order);
+        }
+        int start = after == null ? 0 : firstAfter(view, order, after.key, after.id);
+        int count = Math.max(0, Math.min(limit, view.size - start));
+        Page page = new Page(count);
+        for (int i = 0; i < count; i++) {
+            int slot = table.indexOf(view.ids[start + i]);
+            page.ids[i] = view.ids[start + i];
+            page.nameCodes[i] = table.nameCodeAt(slot);
+            page.prices[i] = table.priceAt(slot);
+        }
+        if (start + count < view.size && count > 0) {
+            page.next = new Cursor(order, view.keys[start + count - 1], view.ids[start + count - 1]);
+        }
+        return page;
+    }
+
+    /**
+     * Sorts every product of the table into a new view.
+     *
+     * @param order The order of the view.
+     * @return The view.
+     */
+    private View build(Order order) {
+        View view = new View(table.size());
+        table.forEach((id, nameCode, price) -> {
+            view.ids[view.size] = id;
+            view.keys[view.size] = keyOf(order, id, nameCode, price);
+            view.size++;
+        });
+        sort(view.keys, view.ids, 0, view.size, order);
+        return view;
+    }
+
+    /**
+     * Brings a view up to date with the changes recorded against it: the
+     * entries of changed products are dropped in one pass, the current
+     * entries of those still listed are sorted, and both runs are merged
+     * from the back.
+     *
+     * @param view The view to patch.
+     * @param order The order of the view.
+     */
+    private void patch(View view, Order order) {
+        int kept = 0;
+        for (int i = 0; i < view.size; i++) {
+            if (!view.pending.containsKey(view.ids[i])) {
+                view.ids[kept] = view.ids[i];
+                view.keys[kept] = view.keys[i];
+                kept++;
+            }
+        }
+        int[] addedIds = new int[view.pendingCount];
+        long[] addedKeys = new long[view.pendingCount];
+        int added = 0;
+        for (int i = 0; i < view.pendingCount; i++) {
+            int id = view.pendingIds[i];
+            int slot = table.indexOf(id);
+            if (slot >= 0) {
+                addedIds[added] = id;
+                addedKeys[added] = keyOf(order, id, table.nameCodeAt(slot), table.priceAt(slot));
+                added++;
+            }
+        }
+        sort(addedKeys, addedIds, 0, added, order);
+        view.ensureCapacity(kept + added);
+        int a = kept - 1;
+        int b = added - 1;
+        for (int out = kept + added - 1; b >= 0; out--) {
+            if (a >= 0 && compare(order, view.keys[a], view.ids[a], addedKeys[b], addedIds[b]) > 0) {
+                view.keys[out] = view.keys[a];
+                view.ids[out] = view.ids[a];
+                a--;
+            } else {
+                view.keys[out] = addedKeys[b];
+                view.ids[out] = addedIds[b];
+                b--;
+            }
+        }
+        view.size = kept + added;
+        view.clearPending();
+    }
+
+    /**
+     * Finds the first entry of a view sorting after a given key and ID.
+     *
+     * @param view The view.
+     * @param order The order of the view.
+     * @param key The sort key.
+     * @param id The product ID.
+     * @return The index of the entry, or the size of the view.
+     */
+    private int firstAfter(View view, Order order, long key, int id) {
+        int low = 0;
+        int high = view.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(order, view.keys[mid], view.ids[mid], key, id) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Computes the sort key of a product: the ID, the name code or the price.
+     *
+     * @param order The order.
+     * @param id The product ID.
+     * @param nameCode The dictionary code of the name.
+     * @param price The price, in minor currency units.
+     * @return The sort key.
+     */
+    private static long keyOf(Order order, int id, int nameCode, long price) {
+        return switch (order) {
+            case ID -> id;
+            case NAME -> nameCode;
+            case PRICE -> price;
+        };
+    }
+
+    /**
+     * Compares two entries of a view. Names compare ignoring case first.
+     *
+     * @param order The order of the view.
+     * @param key1 The sort key of the first entry.
+     * @param id1 The product ID of the first entry.
+     * @param key2 The sort key of the second entry.
+     * @param id2 The product ID of the second entry.
+     * @return A negative number, zero or a positive number as the first
+     * entry sorts before, with or after the second.
+     */
+    private int compare(Order order, long key1, int id1, long key2, int id2) {
+        int result = 0;
+        if (order == Order.NAME) {
+            if (key1 != key2) {
+                String name1 = names.decode((int) key1);
+                String name2 = names.decode((int) key2);
+                result = String.CASE_INSENSITIVE_ORDER.compare(name1, name2);
+                if (result == 0) {
+                    result = name1.compareTo(name2);
+                }
+            }
+        } else {
+            result = Long.compare(key1, key2);
+        }
+        return result != 0 ? result : Integer.compare(id1, id2);
+    }
+
+    /**
+     * Sorts parallel key and ID arrays with a bottom-up merge sort, so no
+     * entry is boxed.
+     *
+     * @param keys The sort keys.
+     * @param ids The product IDs, parallel to keys.
+     * @param from The first index to sort.
+     * @param to The index after the last one to sort.
+     * @param order The order to sort in.
+     */
+    private void sort(long[] keys, int[] ids, int from, int to, Order order) {
+        int n = to - from;
+        if (n < 2) {
+            return;
+        }
+        long[] keyBuffer = new long[n];
+        int[] idBuffer = new int[n];
+        long[] srcKeys = keys;
+        int[] srcIds = ids;
+        int srcFrom = from;
+        long[] dstKeys = keyBuffer;
+        int[] dstIds = idBuffer;
+        int dstFrom = 0;
+        for (int width = 1; width < n; width *= 2) {
+            for (int low = 0; low < n; low += 2 * width) {
+                int mid = Math.min(low + width, n);
+                int high = Math.min(low + 2 * width, n);
+                int i = low;
+                int j = mid;
+                for (int out = low; out < high; out++) {
+                    if (i < mid && (j >= high || compare(order, srcKeys[srcFrom + i], srcIds[srcFrom + i],
+                            srcKeys[srcFrom + j], srcIds[srcFrom + j]) <= 0)) {
+                        dstKeys[dstFrom + out] = srcKeys[srcFrom + i];
+                        dstIds[dstFrom + out] = srcIds[srcFrom + i];
+                        i++;
+                    } else {
+                        dstKeys[dstFrom + out] = srcKeys[srcFrom + j];
+                        dstIds[dstFrom + out] = srcIds[srcFrom + j];
+                        j++;
+                    }
+                }
+            }
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+            int[] swapIds = srcIds;
+            srcIds = dstIds;
+            dstIds = swapIds;
+            int swapFrom = srcFrom;
+            srcFrom = dstFrom;
+            dstFrom = swapFrom;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, srcFrom, keys, from, n);
+            System.arraycopy(srcIds, srcFrom, ids, from, n);
+        }
+    }
+
+    /**
+     * Products sorted in one order, with the IDs changed since the view was
+     * last brought up to date.
+     */
+    private static final class View {
+
+        // Sort keys, parallel to ids
+        long[] keys;
+
+        // Product IDs in order
+        int[] ids;
+
+        // Number of entries
+        int size;
+
+        // Changed product IDs not yet merged into the view
+        final IntIntMap pending = new IntIntMap();
+        int[] pendingIds = new int[16];
+        int pendingCount;
+
+        /**
+         * Constructs an empty view.
+         *
+         * @param capacity The number of entries to allocate.
+         */
+        View(int capacity) {
+            keys = new long[Math.max(16, capacity)];
+            ids = new int[keys.length];
+        }
+
+        /**
+         * Grows the entry arrays to hold at least the given number of
+         * entries.
+         *
+         * @param capacity The number of entries needed.
+         */
+        void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                int newCapacity = Math.max(capacity, ids.length + (ids.length >> 1));
+                keys = Arrays.copyOf(keys, newCapacity);
+                ids = Arrays.copyOf(ids, newCapacity);
+            }
+        }
+
+        /**
+         * Records a changed product ID.
+         *
+         * @param id The product ID.
+         */
+        void addPending(int id) {
+            if (pendingCount == pendingIds.length) {
+                pendingIds = Arrays.copyOf(pendingIds, pendingCount * 2);
+            }
+            pendingIds[pendingCount++] = id;
+            pending.put(id, 0);
+        }
+
+        /**
+         * Forgets every recorded change.
+         */
+        void clearPending() {
+            pending.clear();
+            pendingCount = 0;
+        }
+    }
+
+    /**
+     * One page of a listing, held in parallel arrays.
+     */
+    static final class Page {
+
+        // Product IDs, name codes and prices of the page, in order
+        private final int[] ids;
+        private final int[] nameCodes;
+        private final long[] prices;
+
+        // Cursor of the next page, or null if this is the last one
+        private Cursor next;
+
+        /**
+         * Constructs an empty page.
+         *
+         * @param size The number of products on the page.
+         */
+        Page(int size) {
+            ids = new int[size];
+            nameCodes = new int[size];
+            prices = new long[size];
+        }
+
+        /**
+         * Retrieves the number of products on the page.
+         *
+         * @return The product count.
+         */
+        public int size() {
+            return ids.length;
+        }
+
+        /**
+         * Retrieves the ID of a product on the page.
+         *
+         * @param index The position on the page.
+         * @return The product ID.
+         */
+        public int getId(int index) {
+            return ids[index];
+        }
+
+        /**
+         * Retrieves the name code of a product on the page.
+         *
+         * @param index The position on the page.
+         * @return The dictionary code of the product name.
+         */
+        public int getNameCode(int index) {
+            return nameCodes[index];
+        }
+
+        /**
+         * Retrieves the price of a product on the page.
+         *
+         * @param index The position on the page.
+         * @return The price, in minor currency units.
+         */
+        public long getPrice(int index) {
+            return prices[index];
+        }
+
+        /**
+         * Retrieves the cursor to pass for the next page.
+         *
+         * @return The cursor, or null if this is the last page.
+         */
+        public Cursor getNext() {
+            return next;
+        }
+    }
+
+    /**
+     * Position in a listing: the sort key and ID of the last product shown.
+     */
+    static final class Cursor {
+
+        // Order of the listing the cursor belongs to
+        private final Order order;
+
+        // Sort key of the last product shown
+        private final long key;
+
+        // ID of the last product shown
+        private final int id;
+
+        /**
+         * Constructs a Cursor.
+         *
+         * @param order The order of the listing.
+         * @param key The sort key of the last product shown.
+         * @param id The ID of the last product shown.
+         */
+        Cursor(Order order, long key, int id) {
+            this.order = order;
+            this.key = key;
+            this.id = id;
+        }
+
+        /**
+         * Retrieves the order of the listing the cursor belongs to.
+         *
+         * @return The order.
+         */
+        public Order getOrder() {
+            return order;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compact binary snapshot of the whole catalog, used to restart quickly
+ * without parsing the price file again. The file is laid out as:
+ *
+ * <pre>
+ * int magic, int version, int count, int nameBytes
+ * long[count] prices in minor currency units
+ * long[count] barcodes, 0 for none
+ * int[count] ids
+ * int[count + 1] name offsets into the name bytes
+ * byte[nameBytes] UTF-8 names
+ * </pre>
+ *
+ * All numbers are little-endian so the arrays can be copied out of the
+ * memory-mapped file in bulk.
+ */
+class CatalogSnapshot {
+
+    // Identifies a catalog snapshot file ("BCS1")
+    private static final int MAGIC = 0x31534342;
+
+    // Version of the layout
+    private static final int VERSION = 3;
+
+    // Size of the fixed header
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Utility class; not meant to be instantiated.
+     */
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of the catalog. The file is written next to the
+     * target and moved into place, so a crash never leaves a partial
+     * snapshot behind.
+     *
+     * @param products The catalog to save.
+     * @param file The snapshot file.
+     * @return The number of products saved.
+     * @throws IOException If the file cannot be written.
+     */
+    static int save(Products products, Path file) throws IOException {
+        // Collect the products and their barcodes under one read lock
+        Columns columns = new Columns(products.size(), products.getNames());
+        products.forEachEntry(columns);
+        int n = columns.count;
+        int[] ids = columns.ids;
+        long[] prices = columns.prices;
+        long[] barcodes = columns.barcodes;
+        byte[][] names = columns.names;
+        long total = HEADER_SIZE + 16L * n + 4L * (2L * n + 1) + columns.nameBytes;
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Catalog too large for a snapshot");
+        }
+
+        ByteBuffer out = ByteBuffer.allocate((int) total).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt((int) columns.nameBytes);
+        out.asLongBuffer().put(prices, 0, n).put(barcodes, 0, n);
+        out.position(out.position() + 16 * n);
+        out.asIntBuffer().put(ids, 0, n);
+        out.position(out.position() + 4 * n);
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            out.putInt(offset);
+            offset += names[i].length;
+        }
+        out.putInt(offset);
+        for (int i = 0; i < n; i++) {
+            out.put(names[i]);
+        }
+        out.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return n;
+    }
+
+    /**
+     * Loads a snapshot into the catalog by memory-mapping the file and
+     * copying its arrays out in bulk.
+     *
+     * @param file The snapshot file.
+     * @param products The catalog to add the products to.
+     * @return The number of products loaded.
+     * @throws IOException If the file cannot be read or is not a snapshot.
+     */
+    static int load(Path file, Products products) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer data = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+                throw new IOException(file + " is not a catalog snapshot");
+            }
+            if (data.getInt() != VERSION) {
+                throw new IOException(file + " is not a catalog snapshot");
+            }
+            int n = data.getInt();
+            int nameBytes = data.getInt();
+            if (n < 0 || nameBytes < 0 || data.remaining() != 16L * n + 4L * (2L * n + 1) + nameBytes) {
+                throw new IOException(file + " is truncated or corrupt");
+            }
+
+            long[] prices = new long[n];
+            long[] barcodes = new long[n];
+            data.asLongBuffer().get(prices).get(barcodes);
+            data.position(HEADER_SIZE + 16 * n);
+            int[] ids = new int[n];
+            int[] offsets = new int[n + 1];
+            data.asIntBuffer().get(ids).get(offsets);
+
+            int namesStart = HEADER_SIZE + 16 * n + 4 * (2 * n + 1);
+            byte[] allNames = new byte[nameBytes];
+            data.get(namesStart, allNames);
+            String[] names = new String[n];
+            for (int i = 0; i < n; i++) {
+                if (offsets[i] < 0 || offsets[i] > offsets[i + 1] || offsets[i + 1] > nameBytes) {
+                    throw new IOException(file + " is truncated or corrupt");
+                }
+                names[i] = new String(allNames, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+            }
+            products.setAllDetails(ids, names, prices, barcodes, n);
+            return n;
+        }
+    }
+
+    /**
+     * Collects the columns of the catalog while it is visited, growing them
+     * if products are added after their size was read.
+     */
+    private static final class Columns implements ProductTable.EntryVisitor {
+
+        // Dictionary decoding the product names
+        private final NameDictionary dictionary;
+
+        // Product IDs; the first count entries of each column are in use
+        int[] ids;
+
+        // Product prices, parallel to ids
+        long[] prices;
+
+        // Product barcodes, parallel to ids
+        long[] barcodes;
+
+        // UTF-8 product names, parallel to ids
+        byte[][] names;
+
+        // Number of products collected
+        int count;
+
+        // Total length of the UTF-8 names collected
+        long nameBytes;
+
+        /**
+         * Constructs Columns.
+         *
+         * @param capacity The expected number of products.
+         * @param dictionary The dictionary decoding the product names.
+         */
+        Columns(int capacity, NameDictionary dictionary) {
+            this.dictionary = dictionary;
+            this.ids = new int[capacity];
+            this.prices = new long[capacity];
+            this.barcodes = new long[capacity];
+            this.names = new byte[capacity][];
+        }
+
+        /**
+         * Appends one product to the columns.
+         *
+         * @param id The product ID.
+         * @param nameCode The dictionary code of the product name.
+         * @param price The product price.
+         * @param barcode The barcode, or ProductTable.NO_BARCODE.
+         */
+        @Override
+        public void visit(int id, int nameCode, long price, long barcode) {
+            if (count == ids.length) {
+                int capacity = Math.max(16, count * 2);
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                barcodes = Arrays.copyOf(barcodes, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            ids[count] = id;
+            prices[count] = price;
+            barcodes[count] = barcode;
+            names[count] = dictionary.decode(nameCode).getBytes(StandardCharsets.UTF_8);
+            nameBytes += names[count].length;
+            count++;
+        }
+    }
+}
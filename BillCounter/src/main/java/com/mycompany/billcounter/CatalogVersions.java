@@ -0,0 +1,235 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Numbered versions of the catalog, so an open bill can keep pricing its
+ * lines from the catalog as it was when the bill opened. Every write to the
+ * catalog publishes the next version number, but the product table itself is
+ * only ever kept at the latest version. While any bill has a version pinned,
+ * each write first logs the details it replaces, and the logged entries of a
+ * product are chained from the newest down; a reader at an older version
+ * walks the chain to the details that were current at its version. A write
+ * therefore costs one log entry instead of a copy of the table.
+ *
+ * Entries no pinned version can reach any more are dropped from the front of
+ * the log at the next write, and the whole log is dropped once no bill has a
+ * version pinned. The log is read and written under the
+ * lock of the owning Products; the pins have their own monitor.
+ */
+class CatalogVersions {
+
+    // Name code logged for a product that did not exist before the write
+    static final int ABSENT = -1;
+
+    // Smallest number of dropped entries worth moving the log down for
+    private static final int MIN_COMPACTION = 1024;
+
+    // Latest published version
+    private volatile long current;
+
+    // Number of open bills that pinned each version, guarded by this
+    private final TreeMap<Long, Integer> pins = new TreeMap<>();
+
+    // Whether the write in progress logs the details it replaces
+    private boolean recording;
+
+    // Version of the write that replaced each logged entry
+    private long[] writtenAt = new long[16];
+
+    // Product ID of each entry, parallel to writtenAt
+    private int[] productIds = new int[16];
+
+    // Name code the product had before the write, or ABSENT
+    private int[] nameCodes = new int[16];
+
+    // Price the product had before the write, in minor currency units
+    private long[] prices = new long[16];
+
+    // Next older entry of the same product, parallel to writtenAt
+    private int[] older = new int[16];
+
+    // First entry still in the log
+    private int start;
+
+    // Position after the last entry
+    private int end;
+
+    // Newest entry of each product in the log
+    private final IntIntMap newest = new IntIntMap();
+
+    /**
+     * Retrieves the latest published version.
+     *
+     * @return The version number.
+     */
+    public long current() {
+        return current;
+    }
+
+    /**
+     * Pins the latest version for an open bill. Must be called while writes
+     * are excluded, so no write can slip in between reading the version and
+     * registering the pin.
+     *
+     * @return The pinned version.
+     */
+    public synchronized long pin() {
+        long version = current;
+        pins.merge(version, 1, Integer::sum);
+        return version;
+    }
+
+    /**
+     * Releases a version pinned by pin. Its log entries are dropped at a
+     * later write once no older pin needs them.
+     *
+     * @param version The pinned version.
+     */
+    public synchronized void unpin(long version) {
+        Integer count = pins.get(version);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            pins.remove(version);
+        } else {
+            pins.put(version, count - 1);
+        }
+    }
+
+    /**
+     * Starts a write: drops the log entries no pinned version needs any more
+     * and decides whether the write has to log what it replaces. Must be
+     * called under the write lock.
+     *
+     * @return The version the write will publish.
+     */
+    long beginWrite() {
+        long oldest;
+        synchronized (this) {
+            recording = !pins.isEmpty();
+            oldest = recording ? pins.firstKey() : current;
+        }
+        while (start < end && writtenAt[start] <= oldest) {
+            start++;
+        }
+        if (start == end) {
+            start = 0;
+            end = 0;
+            newest.clear();
+        } else if (start >= MIN_COMPACTION && start * 2 >= end) {
+            compact();
+        }
+        return current + 1;
+    }
+
+    /**
+     * Logs the details a write is about to replace, if some bill may still
+     * read them. Must be called under the write lock, before the table is
+     * changed.
+     *
+     * @param write The version returned by beginWrite.
+     * @param productId The product ID.
+     * @param nameCode The name code before the write, or ABSENT if the
+     * product did not exist.
+     * @param price The price before the write.
+     */
+    void record(long write, int productId, int nameCode, long price) {
+        if (!recording) {
+            return;
+        }
+        if (end == writtenAt.length) {
+            if (start > 0) {
+                compact();
+            } else {
+                int capacity = end * 2;
+                writtenAt = Arrays.copyOf(writtenAt, capacity);
+                productIds = Arrays.copyOf(productIds, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                older = Arrays.copyOf(older, capacity);
+            }
+        }
+        writtenAt[end] = write;
+        productIds[end] = productId;
+        nameCodes[end] = nameCode;
+        prices[end] = price;
+        older[end] = newest.get(productId);
+        newest.put(productId, end);
+        end++;
+    }
+
+    /**
+     * Publishes a write, making its version the latest. Must be called under
+     * the write lock, after the table is changed.
+     *
+     * @param write The version returned by beginWrite.
+     */
+    void publish(long write) {
+        current = write;
+    }
+
+    /**
+     * Finds the log entry holding the details a product had at a version.
+     * Must be called under the read lock.
+     *
+     * @param productId The product ID.
+     * @param version The version to read at.
+     * @return The entry, or IntIntMap.MISSING if the product has not been
+     * changed since that version, so the table holds its details.
+     */
+    int entryAt(int productId, long version) {
+        int found = IntIntMap.MISSING;
+        int entry = newest.get(productId);
+        while (entry >= start && writtenAt[entry] > version) {
+            found = entry;
+            entry = older[entry];
+        }
+        return found;
+    }
+
+    /**
+     * Retrieves the name code logged in an entry returned by entryAt.
+     *
+     * @param entry The log entry.
+     * @return The name code, or ABSENT if the product did not exist.
+     */
+    int nameCodeAt(int entry) {
+        return nameCodes[entry];
+    }
+
+    /**
+     * Retrieves the price logged in an entry returned by entryAt.
+     *
+     * @param entry The log entry.
+     * @return The price, in minor currency units.
+     */
+    long priceAt(int entry) {
+        return prices[entry];
+    }
+
+    /**
+     * Moves the live entries to the front of the log and rebuilds the index
+     * of the newest entry of each product.
+     */
+    private void compact() {
+        int live = end - start;
+        System.arraycopy(writtenAt, start, writtenAt, 0, live);
+        System.arraycopy(productIds, start, productIds, 0, live);
+        System.arraycopy(nameCodes, start, nameCodes, 0, live);
+        System.arraycopy(prices, start, prices, 0, live);
+        newest.clear();
+        for (int entry = 0; entry < live; entry++) {
+            int previous = older[entry + start];
+            older[entry] = previous >= start ? previous - start : IntIntMap.MISSING;
+            newest.put(productIds[entry], entry);
+        }
+        start = 0;
+        end = live;
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages many checkout lanes running in one JVM over a single shared
+ * Products catalog. Each lane has its own BillCounterGuy session, which must
+ * only be driven by one thread at a time; the catalog itself is safe to read
+ * from every lane while the Admin updates it.
+ */
+class CheckoutLanes {
+
+    // Catalog shared by every lane
+    private final Products products;
+
+    // Admin managing the shared catalog
+    private final Admin admin;
+
+    // Whether lanes merge repeated scans of an item into one line
+    private final boolean mergeRepeatedScans;
+
+    // Metrics every lane records in, or null if lanes are not measured
+    private final CheckoutMetrics metrics;
+
+    // Journal recording catalog changes and lane bills, or null
+    private final Journal journal;
+
+    // Archive completed bills are appended to, or null if they are discarded
+    private volatile BillArchive archive;
+
+    // Promotions applied to the bills of new lanes, or null
+    private volatile Promotions promotions;
+
+    // Tax table applied to the bills of new lanes, or null
+    private volatile TaxTable taxTable;
+
+    // Running sales per product updated by the bills of new lanes
+    private volatile LiveSales liveSales = new LiveSales();
+
+    // Open lanes by lane number
+    private final ConcurrentHashMap<Integer, BillCounterGuy> lanes = new ConcurrentHashMap<>();
+
+    // Lane number handed out by the next call to nextLaneNo
+    private final AtomicInteger nextLaneNo = new AtomicInteger(1);
+
+    /**
+     * Constructs a CheckoutLanes object over the specified catalog.
+     *
+     * @param products The catalog shared by every lane.
+     * @param mergeRepeatedScans true if lanes merge repeated scans of an item.
+     */
+    public CheckoutLanes(Products products, boolean mergeRepeatedScans) {
+        this(products, mergeRepeatedScans, null);
+    }
+
+    /**
+     * Constructs a CheckoutLanes object whose lanes and Admin record their
+     * operation latencies in shared metrics.
+     *
+     * @param products The catalog shared by every lane.
+     * @param mergeRepeatedScans true if lanes merge repeated scans of an item.
+     * @param metrics The metrics to record in, or null.
+     */
+    public CheckoutLanes(Products products, boolean mergeRepeatedScans, CheckoutMetrics metrics) {
+        this(products, mergeRepeatedScans, metrics, null);
+    }
+
+    /**
+     * Constructs a CheckoutLanes object whose catalog changes and lane bills
+     * are recorded in a journal. Each lane is a journal session numbered by
+     * its lane number, so lane numbers must not collide with other sessions
+     * of the journal.
+     *
+     * @param products The catalog shared by every lane.
+     * @param mergeRepeatedScans true if lanes merge repeated scans of an item.
+     * @param metrics The metrics to record in, or null.
+     * @param journal The journal to record changes in, or null.
+     */
+    public CheckoutLanes(Products products, boolean mergeRepeatedScans, CheckoutMetrics metrics,
+            Journal journal) {
+        this.products = products;
+        this.admin = metrics == null ? new Admin(products, journal) : new MeteredAdmin(products, journal, metrics);
+        this.mergeRepeatedScans = mergeRepeatedScans;
+        this.metrics = metrics;
+        this.journal = journal;
+    }
+
+    /**
+     * Opens a lane, or returns its session if it is already open.
+     *
+     * @param laneNo The lane number.
+     * @return The bill session of the lane.
+     */
+    public BillCounterGuy openLane(int laneNo) {
+        return lanes.computeIfAbsent(laneNo, no -> {
+            BillCounterGuy lane = metrics == null
+                    ? new BillCounterGuy(products, mergeRepeatedScans)
+                    : new MeteredBillCounterGuy(products, mergeRepeatedScans, metrics);
+            lane.setLiveSales(liveSales);
+            BillArchive bills = archive;
+            if (bills != null) {
+                lane.setArchive(bills, no);
+            }
+            lane.setPromotions(promotions);
+            lane.setTaxTable(taxTable);
+            if (journal != null) {
+                lane.setJournal(journal, no);
+            }
+            return lane;
+        });
+    }
+
+    /**
+     * Hands out a lane number that no earlier call has returned, for lanes
+     * opened on demand such as remote terminals.
+     *
+     * @return The lane number.
+     */
+    public int nextLaneNo() {
+        return nextLaneNo.getAndIncrement();
+    }
+
+    /**
+     * Sets the archive that lanes opened from now on append their completed
+     * bills to.
+     *
+     * @param archive The bill archive, or null to discard completed bills.
+     */
+    public void setArchive(BillArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Sets the running sales counters that the bills of lanes opened from
+     * now on update, for example to share them with a console bill.
+     *
+     * @param liveSales The counters to update.
+     */
+    public void setLiveSales(LiveSales liveSales) {
+        this.liveSales = liveSales;
+    }
+
+    /**
+     * Sets the promotions applied to the bills of lanes opened from now on.
+     * Lanes already open keep the promotions they were opened with, since
+     * their sessions belong to the threads driving them.
+     *
+     * @param promotions The promotions, or null to apply none.
+     */
+    public void setPromotions(Promotions promotions) {
+        this.promotions = promotions;
+    }
+
+    /**
+     * Sets the tax table applied to the bills of lanes opened from now on.
+     * Lanes already open keep the table they were opened with.
+     *
+     * @param taxTable The tax table, or null to charge no taxes.
+     */
+    public void setTaxTable(TaxTable taxTable) {
+        this.taxTable = taxTable;
+    }
+
+    /**
+     * Retrieves the session of an open lane.
+     *
+     * @param laneNo The lane number.
+     * @return The bill session of the lane, or null if the lane is not open.
+     */
+    public BillCounterGuy getLane(int laneNo) {
+        return lanes.get(laneNo);
+    }
+
+    /**
+     * Closes a lane and discards its session together with its open bill,
+     * releasing the catalog version the bill had pinned. Must be called by
+     * the thread driving the lane, or holding it.
+     *
+     * @param laneNo The lane number.
+     * @return The closed session, or null if the lane was not open.
+     */
+    public BillCounterGuy closeLane(int laneNo) {
+        BillCounterGuy lane = lanes.remove(laneNo);
+        if (lane != null) {
+            lane.discardBill();
+        }
+        return lane;
+    }
+
+    /**
+     * Retrieves the number of open lanes.
+     *
+     * @return The lane count.
+     */
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Retrieves the Admin managing the shared catalog.
+     *
+     * @return The Admin instance.
+     */
+    public Admin getAdmin() {
+        return admin;
+    }
+
+    /**
+     * Retrieves the running sales per product of every lane, including the
+     * open bills; a discarded bill takes its sales back off.
+     *
+     * @return The live sales counters.
+     */
+    public LiveSales getLiveSales() {
+        return liveSales;
+    }
+
+    /**
+     * Retrieves the shared catalog.
+     *
+     * @return The Products instance.
+     */
+    public Products getProducts() {
+        return products;
+    }
+}
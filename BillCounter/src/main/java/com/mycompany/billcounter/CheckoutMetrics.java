@@ -0,0 +1,103 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects a latency histogram and a counter per operation type for the
+ * catalog, the bills and receipt output, and publishes them through JMX.
+ */
+class CheckoutMetrics implements CheckoutMetricsMXBean {
+
+    /**
+     * The operation types that are measured.
+     */
+    enum Operation {
+        ADD_PRODUCT, REMOVE_PRODUCT, CLEAR_PRODUCTS, LOOKUP_PRODUCT,
+        ADD_ITEM, ADD_ITEMS, MODIFY_ITEM, REMOVE_ITEM, GENERATE_BILL, COMPLETE_BILL, PRINT_RECEIPT
+    }
+
+    // Name the metrics are registered under
+    static final String OBJECT_NAME = "com.mycompany.billcounter:type=CheckoutMetrics";
+
+    // Histograms indexed by operation ordinal
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+
+    // Time the metrics were started or last reset
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * Constructs a CheckoutMetrics object with empty histograms.
+     */
+    public CheckoutMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records one operation that started at the given time.
+     *
+     * @param operation The operation type.
+     * @param startNanos The System.nanoTime() value taken when it started.
+     */
+    public void record(Operation operation, long startNanos) {
+        histograms[operation.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Retrieves the histogram of an operation type.
+     *
+     * @param operation The operation type.
+     * @return The histogram.
+     */
+    LatencyHistogram histogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    @Override
+    public List<OperationStats> getOperations() {
+        double seconds = Math.max(1e-9, getUptimeMillis() / 1000.0);
+        List<OperationStats> stats = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram h = histograms[operation.ordinal()];
+            stats.add(new OperationStats(operation.name(), h.getCount(), h.getCount() / seconds, h.getMean(),
+                    h.getValueAtPercentile(50), h.getValueAtPercentile(99), h.getValueAtPercentile(99.9), h.getMax()));
+        }
+        return stats;
+    }
+
+    @Override
+    public long getUptimeMillis() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram h : histograms) {
+            h.reset();
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server.
+     *
+     * @throws JMException If the metrics cannot be registered.
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+}
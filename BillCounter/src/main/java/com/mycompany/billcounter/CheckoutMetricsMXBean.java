@@ -0,0 +1,31 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.List;
+
+/**
+ * Management interface publishing the checkout metrics over JMX.
+ */
+public interface CheckoutMetricsMXBean {
+
+    /**
+     * Retrieves the latency and throughput figures of every operation type.
+     *
+     * @return One entry per operation type.
+     */
+    List<OperationStats> getOperations();
+
+    /**
+     * Retrieves the time since the metrics were started or last reset.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    long getUptimeMillis();
+
+    /**
+     * Clears every histogram and counter.
+     */
+    void reset();
+}
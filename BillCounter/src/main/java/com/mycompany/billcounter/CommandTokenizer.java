@@ -0,0 +1,307 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+/**
+ * Splits a byte stream of line-oriented commands into tokens. Input is read
+ * through one reusable buffer, command words are matched in place and
+ * numbers are parsed straight from the bytes, so only free text such as
+ * product names allocates a String.
+ */
+class CommandTokenizer {
+
+    // Marker returned by read at the end of the stream
+    private static final int EOF = -1;
+
+    // Stream the commands are read from
+    private final InputStream in;
+
+    // Size of the input buffer used unless another is asked for
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    // Reusable input buffer
+    private final byte[] buffer;
+
+    // Position of the next unread byte in the buffer
+    private int position;
+
+    // Number of valid bytes in the buffer
+    private int limit;
+
+    // Bytes of the current command word
+    private byte[] word = new byte[32];
+
+    // Length of the current command word
+    private int wordLength;
+
+    // Buffer view of the word bytes, used to parse amounts in place
+    private ByteBuffer wordView = ByteBuffer.wrap(word);
+
+    /**
+     * Constructs a CommandTokenizer over the specified stream.
+     *
+     * @param in The stream to read commands from.
+     */
+    public CommandTokenizer(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a CommandTokenizer over the specified stream with an input
+     * buffer of the given size, for streams such as sockets that deliver
+     * only a few lines at a time.
+     *
+     * @param in The stream to read commands from.
+     * @param bufferSize The size of the input buffer, in bytes.
+     */
+    public CommandTokenizer(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Reads the next byte without consuming it.
+     *
+     * @return The next byte, or EOF at the end of the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    /**
+     * Skips spaces and tabs, stopping at the end of the line.
+     *
+     * @throws IOException If the stream cannot be read.
+     */
+    private void skipBlanks() throws IOException {
+        int c = peek();
+        while (c == ' ' || c == '\t' || c == '\r') {
+            position++;
+            c = peek();
+        }
+    }
+
+    /**
+     * Moves to the next command word, skipping blank lines and lines starting
+     * with '#'.
+     *
+     * @return true if a command word was read, false at the end of the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    public boolean nextCommand() throws IOException {
+        while (true) {
+            int c = peek();
+            if (c == EOF) {
+                return false;
+            }
+            if (c == '#') {
+                skipLine();
+            } else if (c <= ' ') {
+                position++;
+            } else {
+                break;
+            }
+        }
+        wordLength = 0;
+        int c = peek();
+        while (c > ' ') {
+            if (wordLength == word.length) {
+                word = Arrays.copyOf(word, wordLength * 2);
+            }
+            word[wordLength++] = (byte) c;
+            position++;
+            c = peek();
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the current command word equals a keyword.
+     *
+     * @param keyword The keyword as ASCII bytes.
+     * @return true if the current word is the keyword.
+     */
+    public boolean commandIs(byte[] keyword) {
+        return Arrays.equals(word, 0, wordLength, keyword, 0, keyword.length);
+    }
+
+    /**
+     * Retrieves the current command word as text, for error messages.
+     *
+     * @return The current command word.
+     */
+    public String command() {
+        return new String(word, 0, wordLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the next integer on the current line.
+     *
+     * @return The parsed integer.
+     * @throws IOException If the stream cannot be read.
+     * @throws InputMismatchException If the next token is not an integer.
+     */
+    public int nextInt() throws IOException {
+        skipBlanks();
+        boolean negative = false;
+        int c = peek();
+        if (c == '-') {
+            negative = true;
+            position++;
+            c = peek();
+        }
+        if (c < '0' || c > '9') {
+            throw new InputMismatchException("Expected a number");
+        }
+        long value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new InputMismatchException("Number out of range");
+            }
+            position++;
+            c = peek();
+        }
+        if (c > ' ') {
+            throw new InputMismatchException("Expected a number");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new InputMismatchException("Number out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses the next barcode on the current line: up to 18 digits.
+     *
+     * @return The parsed barcode.
+     * @throws IOException If the stream cannot be read.
+     * @throws InputMismatchException If the next token is not a barcode.
+     */
+    public long nextBarcode() throws IOException {
+        skipBlanks();
+        int c = peek();
+        if (c < '0' || c > '9') {
+            throw new InputMismatchException("Expected a barcode");
+        }
+        long value = 0;
+        int digits = 0;
+        while (c >= '0' && c <= '9') {
+            if (++digits > 18) {
+                throw new InputMismatchException("Barcode too long");
+            }
+            value = value * 10 + (c - '0');
+            position++;
+            c = peek();
+        }
+        if (c > ' ') {
+            throw new InputMismatchException("Expected a barcode");
+        }
+        return value;
+    }
+
+    /**
+     * Parses the next decimal amount on the current line, such as 12.50.
+     *
+     * @return The amount in minor currency units.
+     * @throws IOException If the stream cannot be read.
+     * @throws InputMismatchException If the next token is not an amount.
+     */
+    public long nextMoney() throws IOException {
+        skipBlanks();
+        int length = 0;
+        int c = peek();
+        while (c > ' ') {
+            if (length == word.length) {
+                word = Arrays.copyOf(word, length * 2);
+            }
+            word[length++] = (byte) c;
+            position++;
+            c = peek();
+        }
+        wordLength = 0;
+        if (wordView.array() != word) {
+            wordView = ByteBuffer.wrap(word);
+        }
+        try {
+            return Money.parse(wordView, 0, length);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new InputMismatchException("Expected an amount");
+        }
+    }
+
+    /**
+     * Reads the rest of the current line as text, without surrounding blanks,
+     * and consumes the line break.
+     *
+     * @return The rest of the line.
+     * @throws IOException If the stream cannot be read.
+     */
+    public String restOfLine() throws IOException {
+        skipBlanks();
+        byte[] text = word;
+        int length = 0;
+        int c = peek();
+        while (c != EOF && c != '\n') {
+            if (length == text.length) {
+                text = Arrays.copyOf(text, length * 2);
+            }
+            text[length++] = (byte) c;
+            position++;
+            c = peek();
+        }
+        if (c == '\n') {
+            position++;
+        }
+        while (length > 0 && text[length - 1] <= ' ') {
+            length--;
+        }
+        word = text;
+        wordLength = 0;
+        return new String(text, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if unread input is already buffered, so the next command can be
+     * read without waiting for the stream.
+     *
+     * @return true if buffered input is left.
+     */
+    public boolean hasBuffered() {
+        return position < limit;
+    }
+
+    /**
+     * Consumes the rest of the current line, including the line break.
+     *
+     * @throws IOException If the stream cannot be read.
+     */
+    public void skipLine() throws IOException {
+        int c = peek();
+        while (c != EOF && c != '\n') {
+            position++;
+            c = peek();
+        }
+        if (c == '\n') {
+            position++;
+        }
+    }
+}
@@ -0,0 +1,846 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * HTTP/JSON access to the catalog, to bills and to the running sales for
+ * back-office tools, served by the JDK HTTP server with one virtual thread
+ * per exchange. Bills are lanes of a CheckoutLanes, opened and completed
+ * over HTTP:
+ *
+ * <pre>
+ * GET    /products[?order=id|name|price]   every product, streamed
+ * POST   /products/lookup                  {"ids":[...]} to products and missing IDs
+ * GET    /products/{id}                    one product
+ * PUT    /products/{id}                    {"name":...,"price":...} adds or replaces it
+ * DELETE /products/{id}                    removes it
+ * POST   /bills                            opens a bill
+ * GET    /bills/{bill}                     the bill with its lines
+ * DELETE /bills/{bill}                     discards the bill
+ * POST   /bills/{bill}/items               {"id":...,"qty":...} or {"barcode":...,"qty":...}
+ * PUT    /bills/{bill}/items/{id}          {"qty":...} changes the quantity
+ * DELETE /bills/{bill}/items/{id}          removes the item
+ * POST   /bills/{bill}/complete            archives and closes the bill
+ * GET    /sales                            units and revenue so far, per product
+ * </pre>
+ *
+ * Bill numbers are handed out by the API itself, so a client can only reach
+ * the bills opened over HTTP and never the lanes of terminals. A bill left
+ * alone for longer than the idle timeout is discarded, releasing the
+ * catalog version it pinned.
+ *
+ * Catalog responses are written with a JsonWriter straight to the response
+ * body in chunks, and the catalog is dumped one listing page at a time, so
+ * neither a large dump nor a slow client keeps the catalog locked or the
+ * whole response in memory. A bill request is read in full before its bill
+ * is locked, and its response, which is only as large as the bill, is
+ * rendered under the lock and sent once the lock is released, so a slow
+ * client never keeps a bill locked either. Rejected requests are answered
+ * with {"error":...}.
+ */
+class HttpApi implements Closeable {
+
+    // Number of pending connections the listening socket queues
+    private static final int BACKLOG = 1024;
+
+    // Largest request body accepted, in bytes
+    private static final int MAX_BODY = 1 << 20;
+
+    // Number of products fetched per listing page while dumping the catalog
+    private static final int DUMP_PAGE_SIZE = 1024;
+
+    // Idle time after which a bill is discarded when none is configured
+    static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
+    // Longest wait between two searches for idle bills
+    private static final long MAX_EXPIRY_INTERVAL_MILLIS = 60 * 1000;
+
+    // Lanes the bills are served as
+    private final CheckoutLanes lanes;
+
+    // Open bills by bill number
+    private final ConcurrentHashMap<Integer, HttpBill> bills = new ConcurrentHashMap<>();
+
+    // Bill number handed out to the next bill opened
+    private final AtomicInteger nextBillNo = new AtomicInteger(1);
+
+    // Idle time after which a bill is discarded, in nanoseconds
+    private final long idleTimeoutNanos;
+
+    // Embedded HTTP server
+    private final HttpServer server;
+
+    // Executor starting a virtual thread for every exchange
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Executor searching for idle bills now and then
+    private final ScheduledExecutorService expiry = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofVirtual().name("http-bill-expiry").factory());
+
+    /**
+     * Constructs an HttpApi listening on the given address that discards
+     * bills idle for DEFAULT_IDLE_TIMEOUT_MILLIS. Call start to begin
+     * serving.
+     *
+     * @param lanes The lanes to serve bills as, over their shared catalog.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public HttpApi(CheckoutLanes lanes, InetSocketAddress address) throws IOException {
+        this(lanes, address, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructs an HttpApi listening on the given address. Call start to
+     * begin serving.
+     *
+     * @param lanes The lanes to serve bills as, over their shared catalog.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param idleTimeoutMillis The time after its last request at which a
+     * bill is discarded.
+     * @throws IOException If the address cannot be bound.
+     */
+    public HttpApi(CheckoutLanes lanes, InetSocketAddress address, long idleTimeoutMillis) throws IOException {
+        this.lanes = lanes;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/products", exchange -> handle(exchange, "products"));
+        server.createContext("/bills", exchange -> handle(exchange, "bills"));
+        server.createContext("/sales", exchange -> handle(exchange, "sales"));
+    }
+
+    /**
+     * Starts serving requests in the background.
+     */
+    public void start() {
+        long interval = Math.max(1, Math.min(idleTimeoutMillis(), MAX_EXPIRY_INTERVAL_MILLIS));
+        expiry.scheduleWithFixedDelay(this::expireIdleBills, interval, interval, TimeUnit.MILLISECONDS);
+        server.start();
+    }
+
+    /**
+     * Retrieves the idle timeout of bills.
+     *
+     * @return The idle timeout, in milliseconds.
+     */
+    private long idleTimeoutMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos);
+    }
+
+    /**
+     * Retrieves the port the API listens on.
+     *
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving, dropping exchanges still in progress.
+     */
+    @Override
+    public void close() {
+        expiry.shutdownNow();
+        server.stop(0);
+        executor.close();
+    }
+
+    /**
+     * Routes an exchange and turns rejected requests into error responses.
+     *
+     * @param exchange The exchange.
+     * @param context The root of the context the exchange arrived at.
+     * @throws IOException If the response cannot be written.
+     */
+    private void handle(HttpExchange exchange, String context) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            // The path starts with a slash, so path[0] is empty
+            String[] segments = Arrays.copyOfRange(path, Math.min(2, path.length), path.length);
+            String root = path.length > 1 ? path[1] : "";
+            if (!root.equals(context)) {
+                error(exchange, 404, "Not found");
+            } else if (root.equals("products")) {
+                handleProducts(exchange, segments);
+            } else if (root.equals("bills")) {
+                handleBills(exchange, segments);
+            } else if (segments.length == 0) {
+                requireMethod(exchange.getRequestMethod(), "GET");
+                writeSales(respond(exchange, 200), lanes.getLiveSales());
+            } else {
+                error(exchange, 404, "Not found");
+            }
+        } catch (InputMismatchException e) {
+            error(exchange, 400, e.getMessage());
+        } catch (ArithmeticException e) {
+            // Thrown before the bill is changed, for amounts past the gross
+            // ceiling of the bill
+            error(exchange, 400, "Amount out of range");
+        } catch (RequestException e) {
+            error(exchange, e.status, e.getMessage());
+        } catch (RuntimeException e) {
+            error(exchange, 500, "Internal error");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Serves the requests under /products.
+     *
+     * @param exchange The exchange.
+     * @param segments The path segments after /products.
+     * @throws IOException If the response cannot be written.
+     */
+    private void handleProducts(HttpExchange exchange, String[] segments) throws IOException {
+        String method = exchange.getRequestMethod();
+        Products products = lanes.getProducts();
+        if (segments.length == 0) {
+            requireMethod(method, "GET");
+            dumpProducts(exchange, orderOf(exchange.getRequestURI().getQuery()));
+        } else if (segments.length == 1 && segments[0].equals("lookup")) {
+            requireMethod(method, "POST");
+            lookupProducts(exchange, readIds(exchange));
+        } else if (segments.length == 1) {
+            int id = parseId(segments[0]);
+            switch (method) {
+                case "GET" -> {
+                    StringLongPair details = products.getDetails(id);
+                    if (details == null) {
+                        throw new RequestException(404, "Unknown product " + id);
+                    }
+                    JsonWriter json = respond(exchange, 200);
+                    writeProduct(json, id, details.getStringValue(), details.getLongValue());
+                    json.flush();
+                }
+                case "PUT" -> {
+                    JsonReader body = readBody(exchange);
+                    String name = null;
+                    long price = -1;
+                    body.beginObject();
+                    while (body.hasNext()) {
+                        switch (body.nextName()) {
+                            case "name" -> name = body.nextString();
+                            case "price" -> price = body.nextAmount();
+                            default -> body.skipValue();
+                        }
+                    }
+                    body.endObject();
+                    body.end();
+                    if (name == null || name.isBlank() || price < 0) {
+                        throw new RequestException(400, "A product needs a name and a price");
+                    }
+                    lanes.getAdmin().addProductDetails(id, name, price);
+                    JsonWriter json = respond(exchange, 200);
+                    writeProduct(json, id, name, price);
+                    json.flush();
+                }
+                case "DELETE" -> {
+                    if (!lanes.getAdmin().deleteProductDetails(id)) {
+                        throw new RequestException(404, "Unknown product " + id);
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                default -> throw methodNotAllowed(exchange, "GET, PUT, DELETE");
+            }
+        } else {
+            throw new RequestException(404, "Not found");
+        }
+    }
+
+    /**
+     * Serves the requests under /bills. The request is read in full before
+     * the bill is locked, and the response is rendered while it is locked
+     * but sent after it is unlocked, so a slow client never keeps a bill
+     * locked while it waits on the network.
+     *
+     * @param exchange The exchange.
+     * @param segments The path segments after /bills.
+     * @throws IOException If the request cannot be read or the response
+     * cannot be written.
+     */
+    private void handleBills(HttpExchange exchange, String[] segments) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (segments.length == 0) {
+            requireMethod(method, "POST");
+            int billNo = nextBillNo.getAndIncrement();
+            int laneNo = lanes.nextLaneNo();
+            HttpBill bill = new HttpBill(laneNo, lanes.openLane(laneNo));
+            bill.session.setQuiet(true);
+            byte[] response;
+            bill.lock.lock();
+            try {
+                bills.put(billNo, bill);
+                response = renderBill(billNo, bill.session);
+            } finally {
+                bill.lock.unlock();
+            }
+            send(exchange, 201, response);
+            return;
+        }
+        int billNo = parseId(segments[0]);
+        HttpBill bill = bills.get(billNo);
+        if (bill == null) {
+            throw new RequestException(404, "Unknown bill " + billNo);
+        }
+        boolean items = segments.length >= 2 && segments[1].equals("items");
+        int itemId = segments.length == 3 && items ? parseId(segments[2]) : -1;
+        ItemRequest item = null;
+        if (segments.length == 2 && items && method.equals("POST")) {
+            item = readItem(exchange);
+        } else if (segments.length == 3 && items && method.equals("PUT")) {
+            item = readQuantity(exchange, itemId);
+        }
+        byte[] response;
+        // A bill session must only be driven by one thread at a time, and a
+        // request that waited for a DELETE must not find the bill again
+        bill.lock.lock();
+        try {
+            if (bill.closed) {
+                throw new RequestException(404, "Unknown bill " + billNo);
+            }
+            bill.lastUsed = System.nanoTime();
+            BillCounterGuy session = bill.session;
+            if (segments.length == 1) {
+                response = switch (method) {
+                    case "GET" -> renderBill(billNo, session);
+                    case "DELETE" -> {
+                        closeBill(billNo, bill);
+                        yield null;
+                    }
+                    default -> throw methodNotAllowed(exchange, "GET, DELETE");
+                };
+            } else if (segments.length == 2 && segments[1].equals("complete")) {
+                requireMethod(method, "POST");
+                long amount = session.getBillAmount();
+                long archiveId;
+                try {
+                    archiveId = session.completeBill();
+                } catch (IOException e) {
+                    throw new RequestException(503, "Failed to archive the bill: " + e.getMessage());
+                }
+                closeBill(billNo, bill);
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                JsonWriter json = new JsonWriter(buffer);
+                json.beginObject().name("bill").value(billNo).name("archiveId").value(archiveId)
+                        .name("amount").amount(amount).endObject();
+                json.flush();
+                response = buffer.toByteArray();
+            } else if (segments.length == 2 && items) {
+                requireMethod(method, "POST");
+                if (session.isTheIdListed(item.id) == 0) {
+                    throw new RequestException(404, "Unknown product " + item.id);
+                }
+                session.addItem(item.id, item.qty);
+                response = renderBill(billNo, session);
+            } else if (segments.length == 3 && items) {
+                if (session.isTheIdAvailable(itemId) == 0) {
+                    throw new RequestException(404, "Item " + itemId + " is not on the bill");
+                }
+                switch (method) {
+                    case "PUT" -> session.modifyItem(itemId, item.qty);
+                    case "DELETE" -> session.removeItem(itemId);
+                    default -> throw methodNotAllowed(exchange, "PUT, DELETE");
+                }
+                response = renderBill(billNo, session);
+            } else {
+                throw new RequestException(404, "Not found");
+            }
+        } finally {
+            bill.lock.unlock();
+        }
+        if (response == null) {
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            send(exchange, 200, response);
+        }
+    }
+
+    /**
+     * Closes a bill and its lane, discarding whatever is left on it. Must be
+     * called holding the lock of the bill.
+     *
+     * @param billNo The bill number.
+     * @param bill The bill.
+     */
+    private void closeBill(int billNo, HttpBill bill) {
+        bill.closed = true;
+        bills.remove(billNo);
+        lanes.closeLane(bill.laneNo);
+    }
+
+    /**
+     * Discards every bill that has had no request for longer than the idle
+     * timeout, so abandoned bills do not keep their catalog versions pinned.
+     * A bill locked by a request is in use and is skipped.
+     */
+    private void expireIdleBills() {
+        long now = System.nanoTime();
+        bills.forEach((billNo, bill) -> {
+            if (!bill.lock.tryLock()) {
+                return;
+            }
+            try {
+                if (!bill.closed && now - bill.lastUsed > idleTimeoutNanos) {
+                    closeBill(billNo, bill);
+                }
+            } finally {
+                bill.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Reads the item to add to a bill, given as {"id":...,"qty":...} or
+     * {"barcode":...,"qty":...}, and resolves a barcode to its product.
+     *
+     * @param exchange The exchange.
+     * @return The item and quantity.
+     * @throws IOException If the body cannot be read.
+     */
+    private ItemRequest readItem(HttpExchange exchange) throws IOException {
+        JsonReader body = readBody(exchange);
+        int id = -1;
+        long barcode = -1;
+        int qty = 0;
+        body.beginObject();
+        while (body.hasNext()) {
+            switch (body.nextName()) {
+                case "id" -> id = body.nextInt();
+                case "barcode" -> barcode = body.nextLong();
+                case "qty" -> qty = body.nextInt();
+                default -> body.skipValue();
+            }
+        }
+        body.endObject();
+        body.end();
+        if (qty <= 0) {
+            throw new RequestException(400, "A quantity above zero is needed");
+        }
+        if (barcode >= 0) {
+            id = lanes.getProducts().findByBarcode(barcode);
+            if (id < 0) {
+                throw new RequestException(404, "Unknown barcode " + barcode);
+            }
+        }
+        if (id < 0) {
+            throw new RequestException(404, "Unknown product " + id);
+        }
+        return new ItemRequest(id, qty);
+    }
+
+    /**
+     * Reads the new quantity of an item on a bill, given as {"qty":...}.
+     *
+     * @param exchange The exchange.
+     * @param id The ID of the item.
+     * @return The item and quantity.
+     * @throws IOException If the body cannot be read.
+     */
+    private static ItemRequest readQuantity(HttpExchange exchange, int id) throws IOException {
+        JsonReader body = readBody(exchange);
+        int qty = 0;
+        body.beginObject();
+        while (body.hasNext()) {
+            if (body.nextName().equals("qty")) {
+                qty = body.nextInt();
+            } else {
+                body.skipValue();
+            }
+        }
+        body.endObject();
+        body.end();
+        if (qty <= 0) {
+            throw new RequestException(400, "A quantity above zero is needed");
+        }
+        return new ItemRequest(id, qty);
+    }
+
+    /**
+     * Streams every product in the given order, fetching one listing page at
+     * a time so the catalog is never locked while the client reads.
+     *
+     * @param exchange The exchange.
+     * @param order The order to list the products in.
+     * @throws IOException If the response cannot be written.
+     */
+    private void dumpProducts(HttpExchange exchange, CatalogListing.Order order) throws IOException {
+        Products products = lanes.getProducts();
+        NameDictionary names = products.getNames();
+        JsonWriter json = respond(exchange, 200);
+        json.beginArray();
+        CatalogListing.Cursor cursor = null;
+        do {
+            CatalogListing.Page page = products.listProducts(order, cursor, DUMP_PAGE_SIZE);
+            for (int i = 0; i < page.size(); i++) {
+                writeProduct(json, page.getId(i), names.decode(page.getNameCode(i)), page.getPrice(i));
+            }
+            cursor = page.getNext();
+        } while (cursor != null);
+        json.endArray();
+        json.flush();
+    }
+
+    /**
+     * Responds with the products of many IDs at once and the IDs that are
+     * not listed.
+     *
+     * @param exchange The exchange.
+     * @param ids The IDs to look up.
+     * @throws IOException If the response cannot be written.
+     */
+    private void lookupProducts(HttpExchange exchange, int[] ids) throws IOException {
+        Products products = lanes.getProducts();
+        NameDictionary names = products.getNames();
+        IntLongPair[] found = new IntLongPair[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            found[i] = products.getEncodedDetails(ids[i]);
+        }
+        JsonWriter json = respond(exchange, 200);
+        json.beginObject().name("products").beginArray();
+        for (int i = 0; i < ids.length; i++) {
+            if (found[i] != null) {
+                writeProduct(json, ids[i], names.decode(found[i].getIntValue()), found[i].getLongValue());
+            }
+        }
+        json.endArray().name("missing").beginArray();
+        for (int i = 0; i < ids.length; i++) {
+            if (found[i] == null) {
+                json.value(ids[i]);
+            }
+        }
+        json.endArray().endObject();
+        json.flush();
+    }
+
+    /**
+     * Reads the IDs of a bulk lookup, given as {"ids":[...]}.
+     *
+     * @param exchange The exchange.
+     * @return The IDs.
+     * @throws IOException If the body cannot be read.
+     */
+    private static int[] readIds(HttpExchange exchange) throws IOException {
+        JsonReader body = readBody(exchange);
+        int[] ids = new int[16];
+        int count = 0;
+        body.beginObject();
+        while (body.hasNext()) {
+            if (!body.nextName().equals("ids")) {
+                body.skipValue();
+                continue;
+            }
+            body.beginArray();
+            while (body.hasNext()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = body.nextInt();
+            }
+            body.endArray();
+        }
+        body.endObject();
+        body.end();
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Writes the running sales as {"units":...,"revenue":...,"products":[...]}
+     * with the units and revenue of every product sold so far, and flushes
+     * the response. The counters are copied first, so no lane waits on a
+     * slow client.
+     *
+     * @param json The writer.
+     * @param liveSales The running sales.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void writeSales(JsonWriter json, LiveSales liveSales) throws IOException {
+        LiveSales.Counters counters = liveSales.copy();
+        json.beginObject().name("units").value(liveSales.getTotalUnits())
+                .name("revenue").amount(liveSales.getTotalRevenue()).name("products").beginArray();
+        for (int position = 0; position < counters.size(); position++) {
+            json.beginObject().name("id").value(counters.productIdAt(position))
+                    .name("units").value(counters.unitsAt(position))
+                    .name("revenue").amount(counters.revenueAt(position)).endObject();
+        }
+        json.endArray().endObject();
+        json.flush();
+    }
+
+    /**
+     * Writes a product as {"id":...,"name":...,"price":...}.
+     *
+     * @param json The writer.
+     * @param id The product ID.
+     * @param name The product name.
+     * @param price The product price, in minor currency units.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void writeProduct(JsonWriter json, int id, String name, long price) throws IOException {
+        json.beginObject().name("id").value(id).name("name").value(name).name("price").amount(price).endObject();
+    }
+
+    /**
+     * Renders a bill with its amount, discount, lines and taxes. Must be
+     * called holding the lock of the bill.
+     *
+     * @param billNo The bill number.
+     * @param bill The bill session.
+     * @return The JSON body.
+     * @throws IOException If the writer fails.
+     */
+    private static byte[] renderBill(int billNo, BillCounterGuy bill) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        JsonWriter json = new JsonWriter(buffer);
+        long amount = bill.getBillAmount();
+        BillLines lines = bill.generateLines();
+        NameDictionary names = bill.getNames();
+        json.beginObject().name("bill").value(billNo).name("amount").amount(amount)
+                .name("discount").amount(bill.getDiscount()).name("lines").beginArray();
+        for (int position = 0; position < lines.size(); position++) {
+            json.beginObject().name("id").value(lines.itemIdAt(position))
+                    .name("name").value(names.decode(lines.nameCodeAt(position)))
+                    .name("qty").value(lines.quantityAt(position))
+                    .name("price").amount(lines.priceAt(position)).endObject();
+        }
+        json.endArray();
+        BillTaxes.Totals taxes = bill.getTaxes();
+        if (taxes != null) {
+            json.name("taxes").beginArray();
+            for (int rate = 0; rate < taxes.getRateCount(); rate++) {
+                TaxTable.Rate details = taxes.getRate(rate);
+                json.beginObject().name("name").value(details.name)
+                        .name("percent").percent(details.basisPoints)
+                        .name("inclusive").value(details.inclusive)
+                        .name("tax").amount(taxes.getTax(rate)).endObject();
+            }
+            json.endArray();
+        }
+        json.endObject();
+        json.flush();
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Sends a JSON body rendered beforehand.
+     *
+     * @param exchange The exchange.
+     * @param status The HTTP status.
+     * @param body The JSON body.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Sends the response headers for a JSON body of unknown length, which
+     * is then sent in chunks as it is written.
+     *
+     * @param exchange The exchange.
+     * @param status The HTTP status.
+     * @return A writer over the response body.
+     * @throws IOException If the headers cannot be sent.
+     */
+    private static JsonWriter respond(HttpExchange exchange, int status) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        return new JsonWriter(exchange.getResponseBody());
+    }
+
+    /**
+     * Responds with {"error":...}, unless a response was already started.
+     *
+     * @param exchange The exchange.
+     * @param status The HTTP status.
+     * @param message The reason the request was rejected.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        JsonWriter json = respond(exchange, status);
+        json.beginObject().name("error").value(message).endObject();
+        json.flush();
+    }
+
+    /**
+     * Reads the request body, up to MAX_BODY bytes.
+     *
+     * @param exchange The exchange.
+     * @return A reader over the body.
+     * @throws IOException If the body cannot be read.
+     */
+    private static JsonReader readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY + 1);
+        if (body.length > MAX_BODY) {
+            throw new RequestException(413, "Request body too large");
+        }
+        return new JsonReader(body, body.length);
+    }
+
+    /**
+     * Parses a product or bill number from a path segment.
+     *
+     * @param segment The path segment.
+     * @return The number.
+     */
+    private static int parseId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new RequestException(404, "Not found");
+        }
+    }
+
+    /**
+     * Picks the listing order from a query such as order=name.
+     *
+     * @param query The raw query, or null.
+     * @return The order, ID order by default.
+     */
+    private static CatalogListing.Order orderOf(String query) {
+        if (query == null) {
+            return CatalogListing.Order.ID;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("order=")) {
+                try {
+                    return CatalogListing.Order.valueOf(parameter.substring(6).toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new RequestException(400, "Unknown order " + parameter.substring(6));
+                }
+            }
+        }
+        return CatalogListing.Order.ID;
+    }
+
+    /**
+     * Rejects a request whose method is not the one the resource accepts.
+     *
+     * @param method The method of the request.
+     * @param allowed The method the resource accepts.
+     */
+    private static void requireMethod(String method, String allowed) {
+        if (!method.equals(allowed)) {
+            throw new RequestException(405, "Only " + allowed + " is allowed here");
+        }
+    }
+
+    /**
+     * Builds the rejection of a method a resource does not accept.
+     *
+     * @param exchange The exchange, which gets the Allow header.
+     * @param allowed The methods the resource accepts.
+     * @return The rejection to throw.
+     */
+    private static RequestException methodNotAllowed(HttpExchange exchange, String allowed) {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        return new RequestException(405, "Only " + allowed + " are allowed here");
+    }
+
+    /**
+     * Bill opened over HTTP and the lane it is served as. Guarded by its
+     * lock, which a request holds from the moment it has read its body until
+     * its response is rendered. The lock is a ReentrantLock rather than the
+     * monitor of the bill, so a virtual thread waiting for it releases its
+     * carrier.
+     */
+    private static final class HttpBill {
+
+        // Lock guarding the session and the fields below
+        final ReentrantLock lock = new ReentrantLock();
+
+        // Lane the bill is served as
+        final int laneNo;
+
+        // Bill session of the lane
+        final BillCounterGuy session;
+
+        // Time of the last request on the bill, from System.nanoTime
+        long lastUsed = System.nanoTime();
+
+        // Whether the bill was completed, discarded or expired
+        boolean closed;
+
+        /**
+         * Constructs an HttpBill.
+         *
+         * @param laneNo The lane the bill is served as.
+         * @param session The bill session of the lane.
+         */
+        HttpBill(int laneNo, BillCounterGuy session) {
+            this.laneNo = laneNo;
+            this.session = session;
+        }
+    }
+
+    /**
+     * Item and quantity read from the body of a bill request.
+     */
+    private static final class ItemRequest {
+
+        // Product ID of the item
+        final int id;
+
+        // Quantity of the item, above zero
+        final int qty;
+
+        /**
+         * Constructs an ItemRequest.
+         *
+         * @param id The product ID of the item.
+         * @param qty The quantity of the item.
+         */
+        ItemRequest(int id, int qty) {
+            this.id = id;
+            this.qty = qty;
+        }
+    }
+
+    /**
+     * Rejection of a request with the HTTP status to answer it with.
+     */
+    private static final class RequestException extends RuntimeException {
+
+        // Version of the serialized form
+        private static final long serialVersionUID = 1L;
+
+        // HTTP status of the response
+        final int status;
+
+        /**
+         * Constructs a RequestException.
+         *
+         * @param status The HTTP status of the response.
+         * @param message The reason the request was rejected.
+         */
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from primitive int keys to primitive int values. Used
+ * for small per-bill indexes where a HashMap would box every key and value.
+ */
+class IntIntMap {
+
+    // Value returned by get when a key is missing
+    static final int MISSING = -1;
+
+    // Slot keys
+    private int[] keys;
+
+    // Slot values, parallel to keys
+    private int[] values;
+
+    // Marks which slots are occupied
+    private boolean[] used;
+
+    // Number of occupied slots
+    private int size;
+
+    // Capacity - 1, used to wrap slot indexes
+    private int mask;
+
+    /**
+     * Constructs an empty IntIntMap.
+     */
+    public IntIntMap() {
+        allocate(16);
+    }
+
+    /**
+     * Allocates empty slot arrays of the given capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Spreads the bits of a key so sequential keys do not cluster.
+     *
+     * @param key The key.
+     * @return The home slot of the key.
+     */
+    private int slotOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Retrieves the value mapped to a key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or MISSING if the key is not present.
+     */
+    public int get(int key) {
+        int slot = slotOf(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Checks if a key is present.
+     *
+     * @param key The key to check.
+     * @return true if the key is present, otherwise false.
+     */
+    public boolean containsKey(int key) {
+        int slot = slotOf(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous value.
+     *
+     * @param key The key.
+     * @param value The value.
+     */
+    public void put(int key, int value) {
+        int slot = slotOf(key);
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 4 > keys.length * 3) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Removes a key, shifting later entries back to close the gap.
+     *
+     * @param key The key to remove.
+     * @return The removed value, or MISSING if the key was not present.
+     */
+    public int remove(int key) {
+        int hole = slotOf(key);
+        while (used[hole] && keys[hole] != key) {
+            hole = (hole + 1) & mask;
+        }
+        if (!used[hole]) {
+            return MISSING;
+        }
+        int removed = values[hole];
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (!used[slot]) {
+                break;
+            }
+            int home = slotOf(keys[slot]);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = keys[slot];
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        used[hole] = false;
+        size--;
+        return removed;
+    }
+
+    /**
+     * Removes every key while keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Retrieves the number of keys.
+     *
+     * @return The key count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Moves every entry into freshly allocated arrays of a new capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slotOf(oldKeys[i]);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,626 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only binary journal of catalog and bill mutations. Records are
+ * appended to an in-memory buffer and a background thread writes and syncs
+ * the buffer in batches (group commit), so a scan never waits for the disk.
+ * Callers that need a record to be durable can wait for it explicitly.
+ *
+ * Each record is laid out as [int length][int crc][byte type][payload],
+ * where length covers the type and payload and the CRC32C is computed over
+ * the same bytes. Prices and amounts are longs in minor currency units.
+ * Recovery reads the file through a bounded window, stops at the first torn
+ * or corrupt record and truncates the file there.
+ *
+ * A journal grown past CHECKPOINT_SIZE is checkpointed when it is opened:
+ * the recovered catalog is saved as a snapshot next to the journal, and the
+ * journal is replaced by one that only reopens the bill left open. Recovery
+ * loads the snapshot before replaying the journal, so a restart replays
+ * only what happened since the last checkpoint.
+ */
+class Journal implements Closeable {
+
+    // Record types
+    static final byte PRODUCT_SET = 1;
+    static final byte PRODUCT_REMOVE = 2;
+    static final byte PRODUCT_CLEAR = 3;
+    static final byte ITEM_ADD = 4;
+    static final byte ITEM_MODIFY = 5;
+    static final byte ITEM_REMOVE = 6;
+    static final byte BILL_COMPLETE = 7;
+    static final byte BILL_DISCARD = 8;
+    static final byte ARCHIVE_MARK = 9;
+
+    // Journal size past which it is checkpointed when opened
+    static final long CHECKPOINT_SIZE = 64 << 20;
+
+    // Suffix of the catalog snapshot written next to the journal file
+    static final String CHECKPOINT_SUFFIX = ".catalog";
+
+    // Initial size of the window recovery reads the file through
+    private static final int RECOVERY_WINDOW = 1 << 20;
+
+    // Commit interval used when none is configured
+    static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 20;
+
+    // Size of the length and crc fields in front of every record
+    private static final int HEADER_SIZE = 8;
+
+    // Pending bytes that make the flusher commit before the interval ends
+    private static final int FLUSH_THRESHOLD = 1 << 16;
+
+    // Channel of the journal file
+    private final FileChannel channel;
+
+    // Longest time a record waits in memory before it is committed
+    private final long commitIntervalMillis;
+
+    // Background thread committing pending records
+    private final Thread flusher;
+
+    // Records appended but not yet handed to the flusher
+    private ByteBuffer pending = ByteBuffer.allocate(FLUSH_THRESHOLD * 2);
+
+    // Buffer being written by the flusher, swapped with pending
+    private ByteBuffer writing = ByteBuffer.allocate(FLUSH_THRESHOLD * 2);
+
+    // Checksum reused for every record
+    private final CRC32C crc = new CRC32C();
+
+    // File offset just past the last appended record
+    private long appendedPosition;
+
+    // File offset up to which records are synced to disk
+    private long durablePosition;
+
+    // Start of the record currently being written to pending
+    private int recordStart;
+
+    // Whether a caller is waiting for the pending records to be committed
+    private boolean flushRequested;
+
+    // Whether the journal has been closed
+    private boolean closed;
+
+    // First error hit by the flusher, reported to later callers
+    private IOException failure;
+
+    // Archive synced before every commit, or null
+    private volatile BillArchive archive;
+
+    /**
+     * Opens a journal file for appending, creating it if needed. Recovery
+     * should be run on the file before it is opened.
+     *
+     * @param file The journal file.
+     * @param commitIntervalMillis The longest time a record waits in memory
+     * before it is written and synced.
+     * @throws IOException If the file cannot be opened.
+     */
+    public Journal(Path file, long commitIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+        this.appendedPosition = channel.size();
+        this.durablePosition = appendedPosition;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.flusher = new Thread(this::runFlusher, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Syncs a bill archive before every commit. Bills are archived before
+     * their completion is recorded, so syncing the archive first means no
+     * durable completion ever names a bill that is not on disk, at the cost
+     * of one archive sync per batch rather than per bill.
+     *
+     * @param archive The archive to sync, or null to stop syncing one.
+     */
+    public void syncWith(BillArchive archive) {
+        this.archive = archive;
+    }
+
+    /**
+     * Records that a product was added or updated.
+     *
+     * @param id The product ID.
+     * @param name The product name.
+     * @param price The product price.
+     */
+    public void productSet(int id, String name, long price) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        synchronized (this) {
+            ByteBuffer record = begin(PRODUCT_SET, 16 + nameBytes.length);
+            record.putInt(id).putLong(price).putInt(nameBytes.length).put(nameBytes);
+            end();
+        }
+    }
+
+    /**
+     * Records that a product was removed.
+     *
+     * @param id The product ID.
+     */
+    public synchronized void productRemove(int id) {
+        begin(PRODUCT_REMOVE, 4).putInt(id);
+        end();
+    }
+
+    /**
+     * Records that every product was removed.
+     */
+    public synchronized void productClear() {
+        begin(PRODUCT_CLEAR, 0);
+        end();
+    }
+
+    /**
+     * Records that an item was added to a bill.
+     *
+     * @param session The bill session number.
+     * @param id The item ID.
+     * @param qty The quantity added.
+     * @param lineAmount The price charged for the quantity.
+     */
+    public synchronized void itemAdd(int session, int id, int qty, long lineAmount) {
+        begin(ITEM_ADD, 20).putInt(session).putInt(id).putInt(qty).putLong(lineAmount);
+        end();
+    }
+
+    /**
+     * Records that the first line of an item was given a new quantity.
+     *
+     * @param session The bill session number.
+     * @param id The item ID.
+     * @param qty The new quantity.
+     * @param lineAmount The new price of the line.
+     */
+    public synchronized void itemModify(int session, int id, int qty, long lineAmount) {
+        begin(ITEM_MODIFY, 20).putInt(session).putInt(id).putInt(qty).putLong(lineAmount);
+        end();
+    }
+
+    /**
+     * Records that the first line of an item was removed from a bill.
+     *
+     * @param session The bill session number.
+     * @param id The item ID.
+     */
+    public synchronized void itemRemove(int session, int id) {
+        begin(ITEM_REMOVE, 8).putInt(session).putInt(id);
+        end();
+    }
+
+    /**
+     * Records that a bill was completed and its session started a new bill.
+     *
+     * @param session The bill session number.
+     * @param billId The archive ID of the bill, or 0 if it was not archived.
+     */
+    public synchronized void billComplete(int session, long billId) {
+        begin(BILL_COMPLETE, 12).putInt(session).putLong(billId);
+        end();
+    }
+
+    /**
+     * Records that the open bill of a session was discarded unpaid.
+     *
+     * @param session The bill session number.
+     */
+    public synchronized void billDiscard(int session) {
+        begin(BILL_DISCARD, 4).putInt(session);
+        end();
+    }
+
+    /**
+     * Records the newest bill in the archive when a checkpoint was taken,
+     * standing in for the completions the checkpoint dropped.
+     *
+     * @param billId The archive ID of the newest archived bill, or 0.
+     */
+    public synchronized void archiveMark(long billId) {
+        begin(ARCHIVE_MARK, 8).putLong(billId);
+        end();
+    }
+
+    /**
+     * Starts a record in the pending buffer. Must be called while holding
+     * the journal lock and followed by the payload and a call to end.
+     *
+     * @param type The record type.
+     * @param payloadSize The size of the payload in bytes.
+     * @return The pending buffer, positioned at the payload.
+     */
+    private ByteBuffer begin(byte type, int payloadSize) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        int recordSize = HEADER_SIZE + 1 + payloadSize;
+        if (pending.remaining() < recordSize) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + recordSize));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        recordStart = pending.position();
+        return pending.putInt(1 + payloadSize).putInt(0).put(type);
+    }
+
+    /**
+     * Finishes the record started by begin by filling in its checksum.
+     */
+    private void end() {
+        int start = recordStart;
+        int end = pending.position();
+        crc.reset();
+        crc.update(pending.array(), start + HEADER_SIZE, end - start - HEADER_SIZE);
+        pending.putInt(start + 4, (int) crc.getValue());
+        appendedPosition += end - start;
+        if (pending.position() >= FLUSH_THRESHOLD) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Retrieves the file offset just past the last appended record.
+     *
+     * @return The appended position.
+     */
+    public synchronized long getAppendedPosition() {
+        return appendedPosition;
+    }
+
+    /**
+     * Waits until every record up to a file offset is synced to disk.
+     *
+     * @param position The file offset to wait for.
+     * @throws IOException If the journal could not be written or the wait
+     * was interrupted.
+     */
+    public synchronized void awaitDurable(long position) throws IOException {
+        while (durablePosition < position) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (closed) {
+                throw new IOException("Journal is closed");
+            }
+            flushRequested = true;
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the journal");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Waits until every record appended so far is synced to disk.
+     *
+     * @throws IOException If the journal could not be written.
+     */
+    public void sync() throws IOException {
+        awaitDurable(getAppendedPosition());
+    }
+
+    /**
+     * Commits the remaining records, stops the flusher and closes the file.
+     *
+     * @throws IOException If the journal could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * Body of the flusher thread. Each round waits for the commit interval,
+     * the flush threshold or an explicit request, then writes every pending
+     * record and syncs the file once for the whole batch.
+     */
+    private void runFlusher() {
+        while (true) {
+            long batchEnd;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + commitIntervalMillis;
+                while (!closed && !flushRequested && pending.position() < FLUSH_THRESHOLD) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed && pending.position() == 0) {
+                    return;
+                }
+                flushRequested = false;
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                batchEnd = appendedPosition;
+            }
+            try {
+                if (writing.position() > 0) {
+                    BillArchive synced = archive;
+                    if (synced != null) {
+                        synced.sync();
+                    }
+                    writing.flip();
+                    while (writing.hasRemaining()) {
+                        channel.write(writing);
+                    }
+                    channel.force(false);
+                }
+                writing.clear();
+                synchronized (this) {
+                    durablePosition = batchEnd;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Replays a journal file into a catalog and bill sessions, then truncates
+     * any torn or corrupt tail so new records can be appended after the last
+     * valid one. Replay does not write to the journal again as long as the
+     * sessions have no journal attached yet.
+     *
+     * @param file The journal file; nothing is done if it does not exist.
+     * @param products The catalog to rebuild.
+     * @param sessions Provides the bill session for a session number.
+     * @return What the replay learned about archived bills.
+     * @throws IOException If the file cannot be read.
+     */
+    static Recovery recover(Path file, Products products, IntFunction<BillCounterGuy> sessions) throws IOException {
+        Recovery recovery = new Recovery();
+        Path snapshot = checkpointOf(file);
+        if (Files.exists(snapshot)) {
+            products.deleteAllDetails();
+            CatalogSnapshot.load(snapshot, products);
+            try {
+                products.compileBarcodes();
+            } catch (IllegalArgumentException e) {
+                throw new IOException(snapshot + ": " + e.getMessage());
+            }
+        }
+        if (!Files.exists(file)) {
+            return recovery;
+        }
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = in.size();
+            ByteBuffer window = ByteBuffer.allocate(RECOVERY_WINDOW).limit(0);
+            CRC32C check = new CRC32C();
+            long valid = 0;
+            while (true) {
+                window = fill(in, window, HEADER_SIZE);
+                if (window.remaining() < HEADER_SIZE) {
+                    break;
+                }
+                int start = window.position();
+                int length = window.getInt(start);
+                int expected = window.getInt(start + 4);
+                if (length < 1 || length > size - valid - HEADER_SIZE) {
+                    break;
+                }
+                window = fill(in, window, HEADER_SIZE + length);
+                if (window.remaining() < HEADER_SIZE + length) {
+                    break;
+                }
+                start = window.position();
+                ByteBuffer body = window.slice(start + HEADER_SIZE, length);
+                check.reset();
+                check.update(body.duplicate());
+                if ((int) check.getValue() != expected) {
+                    break;
+                }
+                byte type = body.get(0);
+                if (type >= ITEM_ADD && type <= BILL_DISCARD) {
+                    recovery.sessionFloors.put(body.getInt(1), recovery.lastBillId);
+                }
+                recovery.lastBillId = Math.max(recovery.lastBillId, apply(body, products, sessions));
+                window.position(start + HEADER_SIZE + length);
+                valid += HEADER_SIZE + length;
+            }
+            if (valid < size) {
+                in.truncate(valid);
+            }
+            return recovery;
+        }
+    }
+
+    /**
+     * Makes sure a recovery window holds at least a number of unread bytes,
+     * moving the unread bytes to its front, growing it if they cannot fit
+     * and reading more of the file after them.
+     *
+     * @param in The journal file.
+     * @param window The window, positioned at the first unread byte.
+     * @param needed The number of unread bytes needed.
+     * @return The window, possibly a new one, holding the needed bytes or
+     * every byte left in the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static ByteBuffer fill(FileChannel in, ByteBuffer window, int needed) throws IOException {
+        if (window.remaining() >= needed) {
+            return window;
+        }
+        if (window.capacity() < needed) {
+            window = ByteBuffer.allocate(needed).put(window).flip();
+        }
+        window.compact();
+        while (window.position() < needed && in.read(window) > 0) {
+            // Keep reading until the record is in or the file ends
+        }
+        return window.flip();
+    }
+
+    /**
+     * Checkpoints a recovered journal: saves the catalog as a snapshot next
+     * to the journal and replaces the journal by one that records the
+     * newest archived bill and reopens the bill left open. The snapshot is
+     * moved into place first; replaying the old journal over the new
+     * snapshot gives the same catalog, so a crash between the two moves
+     * loses nothing. Must be called before the journal is opened.
+     *
+     * @param file The journal file.
+     * @param products The recovered catalog.
+     * @param session The session number of the bill left open.
+     * @param bill The bill left open.
+     * @param lastBillId The archive ID of the newest archived bill, or 0.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    static void checkpoint(Path file, Products products, int session, BillCounterGuy bill, long lastBillId)
+            throws IOException {
+        CatalogSnapshot.save(products, checkpointOf(file));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        try (Journal rolled = new Journal(temp, DEFAULT_COMMIT_INTERVAL_MILLIS)) {
+            rolled.archiveMark(lastBillId);
+            BillLines lines = bill.generateLines();
+            for (int position = 0; position < lines.size(); position++) {
+                rolled.itemAdd(session, lines.itemIdAt(position), lines.quantityAt(position),
+                        lines.priceAt(position));
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Finds the catalog snapshot written by the checkpoints of a journal.
+     *
+     * @param file The journal file.
+     * @return The snapshot file.
+     */
+    static Path checkpointOf(Path file) {
+        return file.resolveSibling(file.getFileName() + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Applies one journal record.
+     *
+     * @param body The record type and payload.
+     * @param products The catalog to update.
+     * @param sessions Provides the bill session for a session number.
+     * @return The archive ID of a completed bill, otherwise 0.
+     */
+    private static long apply(ByteBuffer body, Products products, IntFunction<BillCounterGuy> sessions) {
+        switch (body.get()) {
+            case PRODUCT_SET -> {
+                int id = body.getInt();
+                long price = body.getLong();
+                byte[] name = new byte[body.getInt()];
+                body.get(name);
+                products.setDetails(id, new String(name, StandardCharsets.UTF_8), price);
+            }
+            case PRODUCT_REMOVE -> products.deleteDetails(body.getInt());
+            case PRODUCT_CLEAR -> products.deleteAllDetails();
+            case ITEM_ADD -> sessions.apply(body.getInt())
+                    .restoreAdd(body.getInt(), body.getInt(), body.getLong());
+            case ITEM_MODIFY -> sessions.apply(body.getInt())
+                    .restoreModify(body.getInt(), body.getInt(), body.getLong());
+            case ITEM_REMOVE -> sessions.apply(body.getInt())
+                    .restoreRemove(body.getInt());
+            case BILL_COMPLETE -> {
+                sessions.apply(body.getInt()).restoreComplete();
+                // Records written before the archive ID was added end here
+                return body.remaining() >= 8 ? body.getLong() : 0;
+            }
+            case BILL_DISCARD -> sessions.apply(body.getInt()).restoreDiscard();
+            case ARCHIVE_MARK -> {
+                return body.getLong();
+            }
+            default -> throw new IllegalStateException("Unknown journal record type");
+        }
+        return 0;
+    }
+
+    /**
+     * What a replay learned about the bills archived by its sessions.
+     */
+    static final class Recovery {
+
+        // Highest archive ID recorded with a completed bill
+        private long lastBillId;
+
+        // Highest archive ID recorded before the last record of each session
+        private final HashMap<Integer, Long> sessionFloors = new HashMap<>();
+
+        /**
+         * Retrieves the highest archive ID recorded with a completed bill.
+         *
+         * @return The archive ID, or 0 if no completed bill was archived.
+         */
+        public long getLastBillId() {
+            return lastBillId;
+        }
+
+        /**
+         * Retrieves the highest archive ID recorded before the last record
+         * of a session. A session archives its bill after its last line
+         * change and records the completion right after, so a bill of the
+         * session's lane with a higher ID whose completion is missing can
+         * only be its open bill, archived just before a crash.
+         *
+         * @param session The session number.
+         * @return The archive ID, or 0 if none was recorded before.
+         */
+        public long getArchivedBefore(int session) {
+            return sessionFloors.getOrDefault(session, 0L);
+        }
+    }
+}
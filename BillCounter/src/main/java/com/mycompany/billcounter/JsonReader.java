@@ -0,0 +1,428 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+
+/**
+ * Reads a JSON document token by token from its bytes, the way
+ * CommandTokenizer reads commands: the caller asks for the value it expects
+ * next, numbers and amounts are parsed straight from the bytes, and only
+ * strings allocate. Anything that is not valid JSON, or not the expected
+ * kind of value, is reported with an InputMismatchException.
+ */
+class JsonReader {
+
+    // Deepest nesting of objects and arrays accepted, which bounds the
+    // recursion of skipValue
+    static final int MAX_DEPTH = 64;
+
+    // Bytes of the document
+    private final byte[] data;
+
+    // Buffer view of the data, used to parse amounts in place
+    private final ByteBuffer dataView;
+
+    // Position after the last byte of the document
+    private final int limit;
+
+    // Position of the next unread byte
+    private int position;
+
+    // Whether a comma must come before the next member or element
+    private boolean expectComma;
+
+    // Number of objects and arrays currently open
+    private int depth;
+
+    /**
+     * Constructs a JsonReader over a document.
+     *
+     * @param data The bytes of the document, as UTF-8.
+     * @param length The number of bytes to read from the array.
+     */
+    public JsonReader(byte[] data, int length) {
+        this.data = data;
+        this.dataView = ByteBuffer.wrap(data);
+        this.limit = length;
+    }
+
+    /**
+     * Consumes the start of an object.
+     *
+     * @throws InputMismatchException If the next value is not an object,
+     * or it is nested deeper than MAX_DEPTH.
+     */
+    public void beginObject() {
+        expect('{');
+        enter();
+    }
+
+    /**
+     * Consumes the end of the current object.
+     *
+     * @throws InputMismatchException If the object has further members.
+     */
+    public void endObject() {
+        expect('}');
+        depth--;
+        expectComma = true;
+    }
+
+    /**
+     * Consumes the start of an array.
+     *
+     * @throws InputMismatchException If the next value is not an array, or
+     * it is nested deeper than MAX_DEPTH.
+     */
+    public void beginArray() {
+        expect('[');
+        enter();
+    }
+
+    /**
+     * Counts an object or array just opened.
+     *
+     * @throws InputMismatchException If it is nested deeper than MAX_DEPTH.
+     */
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw new InputMismatchException("Nested deeper than " + MAX_DEPTH + " at offset " + position);
+        }
+        expectComma = false;
+    }
+
+    /**
+     * Consumes the end of the current array.
+     *
+     * @throws InputMismatchException If the array has further elements.
+     */
+    public void endArray() {
+        expect(']');
+        depth--;
+        expectComma = true;
+    }
+
+    /**
+     * Checks if the current object or array has another member or element,
+     * consuming the comma before it.
+     *
+     * @return true if another member or element follows.
+     * @throws InputMismatchException If the separator is malformed.
+     */
+    public boolean hasNext() {
+        int c = peek();
+        if (c == '}' || c == ']') {
+            return false;
+        }
+        if (expectComma) {
+            if (c != ',') {
+                throw new InputMismatchException("Expected ',' at offset " + position);
+            }
+            position++;
+            expectComma = false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the name of the next member of an object and its colon.
+     *
+     * @return The member name.
+     * @throws InputMismatchException If no member name follows.
+     */
+    public String nextName() {
+        String name = nextString();
+        expect(':');
+        expectComma = false;
+        return name;
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @return The decoded string.
+     * @throws InputMismatchException If the next value is not a string.
+     */
+    public String nextString() {
+        expect('"');
+        StringBuilder text = null;
+        int runStart = position;
+        while (true) {
+            if (position == limit) {
+                throw new InputMismatchException("Unterminated string");
+            }
+            int c = data[position] & 0xFF;
+            if (c == '"') {
+                String run = new String(data, runStart, position - runStart, StandardCharsets.UTF_8);
+                position++;
+                expectComma = true;
+                return text == null ? run : text.append(run).toString();
+            }
+            if (c < 0x20) {
+                throw new InputMismatchException("Control character in string at offset " + position);
+            }
+            if (c != '\\') {
+                position++;
+                continue;
+            }
+            if (text == null) {
+                text = new StringBuilder();
+            }
+            text.append(new String(data, runStart, position - runStart, StandardCharsets.UTF_8));
+            position++;
+            text.append(nextEscaped());
+            runStart = position;
+        }
+    }
+
+    /**
+     * Reads a whole number that fits an int.
+     *
+     * @return The number.
+     * @throws InputMismatchException If the next value is not such a number.
+     */
+    public int nextInt() {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new InputMismatchException("Number out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a whole number.
+     *
+     * @return The number.
+     * @throws InputMismatchException If the next value is not a whole number.
+     */
+    public long nextLong() {
+        int from = numberStart();
+        int end = numberEnd(from);
+        boolean negative = data[from] == '-';
+        int digitsFrom = negative ? from + 1 : from;
+        if (end == digitsFrom) {
+            throw new InputMismatchException("Expected a whole number at offset " + from);
+        }
+        long value = 0;
+        try {
+            for (int i = digitsFrom; i < end; i++) {
+                int c = data[i];
+                if (c < '0' || c > '9') {
+                    throw new InputMismatchException("Expected a whole number at offset " + from);
+                }
+                // Accumulate negatively so Long.MIN_VALUE fits
+                value = Math.subtractExact(Math.multiplyExact(value, 10), c - '0');
+            }
+            value = negative ? value : Math.negateExact(value);
+        } catch (ArithmeticException e) {
+            throw new InputMismatchException("Number out of range at offset " + from);
+        }
+        position = end;
+        expectComma = true;
+        return value;
+    }
+
+    /**
+     * Reads an amount written as a number or a string, such as 12.50 or
+     * "12.50".
+     *
+     * @return The amount in minor currency units.
+     * @throws InputMismatchException If the next value is not an amount.
+     */
+    public long nextAmount() {
+        if (peek() == '"') {
+            try {
+                return Money.parse(nextString());
+            } catch (NumberFormatException | ArithmeticException e) {
+                throw new InputMismatchException("Expected an amount");
+            }
+        }
+        int from = numberStart();
+        int end = numberEnd(from);
+        try {
+            long amount = Money.parse(dataView, from, end);
+            position = end;
+            expectComma = true;
+            return amount;
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new InputMismatchException("Expected an amount at offset " + from);
+        }
+    }
+
+    /**
+     * Skips the next value, whatever its kind.
+     *
+     * @throws InputMismatchException If the next value is malformed.
+     */
+    public void skipValue() {
+        int c = peek();
+        if (c == '{') {
+            beginObject();
+            while (hasNext()) {
+                nextName();
+                skipValue();
+            }
+            endObject();
+        } else if (c == '[') {
+            beginArray();
+            while (hasNext()) {
+                skipValue();
+            }
+            endArray();
+        } else if (c == '"') {
+            nextString();
+        } else if (c == '-' || (c >= '0' && c <= '9')) {
+            int from = numberStart();
+            position = numberEnd(from);
+            expectComma = true;
+        } else if (matches("true") || matches("false") || matches("null")) {
+            expectComma = true;
+        } else {
+            throw new InputMismatchException("Unexpected character at offset " + position);
+        }
+    }
+
+    /**
+     * Checks that nothing but white space follows the document.
+     *
+     * @throws InputMismatchException If more data follows.
+     */
+    public void end() {
+        if (peek() != -1) {
+            throw new InputMismatchException("Unexpected data after the document at offset " + position);
+        }
+    }
+
+    /**
+     * Skips white space and returns the next byte without consuming it.
+     *
+     * @return The next byte, or -1 at the end of the document.
+     */
+    private int peek() {
+        while (position < limit) {
+            int c = data[position] & 0xFF;
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    /**
+     * Consumes an expected structural character.
+     *
+     * @param expected The character.
+     * @throws InputMismatchException If another character follows.
+     */
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw new InputMismatchException("Expected '" + expected + "' at offset " + position);
+        }
+        position++;
+    }
+
+    /**
+     * Consumes a literal such as true if it comes next.
+     *
+     * @param literal The literal.
+     * @return true if the literal was consumed.
+     */
+    private boolean matches(String literal) {
+        int end = position + literal.length();
+        if (end > limit) {
+            return false;
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (data[position + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        position = end;
+        return true;
+    }
+
+    /**
+     * Finds the start of the next number.
+     *
+     * @return The position of its first byte.
+     * @throws InputMismatchException If no number follows.
+     */
+    private int numberStart() {
+        int c = peek();
+        if (c != '-' && (c < '0' || c > '9')) {
+            throw new InputMismatchException("Expected a number at offset " + position);
+        }
+        return position;
+    }
+
+    /**
+     * Finds the end of the number starting at a position.
+     *
+     * @param from The position of its first byte.
+     * @return The position after its last byte.
+     */
+    private int numberEnd(int from) {
+        int end = from + 1;
+        while (end < limit) {
+            int c = data[end];
+            if ((c < '0' || c > '9') && c != '.' && c != 'e' && c != 'E' && c != '+' && c != '-') {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Decodes the escape sequence after a backslash in a string.
+     *
+     * @return The escaped character.
+     * @throws InputMismatchException If the escape is malformed.
+     */
+    private char nextEscaped() {
+        if (position == limit) {
+            throw new InputMismatchException("Unterminated string");
+        }
+        int c = data[position++];
+        switch (c) {
+            case '"', '\\', '/' -> {
+                return (char) c;
+            }
+            case 'b' -> {
+                return '\b';
+            }
+            case 'f' -> {
+                return '\f';
+            }
+            case 'n' -> {
+                return '\n';
+            }
+            case 'r' -> {
+                return '\r';
+            }
+            case 't' -> {
+                return '\t';
+            }
+            case 'u' -> {
+                if (position + 4 > limit) {
+                    throw new InputMismatchException("Unterminated string");
+                }
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(data[position++], 16);
+                    if (digit < 0) {
+                        throw new InputMismatchException("Malformed escape at offset " + position);
+                    }
+                    code = code * 16 + digit;
+                }
+                return (char) code;
+            }
+            default -> throw new InputMismatchException("Malformed escape at offset " + position);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes JSON to a stream through one fixed buffer that is handed to the
+ * stream whenever it fills up, so a response of any size, such as a dump of
+ * the whole catalog, is sent as it is produced without ever being held in
+ * memory as a whole. Numbers and amounts are written digit by digit and
+ * text is escaped and encoded as UTF-8 straight into the buffer. Commas are
+ * placed automatically; the caller only has to nest the calls correctly.
+ */
+class JsonWriter {
+
+    // Size of the output buffer
+    private static final int BUFFER_SIZE = 8192;
+
+    // Room kept for the longest single token written without a check
+    private static final int MAX_TOKEN = 24;
+
+    // Hexadecimal digits used to escape control characters
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    // Stream the JSON is written to
+    private final OutputStream out;
+
+    // Output buffer
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    // Number of bytes in the buffer
+    private int length;
+
+    // Whether the next value or name must be preceded by a comma
+    private boolean needComma;
+
+    /**
+     * Constructs a JsonWriter over the specified stream.
+     *
+     * @param out The stream to write to.
+     */
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Opens an object.
+     *
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter beginObject() throws IOException {
+        separate();
+        writeByte('{');
+        needComma = false;
+        return this;
+    }
+
+    /**
+     * Closes the innermost object.
+     *
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter endObject() throws IOException {
+        writeByte('}');
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Opens an array.
+     *
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter beginArray() throws IOException {
+        separate();
+        writeByte('[');
+        needComma = false;
+        return this;
+    }
+
+    /**
+     * Closes the innermost array.
+     *
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter endArray() throws IOException {
+        writeByte(']');
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of an object.
+     *
+     * @param name The member name.
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter name(String name) throws IOException {
+        separate();
+        writeString(name);
+        writeByte(':');
+        needComma = false;
+        return this;
+    }
+
+    /**
+     * Writes a text value.
+     *
+     * @param text The text, or null.
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter value(String text) throws IOException {
+        if (text == null) {
+            return nullValue();
+        }
+        separate();
+        writeString(text);
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a whole number.
+     *
+     * @param number The number.
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter value(long number) throws IOException {
+        separate();
+        reserve(MAX_TOKEN);
+        writeDigits(number);
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a true or false value.
+     *
+     * @param flag The value.
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter value(boolean flag) throws IOException {
+        separate();
+        writeAscii(flag ? "true" : "false");
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Writes an amount as a number with two decimal places, such as 12.50.
+     *
+     * @param amount The amount in minor currency units.
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter amount(long amount) throws IOException {
+        separate();
+        reserve(MAX_TOKEN);
+        long units = amount / Money.ONE;
+        int cents = (int) (amount % Money.ONE);
+        if (amount < 0) {
+            buffer[length++] = '-';
+            units = -units;
+            cents = -cents;
+        }
+        writeDigits(units);
+        buffer[length++] = '.';
+        buffer[length++] = (byte) ('0' + cents / 10);
+        buffer[length++] = (byte) ('0' + cents % 10);
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a rate as a percentage with two decimal places, such as 7.25
+     * for 725 basis points.
+     *
+     * @param basisPoints The rate in hundredths of a percent, not negative.
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter percent(int basisPoints) throws IOException {
+        separate();
+        reserve(MAX_TOKEN);
+        writeDigits(basisPoints / TaxTable.BASIS_POINTS_PER_PERCENT);
+        int hundredths = basisPoints % TaxTable.BASIS_POINTS_PER_PERCENT;
+        buffer[length++] = '.';
+        buffer[length++] = (byte) ('0' + hundredths / 10);
+        buffer[length++] = (byte) ('0' + hundredths % 10);
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Writes a null value.
+     *
+     * @return This writer.
+     * @throws IOException If the stream cannot be written.
+     */
+    public JsonWriter nullValue() throws IOException {
+        separate();
+        writeAscii("null");
+        needComma = true;
+        return this;
+    }
+
+    /**
+     * Hands everything written so far to the stream and flushes it.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes the comma due before the next value or name.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    private void separate() throws IOException {
+        if (needComma) {
+            writeByte(',');
+        }
+    }
+
+    /**
+     * Makes room for the given number of bytes, handing the buffer to the
+     * stream if it is too full.
+     *
+     * @param bytes The number of bytes about to be written.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void reserve(int bytes) throws IOException {
+        if (length + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    /**
+     * Hands the buffered bytes to the stream.
+     *
+     * @throws IOException If the stream cannot be written.
+     */
+    private void drain() throws IOException {
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+    /**
+     * Writes a single ASCII character.
+     *
+     * @param c The character.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeByte(char c) throws IOException {
+        reserve(1);
+        buffer[length++] = (byte) c;
+    }
+
+    /**
+     * Writes a short ASCII keyword.
+     *
+     * @param keyword The keyword.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeAscii(String keyword) throws IOException {
+        reserve(keyword.length());
+        for (int i = 0; i < keyword.length(); i++) {
+            buffer[length++] = (byte) keyword.charAt(i);
+        }
+    }
+
+    /**
+     * Writes the decimal digits of a number; the caller has reserved room.
+     *
+     * @param value The number.
+     */
+    private void writeDigits(long value) {
+        if (value < 0) {
+            buffer[length++] = '-';
+        } else {
+            value = -value;
+        }
+        // Work with the negative value so Long.MIN_VALUE needs no special case
+        int end = length;
+        do {
+            buffer[end++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = length, j = end - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+        length = end;
+    }
+
+    /**
+     * Writes text as a quoted JSON string, escaping quotes, backslashes and
+     * control characters and encoding the rest as UTF-8.
+     *
+     * @param text The text.
+     * @throws IOException If the stream cannot be written.
+     */
+    private void writeString(String text) throws IOException {
+        writeByte('"');
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            reserve(6);
+            if (c == '"' || c == '\\') {
+                buffer[length++] = '\\';
+                buffer[length++] = (byte) c;
+            } else if (c < 0x20) {
+                buffer[length++] = '\\';
+                buffer[length++] = 'u';
+                buffer[length++] = '0';
+                buffer[length++] = '0';
+                buffer[length++] = HEX[c >> 4];
+                buffer[length++] = HEX[c & 0xF];
+            } else if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // A lone surrogate cannot be encoded; write a replacement
+                buffer[length++] = (byte) 0xEF;
+                buffer[length++] = (byte) 0xBF;
+                buffer[length++] = (byte) 0xBD;
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets: every power
+ * of two range is split into 16 equal sub-buckets, which bounds the error of
+ * any reported value to 1/16 of it. Recording is a few atomic increments and
+ * never blocks, so many lanes can record into one histogram concurrently.
+ */
+class LatencyHistogram {
+
+    // Number of bits of linear precision inside each power of two
+    private static final int SUB_BUCKET_BITS = 4;
+
+    // Number of sub-buckets per power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Enough buckets for every non-negative long value
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    // Number of values recorded in each bucket
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    // Number of values recorded
+    private final LongAdder count = new LongAdder();
+
+    // Sum of the values recorded
+    private final LongAdder sum = new LongAdder();
+
+    // Largest value recorded
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Finds the bucket of a value.
+     *
+     * @param value The value, at least 0.
+     * @return The bucket index.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * Finds the smallest value that falls into a bucket.
+     *
+     * @param bucket The bucket index.
+     * @return The lower bound of the bucket.
+     */
+    static long lowestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Records one value.
+     *
+     * @param value The value to record; negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Retrieves the number of values recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Retrieves the mean of the values recorded.
+     *
+     * @return The mean, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Retrieves the largest value recorded.
+     *
+     * @return The maximum, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimates the value below which the given share of values fall.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The lower bound of the bucket holding the percentile, or 0 if
+     * nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(lowestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Clears every recorded value. Values recorded concurrently with a reset
+     * may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
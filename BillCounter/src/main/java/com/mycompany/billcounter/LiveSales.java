@@ -0,0 +1,301 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Running units and revenue per product, updated with the exact change of
+ * every bill mutation so a dashboard can read the sales since the counters
+ * were created at any time without going over the bills. The counters are
+ * never cleared while bills are open, since removing a line scanned before
+ * a reset would drive them negative; sales of a given day are reported from
+ * the bill archive instead. Products are spread over independently locked
+ * stripes holding primitive arrays, so lanes updating different products
+ * rarely meet on a lock and no update allocates. The totals are kept in
+ * LongAdders that readers can sum without taking any lock.
+ */
+class LiveSales {
+
+    // Number of stripes, a power of two
+    private static final int STRIPES = 64;
+
+    // Stripes holding the per-product counters
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    // Units sold over every product
+    private final LongAdder totalUnits = new LongAdder();
+
+    // Revenue over every product, in minor currency units
+    private final LongAdder totalRevenue = new LongAdder();
+
+    /**
+     * Constructs LiveSales with no sales recorded.
+     */
+    public LiveSales() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Finds the stripe a product belongs to.
+     *
+     * @param productId The product ID.
+     * @return The stripe.
+     */
+    private Stripe stripeOf(int productId) {
+        int h = productId * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Applies the change made by one bill mutation to a product.
+     *
+     * @param productId The product ID.
+     * @param unitsDelta The change in units sold.
+     * @param revenueDelta The change in revenue, in minor currency units.
+     */
+    public void record(int productId, long unitsDelta, long revenueDelta) {
+        Stripe stripe = stripeOf(productId);
+        synchronized (stripe) {
+            int slot = stripe.slotFor(productId);
+            // Add up the revenue first, so an overflow leaves both counters
+            long revenue = Money.plus(stripe.revenue[slot], revenueDelta);
+            stripe.units[slot] += unitsDelta;
+            stripe.revenue[slot] = revenue;
+        }
+        totalUnits.add(unitsDelta);
+        totalRevenue.add(revenueDelta);
+    }
+
+    /**
+     * Retrieves the units sold of a product.
+     *
+     * @param productId The product ID.
+     * @return The units sold.
+     */
+    public long getUnits(int productId) {
+        Stripe stripe = stripeOf(productId);
+        synchronized (stripe) {
+            int slot = stripe.slots.get(productId);
+            return slot == IntIntMap.MISSING ? 0 : stripe.units[slot];
+        }
+    }
+
+    /**
+     * Retrieves the revenue of a product.
+     *
+     * @param productId The product ID.
+     * @return The revenue, in minor currency units.
+     */
+    public long getRevenue(int productId) {
+        Stripe stripe = stripeOf(productId);
+        synchronized (stripe) {
+            int slot = stripe.slots.get(productId);
+            return slot == IntIntMap.MISSING ? 0 : stripe.revenue[slot];
+        }
+    }
+
+    /**
+     * Retrieves the units sold over every product.
+     *
+     * @return The total units.
+     */
+    public long getTotalUnits() {
+        return totalUnits.sum();
+    }
+
+    /**
+     * Retrieves the revenue over every product.
+     *
+     * @return The total revenue, in minor currency units.
+     */
+    public long getTotalRevenue() {
+        return totalRevenue.sum();
+    }
+
+    /**
+     * Copies the counters of every product that has had sales, so they can
+     * be sorted or sent to a slow reader without holding any stripe lock.
+     *
+     * @return The copied counters.
+     */
+    public Counters copy() {
+        Counters counters = new Counters();
+        forEach(counters);
+        return counters;
+    }
+
+    /**
+     * Visits the counters of every product that has had sales. Each stripe
+     * is visited under its lock, so the visitor must not block.
+     *
+     * @param visitor The visitor to call for each product.
+     */
+    public void forEach(SalesVisitor visitor) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int slot = 0; slot < stripe.size; slot++) {
+                    visitor.visit(stripe.productIds[slot], stripe.units[slot], stripe.revenue[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counters of the products hashed to one stripe, guarded by the stripe
+     * itself.
+     */
+    private static final class Stripe {
+
+        // Slot of each product in the counter arrays
+        final IntIntMap slots = new IntIntMap();
+
+        // Product IDs, indexed by slot
+        int[] productIds = new int[16];
+
+        // Units sold, indexed by slot
+        long[] units = new long[16];
+
+        // Revenue, indexed by slot
+        long[] revenue = new long[16];
+
+        // Number of slots in use
+        int size;
+
+        /**
+         * Finds the slot of a product, adding zeroed counters if it is new.
+         *
+         * @param productId The product ID.
+         * @return The slot of the product.
+         */
+        int slotFor(int productId) {
+            int slot = slots.get(productId);
+            if (slot == IntIntMap.MISSING) {
+                slot = size++;
+                if (slot == productIds.length) {
+                    productIds = Arrays.copyOf(productIds, slot * 2);
+                    units = Arrays.copyOf(units, slot * 2);
+                    revenue = Arrays.copyOf(revenue, slot * 2);
+                }
+                productIds[slot] = productId;
+                units[slot] = 0;
+                revenue[slot] = 0;
+                slots.put(productId, slot);
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Copy of the counters of every product that has had sales, in no
+     * particular order.
+     */
+    static final class Counters implements SalesVisitor {
+
+        // Product IDs of the copied counters
+        private int[] productIds = new int[16];
+
+        // Units sold, parallel to productIds
+        private long[] units = new long[16];
+
+        // Revenue, parallel to productIds
+        private long[] revenue = new long[16];
+
+        // Number of products copied
+        private int size;
+
+        /**
+         * Appends the counters of one product to the copy.
+         *
+         * @param productId The product ID.
+         * @param units The units sold.
+         * @param revenue The revenue, in minor currency units.
+         */
+        @Override
+        public void visit(int productId, long units, long revenue) {
+            if (size == productIds.length) {
+                productIds = Arrays.copyOf(productIds, size * 2);
+                this.units = Arrays.copyOf(this.units, size * 2);
+                this.revenue = Arrays.copyOf(this.revenue, size * 2);
+            }
+            productIds[size] = productId;
+            this.units[size] = units;
+            this.revenue[size++] = revenue;
+        }
+
+        /**
+         * Retrieves the number of products copied.
+         *
+         * @return The product count.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Retrieves the product ID at a position of the copy.
+         *
+         * @param position The position.
+         * @return The product ID.
+         */
+        public int productIdAt(int position) {
+            return productIds[position];
+        }
+
+        /**
+         * Retrieves the units sold at a position of the copy.
+         *
+         * @param position The position.
+         * @return The units sold.
+         */
+        public long unitsAt(int position) {
+            return units[position];
+        }
+
+        /**
+         * Retrieves the revenue at a position of the copy.
+         *
+         * @param position The position.
+         * @return The revenue, in minor currency units.
+         */
+        public long revenueAt(int position) {
+            return revenue[position];
+        }
+
+        /**
+         * Retrieves the best-selling products by units sold, ties broken by
+         * revenue.
+         *
+         * @param n The number of products to return.
+         * @return The positions of the products, best seller first.
+         */
+        public int[] getTopSellers(int n) {
+            return IntStream.range(0, size).boxed()
+                    .sorted((a, b) -> units[a] != units[b]
+                            ? Long.compare(units[b], units[a]) : Long.compare(revenue[b], revenue[a]))
+                    .limit(n)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+    }
+
+    /**
+     * Callback used to read the counters without copying them.
+     */
+    interface SalesVisitor {
+
+        /**
+         * Called once for each product that has had sales.
+         *
+         * @param productId The product ID.
+         * @param units The units sold.
+         * @param revenue The revenue, in minor currency units.
+         */
+        void visit(int productId, long units, long revenue);
+    }
+}
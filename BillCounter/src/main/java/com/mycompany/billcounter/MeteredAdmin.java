@@ -0,0 +1,56 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import com.mycompany.billcounter.CheckoutMetrics.Operation;
+
+/**
+ * Admin that records the latency of every catalog change in CheckoutMetrics.
+ */
+class MeteredAdmin extends Admin {
+
+    // Metrics the latencies are recorded in
+    private final CheckoutMetrics metrics;
+
+    /**
+     * Constructs a MeteredAdmin over the specified catalog.
+     *
+     * @param products The Products instance to manage.
+     * @param journal The journal to record changes in, or null.
+     * @param metrics The metrics to record latencies in.
+     */
+    public MeteredAdmin(Products products, Journal journal, CheckoutMetrics metrics) {
+        super(products, journal);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void addProductDetails(int id, String name, long price) {
+        long start = System.nanoTime();
+        super.addProductDetails(id, name, price);
+        metrics.record(Operation.ADD_PRODUCT, start);
+    }
+
+    @Override
+    public void removeProductDetails(int id) {
+        long start = System.nanoTime();
+        super.removeProductDetails(id);
+        metrics.record(Operation.REMOVE_PRODUCT, start);
+    }
+
+    @Override
+    public boolean deleteProductDetails(int id) {
+        long start = System.nanoTime();
+        boolean removed = super.deleteProductDetails(id);
+        metrics.record(Operation.REMOVE_PRODUCT, start);
+        return removed;
+    }
+
+    @Override
+    public void clearAllProductDetails() {
+        long start = System.nanoTime();
+        super.clearAllProductDetails();
+        metrics.record(Operation.CLEAR_PRODUCTS, start);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import com.mycompany.billcounter.CheckoutMetrics.Operation;
+import java.io.IOException;
+
+/**
+ * BillCounterGuy that records the latency of every catalog lookup and bill
+ * operation in CheckoutMetrics. Lookups made while adding or modifying an
+ * item are recorded both as lookups and as part of that operation.
+ */
+class MeteredBillCounterGuy extends BillCounterGuy {
+
+    // Metrics the latencies are recorded in
+    private final CheckoutMetrics metrics;
+
+    /**
+     * Constructs a MeteredBillCounterGuy over the specified catalog.
+     *
+     * @param products The Products instance to fetch product details from.
+     * @param mergeRepeatedScans true to merge repeated scans of an item.
+     * @param metrics The metrics to record latencies in.
+     */
+    public MeteredBillCounterGuy(Products products, boolean mergeRepeatedScans, CheckoutMetrics metrics) {
+        super(products, mergeRepeatedScans);
+        this.metrics = metrics;
+    }
+
+    @Override
+    IntLongPair fetchProductDetails(int id) {
+        long start = System.nanoTime();
+        IntLongPair details = super.fetchProductDetails(id);
+        metrics.record(Operation.LOOKUP_PRODUCT, start);
+        return details;
+    }
+
+    @Override
+    public void addItem(int id, int qty) {
+        long start = System.nanoTime();
+        super.addItem(id, qty);
+        metrics.record(Operation.ADD_ITEM, start);
+    }
+
+    @Override
+    public ScanBatchResult addItems(int[] ids, int[] qtys) {
+        long start = System.nanoTime();
+        ScanBatchResult result = super.addItems(ids, qtys);
+        metrics.record(Operation.ADD_ITEMS, start);
+        return result;
+    }
+
+    @Override
+    public void modifyItem(int id, int qty) {
+        long start = System.nanoTime();
+        super.modifyItem(id, qty);
+        metrics.record(Operation.MODIFY_ITEM, start);
+    }
+
+    @Override
+    void removeItem(int id) {
+        long start = System.nanoTime();
+        super.removeItem(id);
+        metrics.record(Operation.REMOVE_ITEM, start);
+    }
+
+    @Override
+    public long completeBill() throws IOException {
+        long start = System.nanoTime();
+        long billId = super.completeBill();
+        metrics.record(Operation.COMPLETE_BILL, start);
+        return billId;
+    }
+
+    @Override
+    BillLines generateLines() {
+        long start = System.nanoTime();
+        BillLines bill = super.generateLines();
+        metrics.record(Operation.GENERATE_BILL, start);
+        return bill;
+    }
+}
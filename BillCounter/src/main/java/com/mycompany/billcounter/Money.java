@@ -0,0 +1,206 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-point money arithmetic on plain long values. An amount is a count of
+ * minor currency units (hundredths), so 12.50 is held as 1250. Keeping the
+ * amount in a primitive means bill math never allocates, and every operation
+ * throws an ArithmeticException instead of silently overflowing.
+ */
+final class Money {
+
+    // Number of decimal places of an amount
+    static final int SCALE = 2;
+
+    // Number of minor units in one major unit
+    static final long ONE = 100;
+
+    /**
+     * Utility class; not meant to be instantiated.
+     */
+    private Money() {
+    }
+
+    /**
+     * Adds two amounts.
+     *
+     * @param a The first amount.
+     * @param b The second amount.
+     * @return The sum.
+     * @throws ArithmeticException If the sum overflows.
+     */
+    static long plus(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Subtracts one amount from another.
+     *
+     * @param a The amount to subtract from.
+     * @param b The amount to subtract.
+     * @return The difference.
+     * @throws ArithmeticException If the difference overflows.
+     */
+    static long minus(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Multiplies a unit price by a quantity.
+     *
+     * @param unitPrice The price of one unit.
+     * @param qty The quantity.
+     * @return The price of the quantity.
+     * @throws ArithmeticException If the product overflows.
+     */
+    static long times(long unitPrice, int qty) {
+        return Math.multiplyExact(unitPrice, (long) qty);
+    }
+
+    /**
+     * Computes the part of an amount a ratio stands for, rounded toward zero.
+     * The product is formed exactly, so the result is correct whenever it
+     * fits in a long, however large the intermediate product.
+     *
+     * @param amount The amount to take a part of.
+     * @param part The numerator of the ratio.
+     * @param whole The denominator of the ratio.
+     * @return amount * part / whole.
+     * @throws ArithmeticException If whole is 0 or the result overflows.
+     */
+    static long scale(long amount, long part, long whole) {
+        long high = Math.multiplyHigh(amount, part);
+        long low = amount * part;
+        if (high == (low >> 63)) {
+            return low / whole;
+        }
+        return BigInteger.valueOf(amount).multiply(BigInteger.valueOf(part))
+                .divide(BigInteger.valueOf(whole)).longValueExact();
+    }
+
+    /**
+     * Parses a decimal amount such as "12", "12.5" or "-0.99".
+     *
+     * @param text The text to parse.
+     * @return The amount in minor units.
+     * @throws NumberFormatException If the text is not a valid amount or has
+     * more than two decimal places.
+     */
+    static long parse(CharSequence text) {
+        int i = 0;
+        int n = text.length();
+        while (i < n && text.charAt(i) <= ' ') {
+            i++;
+        }
+        while (n > i && text.charAt(n - 1) <= ' ') {
+            n--;
+        }
+        boolean negative = i < n && text.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long amount = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9' && decimals < SCALE) {
+                amount = Math.addExact(Math.multiplyExact(amount, 10), c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+        }
+        return finish(amount, digits, decimals, negative, text);
+    }
+
+    /**
+     * Parses a decimal amount from ASCII bytes, the same way as
+     * parse(CharSequence) but without building any text first.
+     *
+     * @param data The bytes holding the amount.
+     * @param from The index of the first byte.
+     * @param to The index just past the last byte.
+     * @return The amount in minor units.
+     * @throws NumberFormatException If the bytes are not a valid amount.
+     */
+    static long parse(ByteBuffer data, int from, int to) {
+        while (from < to && data.get(from) <= ' ') {
+            from++;
+        }
+        while (to > from && data.get(to - 1) <= ' ') {
+            to--;
+        }
+        boolean negative = from < to && data.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        long amount = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < to; i++) {
+            byte c = data.get(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9' && decimals < SCALE) {
+                amount = Math.addExact(Math.multiplyExact(amount, 10), c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else {
+                throw new NumberFormatException("Invalid amount");
+            }
+        }
+        return finish(amount, digits, decimals, negative, "");
+    }
+
+    /**
+     * Scales parsed digits to minor units and applies the sign.
+     *
+     * @param amount The value of the digits read.
+     * @param digits The number of digits read.
+     * @param decimals The number of decimal places read, or -1 if there was
+     * no decimal point.
+     * @param negative Whether the amount had a minus sign.
+     * @param text The parsed text, for error messages.
+     * @return The amount in minor units.
+     */
+    private static long finish(long amount, int digits, int decimals, boolean negative, CharSequence text) {
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid amount: " + text);
+        }
+        for (int d = Math.max(decimals, 0); d < SCALE; d++) {
+            amount = Math.multiplyExact(amount, 10);
+        }
+        return negative ? -amount : amount;
+    }
+
+    /**
+     * Formats an amount with two decimal places, such as "12.50".
+     *
+     * @param amount The amount in minor units.
+     * @return The formatted amount.
+     */
+    static String format(long amount) {
+        StringBuilder text = new StringBuilder(24);
+        long units = Math.abs(amount / ONE);
+        int cents = (int) Math.abs(amount % ONE);
+        if (amount < 0) {
+            text.append('-');
+        }
+        text.append(units).append('.');
+        if (cents < 10) {
+            text.append('0');
+        }
+        return text.append(cents).toString();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+
+/**
+ * Append-only dictionary that gives every distinct product name a compact int
+ * code. The catalog and bill lines store only the code, so a name shared by
+ * many products or scanned onto many lines is held once, and the text is
+ * looked up only when a receipt or listing is rendered.
+ *
+ * Codes are never reused or released, so a bill line keeps resolving to the
+ * name it was scanned with after the product is renamed or removed. Encoding
+ * is synchronized; decoding takes no lock, since the names array is only
+ * ever appended to and is republished through a volatile write after every
+ * change.
+ */
+class NameDictionary {
+
+    // Code of the empty name, used for lines whose product is no longer listed
+    static final int EMPTY = 0;
+
+    // Names by code
+    private volatile String[] names = new String[64];
+
+    // Number of codes handed out
+    private int size;
+
+    // Hash table of code + 1 for each name, 0 marking a free slot
+    private int[] table = new int[128];
+
+    /**
+     * Constructs a NameDictionary holding only the empty name.
+     */
+    public NameDictionary() {
+        encode("");
+    }
+
+    /**
+     * Spreads the hash of a name over the table.
+     *
+     * @param name The name.
+     * @param mask The table length - 1.
+     * @return The home slot of the name.
+     */
+    private static int slotOf(String name, int mask) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Retrieves the code of a name, adding the name if it is new.
+     *
+     * @param name The name to encode.
+     * @return The code of the name.
+     */
+    public synchronized int encode(String name) {
+        String[] current = names;
+        int mask = table.length - 1;
+        int slot = slotOf(name, mask);
+        while (table[slot] != 0) {
+            int code = table[slot] - 1;
+            if (current[code].equals(name)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int code = size++;
+        if (code == current.length) {
+            current = Arrays.copyOf(current, code * 2);
+        }
+        current[code] = name;
+        table[slot] = code + 1;
+        // Publish the new name to readers
+        names = current;
+        if (size * 2 > table.length) {
+            rehash(current);
+        }
+        return code;
+    }
+
+    /**
+     * Retrieves the name of a code.
+     *
+     * @param code A code returned by encode.
+     * @return The name.
+     */
+    public String decode(int code) {
+        return names[code];
+    }
+
+    /**
+     * Retrieves the number of distinct names, including the empty name.
+     *
+     * @return The name count.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Rebuilds the hash table at twice its size.
+     *
+     * @param current The names by code.
+     */
+    private void rehash(String[] current) {
+        int[] grown = new int[table.length * 2];
+        int mask = grown.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = slotOf(current[code], mask);
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = code + 1;
+        }
+        table = grown;
+    }
+}
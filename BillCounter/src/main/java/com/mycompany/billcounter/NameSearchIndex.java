@@ -0,0 +1,613 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Word index over product names for prefix and typo-tolerant lookups. Names
+ * are split into lower-case words; every distinct word gets an ID, a sorted
+ * vocabulary answers prefix lookups with a range scan, and a bigram index
+ * over the vocabulary finds the words within a small edit distance of a
+ * misspelt query word. Each word keeps the IDs of the products whose name
+ * contains it in the order they were added, and each product keeps the IDs
+ * of its words and its position in the list of each word. Removing a
+ * product therefore leaves a tombstone at a known position instead of
+ * searching the lists, and a list is compacted once half of it is
+ * tombstones.
+ *
+ * A query walks the products of its most selective word only, checks the
+ * other query words against the word IDs of each product, and stops as soon
+ * as no better products can follow, instead of ranking the whole catalog.
+ * The index is not thread-safe; Products updates and queries it under its
+ * lock.
+ */
+class NameSearchIndex {
+
+    // Marks the start and end of a word when cutting it into bigrams
+    private static final char BOUNDARY = '\u0001';
+
+    // Word IDs in word order
+    private final TreeMap<String, Integer> wordIds = new TreeMap<>();
+
+    // Words by word ID
+    private final List<String> words = new ArrayList<>();
+
+    // Products whose name contains each word, by word ID
+    private final List<Postings> productsOfWord = new ArrayList<>();
+
+    // Words containing each bigram, keyed by the packed bigram
+    private final HashMap<Integer, Postings> wordsOfBigram = new HashMap<>();
+
+    // Slot of each indexed product in wordsOfProduct
+    private final IntIntMap slotOfProduct = new IntIntMap();
+
+    // Word IDs of the name of each product, by slot
+    private int[][] wordsOfProduct = new int[64][];
+
+    // Position of each product in the postings of its words, parallel to
+    // wordsOfProduct
+    private int[][] positionsOfProduct = new int[64][];
+
+    // Slots freed by removed products, reused before new ones
+    private final Postings freeSlots = new Postings();
+
+    // Number of slots ever handed out
+    private int slotCount;
+
+    /**
+     * Indexes the name of a product, replacing the name it was indexed with
+     * before.
+     *
+     * @param productId The product ID.
+     * @param name The product name.
+     */
+    public void add(int productId, String name) {
+        remove(productId);
+        List<String> nameWords = splitWords(name);
+        int[] ids = new int[nameWords.size()];
+        int[] positions = new int[ids.length];
+        int count = 0;
+        for (String word : nameWords) {
+            int wordId = wordIdFor(word);
+            if (indexOf(ids, count, wordId) < 0) {
+                positions[count] = productsOfWord.get(wordId).add(productId);
+                ids[count++] = wordId;
+            }
+        }
+        int slot;
+        if (freeSlots.size > 0) {
+            slot = freeSlots.ids[--freeSlots.size];
+        } else {
+            slot = slotCount++;
+            if (slot == wordsOfProduct.length) {
+                wordsOfProduct = Arrays.copyOf(wordsOfProduct, slot * 2);
+                positionsOfProduct = Arrays.copyOf(positionsOfProduct, slot * 2);
+            }
+        }
+        wordsOfProduct[slot] = count == ids.length ? ids : Arrays.copyOf(ids, count);
+        positionsOfProduct[slot] = count == positions.length ? positions : Arrays.copyOf(positions, count);
+        slotOfProduct.put(productId, slot);
+    }
+
+    /**
+     * Finds the ID of a word, adding it to the vocabulary if it is new.
+     *
+     * @param word The word.
+     * @return The word ID.
+     */
+    private int wordIdFor(String word) {
+        Integer wordId = wordIds.get(word);
+        if (wordId == null) {
+            int newId = words.size();
+            wordIds.put(word, newId);
+            words.add(word);
+            productsOfWord.add(new Postings());
+            for (int bigram : bigrams(word)) {
+                wordsOfBigram.computeIfAbsent(bigram, b -> new Postings()).add(newId);
+            }
+            return newId;
+        }
+        return wordId;
+    }
+
+    /**
+     * Removes a product from the index. Words that no product uses any more
+     * stay in the vocabulary with no products.
+     *
+     * @param productId The product ID.
+     */
+    public void remove(int productId) {
+        int slot = slotOfProduct.remove(productId);
+        if (slot == IntIntMap.MISSING) {
+            return;
+        }
+        int[] nameWords = wordsOfProduct[slot];
+        int[] positions = positionsOfProduct[slot];
+        wordsOfProduct[slot] = null;
+        positionsOfProduct[slot] = null;
+        for (int i = 0; i < nameWords.length; i++) {
+            Postings products = productsOfWord.get(nameWords[i]);
+            products.removeAt(positions[i]);
+            if (products.removedCount * 2 > products.size) {
+                compact(nameWords[i], products);
+            }
+        }
+        freeSlots.add(slot);
+    }
+
+    /**
+     * Drops the tombstones of the products of a word, keeping the order of
+     * the others and updating their positions.
+     *
+     * @param wordId The word ID.
+     * @param products The products of the word.
+     */
+    private void compact(int wordId, Postings products) {
+        int kept = 0;
+        for (int i = 0; i < products.size; i++) {
+            if (products.removed[i]) {
+                products.removed[i] = false;
+                continue;
+            }
+            int productId = products.ids[i];
+            int slot = slotOfProduct.get(productId);
+            int[] nameWords = wordsOfProduct[slot];
+            positionsOfProduct[slot][indexOf(nameWords, nameWords.length, wordId)] = kept;
+            products.ids[kept++] = productId;
+        }
+        products.size = kept;
+        products.removedCount = 0;
+    }
+
+    /**
+     * Removes every product and word.
+     */
+    public void clear() {
+        wordIds.clear();
+        words.clear();
+        productsOfWord.clear();
+        wordsOfBigram.clear();
+        slotOfProduct.clear();
+        Arrays.fill(wordsOfProduct, 0, slotCount, null);
+        Arrays.fill(positionsOfProduct, 0, slotCount, null);
+        freeSlots.size = 0;
+        slotCount = 0;
+    }
+
+    /**
+     * Finds products where every query word is the start of a word of the
+     * name, so "dar choc" finds "Dark Chocolate". Results are ordered by the
+     * matched word, then by the order the products were added.
+     *
+     * @param query The words typed so far.
+     * @param limit The largest number of products to return.
+     * @return The IDs of up to limit matching products.
+     */
+    public int[] searchPrefix(String query, int limit) {
+        List<String> tokens = splitWords(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        // Drive the search with the query word starting the fewest products
+        Collection<Integer> driverWords = null;
+        long driverCost = Long.MAX_VALUE;
+        for (String token : tokens) {
+            Collection<Integer> candidates = wordsStartingWith(token);
+            long cost = 0;
+            for (int wordId : candidates) {
+                cost += productsOfWord.get(wordId).liveSize();
+                if (cost >= driverCost) {
+                    break;
+                }
+            }
+            if (cost < driverCost) {
+                driverCost = cost;
+                driverWords = candidates;
+            }
+        }
+        int[] found = new int[limit];
+        int count = 0;
+        // A product can only be met twice through two different words
+        IntIntMap seen = driverWords.size() > 1 ? new IntIntMap() : null;
+        for (int wordId : driverWords) {
+            Postings products = productsOfWord.get(wordId);
+            for (int i = 0; i < products.size; i++) {
+                if (products.removed[i]) {
+                    continue;
+                }
+                int productId = products.ids[i];
+                if (seen != null) {
+                    if (seen.containsKey(productId)) {
+                        continue;
+                    }
+                    seen.put(productId, 0);
+                }
+                if (tokens.size() == 1 || allPrefixesMatch(tokens, productId)) {
+                    found[count++] = productId;
+                    if (count == limit) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Checks that every query word starts some word of a product name.
+     *
+     * @param tokens The query words.
+     * @param productId The product ID.
+     * @return true if every word matches.
+     */
+    private boolean allPrefixesMatch(List<String> tokens, int productId) {
+        int[] nameWords = wordsOfProduct[slotOfProduct.get(productId)];
+        for (String token : tokens) {
+            boolean matched = false;
+            for (int wordId : nameWords) {
+                if (words.get(wordId).startsWith(token)) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds products whose name contains a word close to every query word,
+     * allowing typos: words of up to three letters must match the start of a
+     * name word, longer words may be one edit away and words of eight or
+     * more letters two edits. An edit is an inserted, deleted, replaced or
+     * swapped letter. Results are ordered by the total number of edits.
+     *
+     * @param query The query words.
+     * @param limit The largest number of products to return.
+     * @return The IDs of up to limit matching products, closest first.
+     */
+    public int[] searchFuzzy(String query, int limit) {
+        List<String> tokens = splitWords(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        // Find the distance of the candidate words of every query word and
+        // pick the query word matching the fewest products to drive the
+        // search
+        IntIntMap[] distances = new IntIntMap[tokens.size()];
+        List<int[]> driverWords = null;
+        long driverCost = Long.MAX_VALUE;
+        int driverClosest = 0;
+        int closestTotal = 0;
+        for (int t = 0; t < tokens.size(); t++) {
+            List<int[]> candidates = similarWords(tokens.get(t));
+            if (candidates.isEmpty()) {
+                return new int[0];
+            }
+            distances[t] = new IntIntMap();
+            long cost = 0;
+            int closest = Integer.MAX_VALUE;
+            for (int[] candidate : candidates) {
+                distances[t].put(candidate[0], candidate[1]);
+                cost += productsOfWord.get(candidate[0]).liveSize();
+                closest = Math.min(closest, candidate[1]);
+            }
+            closestTotal += closest;
+            if (cost < driverCost) {
+                driverCost = cost;
+                driverWords = candidates;
+                driverClosest = closest;
+            }
+        }
+        driverWords.sort((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(a[0], b[0]));
+
+        // Closer driver words are done first, and no product found through a
+        // driver word can score below its distance plus the closest distance
+        // of every other query word, so the search is over once limit
+        // products have scored exactly that
+        List<long[]> found = new ArrayList<>();
+        IntIntMap seen = driverWords.size() > 1 ? new IntIntMap() : null;
+        int groupDistance = -1;
+        int lowestScore = 0;
+        int bestInGroup = 0;
+        search:
+        for (int[] candidate : driverWords) {
+            if (candidate[1] != groupDistance) {
+                if (found.size() >= limit) {
+                    break;
+                }
+                groupDistance = candidate[1];
+                lowestScore = closestTotal - driverClosest + groupDistance;
+                bestInGroup = 0;
+            }
+            Postings products = productsOfWord.get(candidate[0]);
+            for (int i = 0; i < products.size; i++) {
+                if (products.removed[i]) {
+                    continue;
+                }
+                int productId = products.ids[i];
+                if (seen != null) {
+                    if (seen.containsKey(productId)) {
+                        continue;
+                    }
+                    seen.put(productId, 0);
+                }
+                int score = tokens.size() == 1 ? candidate[1] : nameDistance(distances, productId);
+                if (score >= 0) {
+                    found.add(new long[]{score, found.size(), productId});
+                    if (score <= lowestScore && ++bestInGroup == limit) {
+                        break search;
+                    }
+                }
+            }
+        }
+        found.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        int[] result = new int[Math.min(limit, found.size())];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) found.get(i)[2];
+        }
+        return result;
+    }
+
+    /**
+     * Finds the vocabulary words starting with a query word.
+     *
+     * @param token The query word.
+     * @return The word IDs, in word order.
+     */
+    private Collection<Integer> wordsStartingWith(String token) {
+        return wordIds.subMap(token, true, token + Character.MAX_VALUE, false).values();
+    }
+
+    /**
+     * Finds the vocabulary words matching one query word.
+     *
+     * @param token The query word.
+     * @return Pairs of word ID and edit distance.
+     */
+    private List<int[]> similarWords(String token) {
+        List<int[]> result = new ArrayList<>();
+        int maxEdits = maxEdits(token);
+        if (maxEdits == 0) {
+            for (int wordId : wordsStartingWith(token)) {
+                result.add(new int[]{wordId, 0});
+            }
+            return result;
+        }
+        // Count the bigrams each word shares with the query word; an edit
+        // breaks at most three of them, a swap being the worst
+        int[] queryBigrams = bigrams(token);
+        IntIntMap shared = new IntIntMap();
+        Postings touched = new Postings();
+        for (int bigram : queryBigrams) {
+            Postings wordsWithBigram = wordsOfBigram.get(bigram);
+            if (wordsWithBigram == null) {
+                continue;
+            }
+            for (int i = 0; i < wordsWithBigram.size; i++) {
+                int wordId = wordsWithBigram.ids[i];
+                int count = shared.get(wordId);
+                if (count == IntIntMap.MISSING) {
+                    touched.add(wordId);
+                    count = 0;
+                }
+                shared.put(wordId, count + 1);
+            }
+        }
+        int needed = queryBigrams.length - 3 * maxEdits;
+        for (int i = 0; i < touched.size; i++) {
+            int wordId = touched.ids[i];
+            if (shared.get(wordId) >= needed) {
+                int distance = editDistance(token, words.get(wordId), maxEdits);
+                if (distance <= maxEdits) {
+                    result.add(new int[]{wordId, distance});
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scores a product against every query word.
+     *
+     * @param distances The distance of each candidate word, per query word.
+     * @param productId The product ID.
+     * @return The total number of edits, or -1 if a query word has no close
+     * word in the name.
+     */
+    private int nameDistance(IntIntMap[] distances, int productId) {
+        int[] nameWords = wordsOfProduct[slotOfProduct.get(productId)];
+        int total = 0;
+        for (IntIntMap candidates : distances) {
+            int best = Integer.MAX_VALUE;
+            for (int wordId : nameWords) {
+                int distance = candidates.get(wordId);
+                if (distance != IntIntMap.MISSING) {
+                    best = Math.min(best, distance);
+                }
+            }
+            if (best == Integer.MAX_VALUE) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * Chooses how many edits a query word may be away from a name word.
+     *
+     * @param token The query word.
+     * @return The allowed number of edits.
+     */
+    private static int maxEdits(String token) {
+        if (token.length() <= 3) {
+            return 0;
+        }
+        return token.length() < 8 ? 1 : 2;
+    }
+
+    /**
+     * Computes the optimal string alignment distance of two words, giving up
+     * once it is certain to exceed a bound.
+     *
+     * @param a The first word.
+     * @param b The second word.
+     * @param bound The largest distance of interest.
+     * @return The distance, or bound + 1 if it exceeds the bound.
+     */
+    static int editDistance(String a, String b, int bound) {
+        int n = a.length();
+        int m = b.length();
+        if (Math.abs(n - m) > bound) {
+            return bound + 1;
+        }
+        int[] beforePrevious = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] spare = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = spare;
+        }
+        return Math.min(previous[m], bound + 1);
+    }
+
+    /**
+     * Packs the bigrams of a word, padded with a boundary marker at each end,
+     * into ints.
+     *
+     * @param word The word.
+     * @return One more bigram than the word has letters.
+     */
+    private static int[] bigrams(String word) {
+        int n = word.length();
+        int[] result = new int[n + 1];
+        for (int i = 0; i <= n; i++) {
+            char first = i == 0 ? BOUNDARY : word.charAt(i - 1);
+            char second = i == n ? BOUNDARY : word.charAt(i);
+            result[i] = (first << 16) | second;
+        }
+        return result;
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     *
+     * @param text The text.
+     * @return The words, in order.
+     */
+    static List<String> splitWords(String text) {
+        List<String> result = new ArrayList<>(4);
+        int n = text.length();
+        int start = -1;
+        for (int i = 0; i <= n; i++) {
+            boolean wordChar = i < n && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds an ID among the first entries of an array.
+     *
+     * @param ids The array.
+     * @param count The number of entries in use.
+     * @param id The ID to find.
+     * @return The index of the ID, or -1 if it is not present.
+     */
+    private static int indexOf(int[] ids, int count, int id) {
+        for (int i = 0; i < count; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Growable list of int IDs in the order they were added. An ID is
+     * removed by its position and leaves a tombstone, so the others keep
+     * their order and position until the owner compacts the list.
+     */
+    private static final class Postings {
+
+        // The IDs, tombstones included
+        int[] ids = new int[4];
+
+        // Whether each entry is a tombstone, parallel to ids
+        boolean[] removed = new boolean[4];
+
+        // Number of entries, tombstones included
+        int size;
+
+        // Number of tombstones
+        int removedCount;
+
+        /**
+         * Appends an ID.
+         *
+         * @param id The ID.
+         * @return The position of the ID.
+         */
+        int add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                removed = Arrays.copyOf(removed, size * 2);
+            }
+            ids[size] = id;
+            return size++;
+        }
+
+        /**
+         * Turns the entry at a position into a tombstone.
+         *
+         * @param position The position returned when the ID was added.
+         */
+        void removeAt(int position) {
+            removed[position] = true;
+            removedCount++;
+        }
+
+        /**
+         * Retrieves the number of IDs that were not removed.
+         *
+         * @return The live entry count.
+         */
+        int liveSize() {
+            return size - removedCount;
+        }
+    }
+}
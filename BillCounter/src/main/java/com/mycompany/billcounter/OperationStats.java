@@ -0,0 +1,135 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Represents the latency and throughput figures of one operation type at
+ * the moment they were read. Latencies are in nanoseconds.
+ */
+public class OperationStats {
+
+    // Name of the operation type
+    private final String name;
+
+    // Number of operations recorded
+    private final long count;
+
+    // Operations per second since the metrics were started or reset
+    private final double throughput;
+
+    // Mean latency
+    private final double meanNanos;
+
+    // Median latency
+    private final long p50Nanos;
+
+    // 99th percentile latency
+    private final long p99Nanos;
+
+    // 99.9th percentile latency
+    private final long p999Nanos;
+
+    // Largest latency
+    private final long maxNanos;
+
+    /**
+     * Constructs an OperationStats object with the specified figures.
+     *
+     * @param name The name of the operation type.
+     * @param count The number of operations recorded.
+     * @param throughput The operations per second.
+     * @param meanNanos The mean latency.
+     * @param p50Nanos The median latency.
+     * @param p99Nanos The 99th percentile latency.
+     * @param p999Nanos The 99.9th percentile latency.
+     * @param maxNanos The largest latency.
+     */
+    @ConstructorProperties({"name", "count", "throughput", "meanNanos", "p50Nanos", "p99Nanos", "p999Nanos", "maxNanos"})
+    public OperationStats(String name, long count, double throughput, double meanNanos,
+            long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.name = name;
+        this.count = count;
+        this.throughput = throughput;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Retrieves the name of the operation type.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Retrieves the number of operations recorded.
+     *
+     * @return The count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Retrieves the operations per second since the metrics were started or
+     * reset.
+     *
+     * @return The throughput.
+     */
+    public double getThroughput() {
+        return throughput;
+    }
+
+    /**
+     * Retrieves the mean latency.
+     *
+     * @return The mean in nanoseconds.
+     */
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    /**
+     * Retrieves the median latency.
+     *
+     * @return The median in nanoseconds.
+     */
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    /**
+     * Retrieves the 99th percentile latency.
+     *
+     * @return The percentile in nanoseconds.
+     */
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    /**
+     * Retrieves the 99.9th percentile latency.
+     *
+     * @return The percentile in nanoseconds.
+     */
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    /**
+     * Retrieves the largest latency.
+     *
+     * @return The maximum in nanoseconds.
+     */
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table keyed by primitive int product IDs. Name codes
+ * from a NameDictionary, prices and optional barcodes are kept in parallel
+ * arrays so no key is ever boxed and no wrapper object or name reference is
+ * held per product. Collisions are resolved with linear probing
+ * and deletions use backward shifting, so no tombstones are left behind.
+ *
+ * The slot arrays are held by a single Slots reference that is swapped as a
+ * whole on rehash, and the capacity never shrinks. A reader racing with a
+ * writer therefore always probes a consistent set of arrays and terminates,
+ * although it may observe stale values; Products uses this to serve lookups
+ * under optimistic reads.
+ */
+class ProductTable {
+
+    // Smallest capacity the table is created with
+    private static final int MIN_CAPACITY = 16;
+
+    // Barcode stored for products that have none
+    static final long NO_BARCODE = 0;
+
+    // Current slot arrays
+    private volatile Slots slots;
+
+    // Number of occupied slots
+    private int size;
+
+    /**
+     * Constructs an empty ProductTable.
+     */
+    public ProductTable() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty ProductTable sized for the expected number of
+     * products.
+     *
+     * @param expectedSize The number of products expected to be stored.
+     */
+    public ProductTable(int expectedSize) {
+        slots = new Slots(capacityFor(expectedSize));
+    }
+
+    /**
+     * Computes a power of two capacity that keeps the load factor under 3/4.
+     *
+     * @param expectedSize The number of products expected to be stored.
+     * @return The capacity to allocate.
+     */
+    private static int capacityFor(int expectedSize) {
+        long needed = Math.max(MIN_CAPACITY, (long) expectedSize * 4 / 3 + 1);
+        if (needed > (1 << 30)) {
+            throw new IllegalArgumentException("Too many products: " + expectedSize);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    /**
+     * Spreads the bits of an ID so sequential IDs do not cluster.
+     *
+     * @param id The product ID.
+     * @param mask The capacity - 1 of the slot arrays.
+     * @return The home slot of the ID.
+     */
+    private static int slotOf(int id, int mask) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Finds the slot holding the given ID.
+     *
+     * @param id The product ID to look for.
+     * @return The slot index, or -1 if the ID is not stored.
+     */
+    int indexOf(int id) {
+        Slots s = slots;
+        int slot = slotOf(id, s.mask);
+        while (s.used[slot]) {
+            if (s.keys[slot] == id) {
+                return slot;
+            }
+            slot = (slot + 1) & s.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if a product with the given ID is stored.
+     *
+     * @param id The product ID.
+     * @return true if the ID is stored, otherwise false.
+     */
+    public boolean contains(int id) {
+        return indexOf(id) >= 0;
+    }
+
+    /**
+     * Retrieves the name code stored at a slot returned by indexOf.
+     *
+     * @param slot The slot index.
+     * @return The dictionary code of the product name.
+     */
+    int nameCodeAt(int slot) {
+        return slots.nameCodes[slot];
+    }
+
+    /**
+     * Retrieves the price stored at a slot returned by indexOf.
+     *
+     * @param slot The slot index.
+     * @return The product price, in minor currency units.
+     */
+    long priceAt(int slot) {
+        return slots.prices[slot];
+    }
+
+    /**
+     * Retrieves the barcode stored at a slot returned by indexOf.
+     *
+     * @param slot The slot index.
+     * @return The barcode, or NO_BARCODE if the product has none.
+     */
+    long barcodeAt(int slot) {
+        return slots.barcodes[slot];
+    }
+
+    /**
+     * Inserts a product or replaces the details of an existing one. An
+     * existing product keeps its barcode.
+     *
+     * @param id The product ID.
+     * @param nameCode The dictionary code of the product name.
+     * @param price The product price.
+     */
+    public void put(int id, int nameCode, long price) {
+        put(id, nameCode, price, NO_BARCODE, true);
+    }
+
+    /**
+     * Inserts a product or replaces the details of an existing one,
+     * including its barcode.
+     *
+     * @param id The product ID.
+     * @param nameCode The dictionary code of the product name.
+     * @param price The product price.
+     * @param barcode The barcode, or NO_BARCODE for none.
+     */
+    public void put(int id, int nameCode, long price, long barcode) {
+        put(id, nameCode, price, barcode, false);
+    }
+
+    /**
+     * Inserts a product or replaces the details of an existing one.
+     *
+     * @param id The product ID.
+     * @param nameCode The dictionary code of the product name.
+     * @param price The product price.
+     * @param barcode The barcode, or NO_BARCODE for none.
+     * @param keepBarcode Whether an existing product keeps its barcode.
+     */
+    private void put(int id, int nameCode, long price, long barcode, boolean keepBarcode) {
+        Slots s = slots;
+        int slot = slotOf(id, s.mask);
+        while (s.used[slot]) {
+            if (s.keys[slot] == id) {
+                s.nameCodes[slot] = nameCode;
+                s.prices[slot] = price;
+                if (!keepBarcode) {
+                    s.barcodes[slot] = barcode;
+                }
+                return;
+            }
+            slot = (slot + 1) & s.mask;
+        }
+        s.keys[slot] = id;
+        s.nameCodes[slot] = nameCode;
+        s.prices[slot] = price;
+        s.barcodes[slot] = barcode;
+        s.used[slot] = true;
+        if (++size * 4 > s.keys.length * 3) {
+            rehash(s.keys.length << 1);
+        }
+    }
+
+    /**
+     * Grows the table up front so the given number of products fit without
+     * further rehashing.
+     *
+     * @param expectedSize The number of products expected to be stored.
+     */
+    public void ensureCapacity(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        if (capacity > slots.keys.length) {
+            rehash(capacity);
+        }
+    }
+
+    /**
+     * Removes the product with the given ID. Entries following the removed
+     * slot are shifted back so every remaining key stays reachable from its
+     * home slot.
+     *
+     * @param id The product ID.
+     * @return true if the product was removed, false if it was not stored.
+     */
+    public boolean remove(int id) {
+        int hole = indexOf(id);
+        if (hole < 0) {
+            return false;
+        }
+        Slots s = slots;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & s.mask;
+            if (!s.used[slot]) {
+                break;
+            }
+            int home = slotOf(s.keys[slot], s.mask);
+            // Move the entry back if its home is not in the (hole, slot] range
+            if (((slot - home) & s.mask) >= ((slot - hole) & s.mask)) {
+                s.keys[hole] = s.keys[slot];
+                s.nameCodes[hole] = s.nameCodes[slot];
+                s.prices[hole] = s.prices[slot];
+                s.barcodes[hole] = s.barcodes[slot];
+                hole = slot;
+            }
+        }
+        s.used[hole] = false;
+        size--;
+        return true;
+    }
+
+    /**
+     * Removes every product while keeping the current capacity.
+     */
+    public void clear() {
+        Slots s = slots;
+        Arrays.fill(s.used, false);
+        size = 0;
+    }
+
+    /**
+     * Retrieves the number of stored products.
+     *
+     * @return The product count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every stored product in slot order.
+     *
+     * @param visitor The visitor to call for each product.
+     */
+    public void forEach(ProductVisitor visitor) {
+        Slots s = slots;
+        for (int slot = 0; slot < s.keys.length; slot++) {
+            if (s.used[slot]) {
+                visitor.visit(s.keys[slot], s.nameCodes[slot], s.prices[slot]);
+            }
+        }
+    }
+
+    /**
+     * Visits every stored product that has a barcode, in slot order.
+     *
+     * @param visitor The visitor to call for each product.
+     */
+    public void forEach(BarcodeVisitor visitor) {
+        Slots s = slots;
+        for (int slot = 0; slot < s.keys.length; slot++) {
+            if (s.used[slot] && s.barcodes[slot] != NO_BARCODE) {
+                visitor.visit(s.keys[slot], s.barcodes[slot]);
+            }
+        }
+    }
+
+    /**
+     * Visits every stored product with its barcode in slot order.
+     *
+     * @param visitor The visitor to call for each product.
+     */
+    public void forEach(EntryVisitor visitor) {
+        Slots s = slots;
+        for (int slot = 0; slot < s.keys.length; slot++) {
+            if (s.used[slot]) {
+                visitor.visit(s.keys[slot], s.nameCodes[slot], s.prices[slot], s.barcodes[slot]);
+            }
+        }
+    }
+
+    /**
+     * Moves every entry into freshly allocated arrays of a new capacity.
+     *
+     * @param capacity The new capacity, a power of two.
+     */
+    private void rehash(int capacity) {
+        Slots old = slots;
+        Slots s = new Slots(capacity);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.used[i]) {
+                int slot = slotOf(old.keys[i], s.mask);
+                while (s.used[slot]) {
+                    slot = (slot + 1) & s.mask;
+                }
+                s.used[slot] = true;
+                s.keys[slot] = old.keys[i];
+                s.nameCodes[slot] = old.nameCodes[i];
+                s.prices[slot] = old.prices[i];
+                s.barcodes[slot] = old.barcodes[i];
+            }
+        }
+        slots = s;
+    }
+
+    /**
+     * Holds one generation of slot arrays so they can be swapped together.
+     */
+    private static final class Slots {
+
+        // Slot keys (product IDs)
+        final int[] keys;
+
+        // Slot prices, parallel to keys
+        final long[] prices;
+
+        // Slot name codes, parallel to keys
+        final int[] nameCodes;
+
+        // Slot barcodes, parallel to keys
+        final long[] barcodes;
+
+        // Marks which slots are occupied
+        final boolean[] used;
+
+        // Capacity - 1, used to wrap slot indexes
+        final int mask;
+
+        /**
+         * Allocates empty slot arrays of the given capacity.
+         *
+         * @param capacity The capacity, a power of two.
+         */
+        Slots(int capacity) {
+            keys = new int[capacity];
+            prices = new long[capacity];
+            nameCodes = new int[capacity];
+            barcodes = new long[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+    }
+
+    /**
+     * Callback used to walk the table without allocating entry objects.
+     */
+    interface ProductVisitor {
+
+        /**
+         * Called once for each stored product.
+         *
+         * @param id The product ID.
+         * @param nameCode The dictionary code of the product name.
+         * @param price The product price.
+         */
+        void visit(int id, int nameCode, long price);
+    }
+
+    /**
+     * Callback used to walk the barcodes of the table.
+     */
+    interface BarcodeVisitor {
+
+        /**
+         * Called once for each stored product that has a barcode.
+         *
+         * @param id The product ID.
+         * @param barcode The barcode.
+         */
+        void visit(int id, long barcode);
+    }
+
+    /**
+     * Callback used to walk every column of the table at once.
+     */
+    interface EntryVisitor {
+
+        /**
+         * Called once for each stored product.
+         *
+         * @param id The product ID.
+         * @param nameCode The dictionary code of the product name.
+         * @param price The product price.
+         * @param barcode The barcode, or NO_BARCODE if the product has none.
+         */
+        void visit(int id, int nameCode, long price, long barcode);
+    }
+}
@@ -0,0 +1,451 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of active promotions, compiled once into flat lookup tables
+ * so that a bill can re-evaluate just the promotions a scanned product takes
+ * part in. Every product named by some promotion gets a dense product
+ * number, and for each product number the table lists the promotions that
+ * touch it; each promotion in turn lists its member products. A product that
+ * takes part in no promotion is found missing with a single hash lookup.
+ *
+ * Three kinds of promotion are supported: a multi-buy sells a number of
+ * units of one product for a fixed price, a percentage takes a share off
+ * the price of each of its products, and a bundle sells one unit of each of
+ * its products together for a fixed price. Promotions stack: every
+ * promotion is applied to the bill independently of the others. The tables
+ * are only read after construction, so one Promotions object can be shared
+ * by every lane.
+ */
+class Promotions {
+
+    // Basis points in a whole, the scale of percentage promotions
+    static final int WHOLE = 10_000;
+
+    // Promotion set without any promotion
+    static final Promotions NONE = new Promotions(List.of());
+
+    // Dense product number of every promoted product ID
+    private final IntIntMap productNos = new IntIntMap();
+
+    // Start of the promotions of each product number in promotionsOf; the
+    // entry after the last product number ends the table
+    private final int[] promotionsStart;
+
+    // Promotion numbers, grouped by product number
+    private final int[] promotionsOf;
+
+    // Kind of each promotion
+    private final Kind[] kinds;
+
+    // Units of a multi-buy, or basis points of a percentage, by promotion
+    private final int[] counts;
+
+    // Price of a multi-buy or bundle, by promotion
+    private final long[] prices;
+
+    // Start of the members of each promotion in members; the entry after
+    // the last promotion ends the table
+    private final int[] membersStart;
+
+    // Member product numbers, grouped by promotion
+    private final int[] members;
+
+    /**
+     * Compiles a set of promotions.
+     *
+     * @param promotions The promotions to compile.
+     */
+    public Promotions(List<Promotion> promotions) {
+        int promotionCount = promotions.size();
+        kinds = new Kind[promotionCount];
+        counts = new int[promotionCount];
+        prices = new long[promotionCount];
+        membersStart = new int[promotionCount + 1];
+        int memberCount = 0;
+        for (Promotion promotion : promotions) {
+            memberCount += promotion.productIds.length;
+        }
+        members = new int[memberCount];
+
+        // Number the products and lay out the members of each promotion
+        int[] uses = new int[16];
+        int productCount = 0;
+        int member = 0;
+        for (int p = 0; p < promotionCount; p++) {
+            Promotion promotion = promotions.get(p);
+            kinds[p] = promotion.kind;
+            counts[p] = promotion.count;
+            prices[p] = promotion.price;
+            membersStart[p] = member;
+            for (int productId : promotion.productIds) {
+                int productNo = productNos.get(productId);
+                if (productNo == IntIntMap.MISSING) {
+                    productNo = productCount++;
+                    productNos.put(productId, productNo);
+                    if (productNo == uses.length) {
+                        uses = Arrays.copyOf(uses, productNo * 2);
+                    }
+                }
+                uses[productNo]++;
+                members[member++] = productNo;
+            }
+        }
+        membersStart[promotionCount] = member;
+
+        // Group the promotion numbers by product number
+        promotionsStart = new int[productCount + 1];
+        for (int productNo = 0; productNo < productCount; productNo++) {
+            promotionsStart[productNo + 1] = promotionsStart[productNo] + uses[productNo];
+        }
+        promotionsOf = new int[memberCount];
+        int[] filled = Arrays.copyOf(promotionsStart, productCount);
+        for (int p = 0; p < promotionCount; p++) {
+            for (int i = membersStart[p]; i < membersStart[p + 1]; i++) {
+                promotionsOf[filled[members[i]]++] = p;
+            }
+        }
+    }
+
+    /**
+     * Loads promotions from a text file with one promotion per line, its
+     * fields separated by commas:
+     * "multibuy,productId,units,price" sells the units for the price,
+     * "percent,percentage,productId[,productId...]" takes the percentage off
+     * the products, and "bundle,price,productId,productId[,productId...]"
+     * sells one of each product for the price. Empty lines and lines starting
+     * with # are skipped.
+     *
+     * @param file The file to read.
+     * @return The compiled promotions.
+     * @throws IOException If the file cannot be read or a line is malformed.
+     */
+    public static Promotions load(Path file) throws IOException {
+        List<Promotion> promotions = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                try {
+                    promotions.add(parse(line.split(",")));
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage());
+                }
+            }
+        }
+        return new Promotions(promotions);
+    }
+
+    /**
+     * Parses the fields of one line of a promotions file.
+     *
+     * @param fields The fields of the line.
+     * @return The promotion.
+     * @throws IllegalArgumentException If the line is malformed.
+     */
+    private static Promotion parse(String[] fields) {
+        String kind = fields[0].trim();
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("Too few fields for " + kind);
+        }
+        int[] productIds;
+        switch (kind) {
+            case "multibuy" -> {
+                if (fields.length != 4) {
+                    throw new IllegalArgumentException("Expected multibuy,productId,units,price");
+                }
+                return Promotion.multiBuy(Integer.parseInt(fields[1].trim()), Integer.parseInt(fields[2].trim()),
+                        Money.parse(fields[3]));
+            }
+            case "percent" -> {
+                productIds = new int[fields.length - 2];
+                for (int i = 0; i < productIds.length; i++) {
+                    productIds[i] = Integer.parseInt(fields[i + 2].trim());
+                }
+                // A percentage with two decimals is a whole number of basis points
+                long basisPoints = Money.parse(fields[1]);
+                if (basisPoints > WHOLE) {
+                    throw new IllegalArgumentException("Percentage over 100: " + fields[1].trim());
+                }
+                return Promotion.percentOff((int) basisPoints, productIds);
+            }
+            case "bundle" -> {
+                productIds = new int[fields.length - 2];
+                for (int i = 0; i < productIds.length; i++) {
+                    productIds[i] = Integer.parseInt(fields[i + 2].trim());
+                }
+                return Promotion.bundle(Money.parse(fields[1]), productIds);
+            }
+            default -> throw new IllegalArgumentException("Unknown promotion kind " + kind);
+        }
+    }
+
+    /**
+     * Finds the dense number of a product.
+     *
+     * @param productId The product ID.
+     * @return The product number, or IntIntMap.MISSING if no promotion
+     * touches the product.
+     */
+    public int productNo(int productId) {
+        return productNos.get(productId);
+    }
+
+    /**
+     * Retrieves the number of products touched by some promotion.
+     *
+     * @return The promoted product count.
+     */
+    public int getProductCount() {
+        return promotionsStart.length - 1;
+    }
+
+    /**
+     * Retrieves the number of promotions.
+     *
+     * @return The promotion count.
+     */
+    public int getPromotionCount() {
+        return kinds.length;
+    }
+
+    /**
+     * Retrieves the number of members over every promotion.
+     *
+     * @return The member count.
+     */
+    public int getMemberCount() {
+        return members.length;
+    }
+
+    /**
+     * Retrieves the start of the promotions of a product.
+     *
+     * @param productNo The product number.
+     * @return The index of its first promotion for promotionAt.
+     */
+    public int promotionsFrom(int productNo) {
+        return promotionsStart[productNo];
+    }
+
+    /**
+     * Retrieves the end of the promotions of a product.
+     *
+     * @param productNo The product number.
+     * @return The index after its last promotion for promotionAt.
+     */
+    public int promotionsTo(int productNo) {
+        return promotionsStart[productNo + 1];
+    }
+
+    /**
+     * Retrieves a promotion number from the grouped promotions of the
+     * products.
+     *
+     * @param index The index, between promotionsFrom and promotionsTo of a
+     * product.
+     * @return The promotion number.
+     */
+    public int promotionAt(int index) {
+        return promotionsOf[index];
+    }
+
+    /**
+     * Retrieves the kind of a promotion.
+     *
+     * @param promotion The promotion number.
+     * @return The kind.
+     */
+    public Kind kindOf(int promotion) {
+        return kinds[promotion];
+    }
+
+    /**
+     * Retrieves the units of a multi-buy or the basis points of a percentage.
+     *
+     * @param promotion The promotion number.
+     * @return The units or basis points.
+     */
+    public int countOf(int promotion) {
+        return counts[promotion];
+    }
+
+    /**
+     * Retrieves the price of a multi-buy or bundle.
+     *
+     * @param promotion The promotion number.
+     * @return The price, in minor currency units.
+     */
+    public long priceOf(int promotion) {
+        return prices[promotion];
+    }
+
+    /**
+     * Retrieves the start of the members of a promotion.
+     *
+     * @param promotion The promotion number.
+     * @return The index of its first member for memberAt.
+     */
+    public int membersFrom(int promotion) {
+        return membersStart[promotion];
+    }
+
+    /**
+     * Retrieves the end of the members of a promotion.
+     *
+     * @param promotion The promotion number.
+     * @return The index after its last member for memberAt.
+     */
+    public int membersTo(int promotion) {
+        return membersStart[promotion + 1];
+    }
+
+    /**
+     * Retrieves a member product number from the grouped members of the
+     * promotions.
+     *
+     * @param index The index, between membersFrom and membersTo of a
+     * promotion.
+     * @return The product number.
+     */
+    public int memberAt(int index) {
+        return members[index];
+    }
+
+    /**
+     * Kinds of promotion.
+     */
+    enum Kind {
+        // A number of units of one product for a fixed price
+        MULTI_BUY,
+        // A share off the price of each member product
+        PERCENT_OFF,
+        // One unit of each member product together for a fixed price
+        BUNDLE
+    }
+
+    /**
+     * Definition of one promotion, compiled into a Promotions set.
+     */
+    static final class Promotion {
+
+        // Kind of the promotion
+        final Kind kind;
+
+        // Units of a multi-buy, or basis points of a percentage
+        final int count;
+
+        // Price of a multi-buy or bundle, in minor currency units
+        final long price;
+
+        // IDs of the products the promotion applies to
+        final int[] productIds;
+
+        /**
+         * Constructs a Promotion.
+         *
+         * @param kind The kind of the promotion.
+         * @param count The units or basis points.
+         * @param price The price.
+         * @param productIds The product IDs.
+         */
+        private Promotion(Kind kind, int count, long price, int[] productIds) {
+            this.kind = kind;
+            this.count = count;
+            this.price = price;
+            this.productIds = productIds;
+        }
+
+        /**
+         * Defines a multi-buy, such as 3 for 5.00.
+         *
+         * @param productId The product ID.
+         * @param units The number of units sold together, at least 2.
+         * @param price The price of the units together.
+         * @return The promotion.
+         * @throws IllegalArgumentException If the units or price are invalid.
+         */
+        static Promotion multiBuy(int productId, int units, long price) {
+            if (units < 2) {
+                throw new IllegalArgumentException("A multi-buy needs at least 2 units");
+            }
+            if (price < 0) {
+                throw new IllegalArgumentException("Negative price");
+            }
+            return new Promotion(Kind.MULTI_BUY, units, price, new int[]{productId});
+        }
+
+        /**
+         * Defines a percentage off the price of some products.
+         *
+         * @param basisPoints The share taken off, in hundredths of a percent.
+         * @param productIds The product IDs.
+         * @return The promotion.
+         * @throws IllegalArgumentException If the share is not between 0 and
+         * 100 percent or a product is named twice.
+         */
+        static Promotion percentOff(int basisPoints, int... productIds) {
+            if (basisPoints <= 0 || basisPoints > WHOLE) {
+                throw new IllegalArgumentException("Percentage out of range");
+            }
+            return new Promotion(Kind.PERCENT_OFF, basisPoints, 0, distinct(productIds, 1));
+        }
+
+        /**
+         * Defines a bundle of one unit of each of some products for a fixed
+         * price.
+         *
+         * @param price The price of the bundle.
+         * @param productIds The product IDs, at least 2.
+         * @return The promotion.
+         * @throws IllegalArgumentException If the price is negative or the
+         * products are too few or named twice.
+         */
+        static Promotion bundle(long price, int... productIds) {
+            if (price < 0) {
+                throw new IllegalArgumentException("Negative price");
+            }
+            return new Promotion(Kind.BUNDLE, 0, price, distinct(productIds, 2));
+        }
+
+        /**
+         * Copies the products of a promotion, checking that none is named
+         * twice.
+         *
+         * @param productIds The product IDs.
+         * @param minimum The least number of products.
+         * @return The copy.
+         * @throws IllegalArgumentException If the products are too few or one
+         * is named twice.
+         */
+        private static int[] distinct(int[] productIds, int minimum) {
+            if (productIds.length < minimum) {
+                throw new IllegalArgumentException("Expected at least " + minimum + " products");
+            }
+            int[] sorted = productIds.clone();
+            Arrays.sort(sorted);
+            for (int i = 1; i < sorted.length; i++) {
+                if (sorted[i] == sorted[i - 1]) {
+                    throw new IllegalArgumentException("Product " + sorted[i] + " is named twice");
+                }
+            }
+            return productIds.clone();
+        }
+    }
+}
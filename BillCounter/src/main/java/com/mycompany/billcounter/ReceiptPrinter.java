@@ -0,0 +1,256 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prints receipts in the background so a lane can serve the next customer
+ * while the previous receipt is still being written. A bill handed to print
+ * is copied into an immutable Receipt and put in a bounded queue, which one
+ * worker thread drains by rendering and writing each receipt in turn. When
+ * the printer falls behind and the queue is full, print waits for room, so
+ * a slow printer slows the lanes down instead of piling up receipts in
+ * memory. Each receipt is written with a single write call, so on a
+ * destination that serializes its writes, such as the PrintStream of the
+ * console, a receipt never splits another line of output and the console
+ * need not wait for its receipts. A receipt that fails to render or write
+ * is reported and skipped, and the worker goes on with the next one.
+ */
+class ReceiptPrinter implements Closeable {
+
+    // Number of receipts that may wait for the printer
+    static final int DEFAULT_CAPACITY = 64;
+
+    // Receipt telling the worker to stop once everything before it is out
+    private static final Receipt END = new Receipt(new BillLines(0), null, 0, null, 0);
+
+    // Destination the receipts are written to
+    private final OutputStream out;
+
+    // Receipts waiting to be printed
+    private final ArrayBlockingQueue<Receipt> queue;
+
+    // Metrics to record print times in, or null
+    private final CheckoutMetrics metrics;
+
+    // Renderer reused for every receipt; only used by the worker
+    private final ReceiptRenderer renderer = new ReceiptRenderer();
+
+    // Thread printing the receipts
+    private final Thread worker;
+
+    // Held shared while a receipt is queued and exclusively by close, so no
+    // receipt is queued behind the end marker
+    private final ReentrantReadWriteLock closing = new ReentrantReadWriteLock();
+
+    // Whether close was called, after which no receipt is accepted; guarded
+    // by closing
+    private boolean closed;
+
+    // Number of receipts queued so far
+    private final AtomicLong queued = new AtomicLong();
+
+    // Number of receipts written so far, guarded by this printer
+    private long printed;
+
+    /**
+     * Constructs a ReceiptPrinter and starts its worker.
+     *
+     * @param out The destination to write receipts to.
+     * @param capacity The number of receipts that may wait before print
+     * blocks.
+     * @param metrics The metrics to record print times in, or null.
+     */
+    public ReceiptPrinter(OutputStream out, int capacity, CheckoutMetrics metrics) {
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.metrics = metrics;
+        this.worker = new Thread(this::printAll, "receipt-printer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues the receipt of a bill. The lines are copied first, so the bill
+     * may be changed or reused as soon as this returns. Waits for room while
+     * the queue is full.
+     *
+     * @param lines The lines of the bill.
+     * @param names The dictionary resolving the name codes of the lines.
+     * @param amount The total amount of the bill.
+     * @throws InterruptedIOException If the thread is interrupted while
+     * waiting for room; the receipt is then not printed.
+     * @throws IllegalStateException If the printer is closed.
+     */
+    public void print(BillLines lines, NameDictionary names, long amount) throws InterruptedIOException {
+        print(lines, names, 0, null, amount);
+    }
+
+    /**
+     * Queues the receipt of a bill with its promotion discount and the tax
+     * of every rate charged on it. The lines are copied first, so the bill
+     * may be changed or reused as soon as this returns. Waits for room while
+     * the queue is full.
+     *
+     * @param lines The lines of the bill.
+     * @param names The dictionary resolving the name codes of the lines.
+     * @param discount The promotion discount of the bill, or 0 to print no
+     * discount line.
+     * @param taxes The tax totals of the bill, or null to print no taxes.
+     * @param amount The total amount of the bill.
+     * @throws InterruptedIOException If the thread is interrupted while
+     * waiting for room; the receipt is then not printed.
+     * @throws IllegalStateException If the printer is closed.
+     */
+    public void print(BillLines lines, NameDictionary names, long discount, BillTaxes.Totals taxes, long amount)
+            throws InterruptedIOException {
+        Receipt receipt = new Receipt(lines.copy(), names, discount, taxes, amount);
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("The receipt printer is closed");
+            }
+            queue.put(receipt);
+            queued.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the receipt printer");
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until every receipt queued before this call has been written.
+     *
+     * @throws InterruptedIOException If the thread is interrupted while
+     * waiting.
+     */
+    public void awaitPrinted() throws InterruptedIOException {
+        long target = queued.get();
+        synchronized (this) {
+            while (printed < target) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the receipt printer");
+                }
+            }
+        }
+    }
+
+    /**
+     * Retrieves the number of receipts waiting to be printed.
+     *
+     * @return The queued receipt count.
+     */
+    public int getPending() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting receipts and waits until every queued receipt is
+     * printed.
+     *
+     * @throws InterruptedIOException If the thread is interrupted while
+     * waiting.
+     */
+    @Override
+    public void close() throws InterruptedIOException {
+        closing.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            queue.put(END);
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the receipt printer");
+        }
+    }
+
+    /**
+     * Prints queued receipts until the end marker is taken.
+     */
+    private void printAll() {
+        while (true) {
+            Receipt receipt;
+            try {
+                receipt = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (receipt == END) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                renderer.renderBill(receipt.lines, receipt.names, receipt.discount, receipt.taxes, receipt.amount).writeTo(out);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Failed to print a receipt: " + e);
+            } finally {
+                // Counted even when it failed, so awaitPrinted cannot hang
+                if (metrics != null) {
+                    metrics.record(CheckoutMetrics.Operation.PRINT_RECEIPT, start);
+                }
+                synchronized (this) {
+                    printed++;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable copy of a bill taken when it was handed to the printer.
+     */
+    private static final class Receipt {
+
+        // Lines of the bill, owned by this receipt
+        final BillLines lines;
+
+        // Dictionary resolving the name codes of the lines
+        final NameDictionary names;
+
+        // Promotion discount of the bill, in minor currency units
+        final long discount;
+
+        // Tax totals of the bill, or null
+        final BillTaxes.Totals taxes;
+
+        // Total amount of the bill, in minor currency units
+        final long amount;
+
+        /**
+         * Constructs a Receipt.
+         *
+         * @param lines The lines, which must not be changed afterwards.
+         * @param names The dictionary resolving the name codes of the lines.
+         * @param discount The promotion discount of the bill.
+         * @param taxes The tax totals of the bill, or null.
+         * @param amount The total amount of the bill.
+         */
+        Receipt(BillLines lines, NameDictionary names, long discount, BillTaxes.Totals taxes, long amount) {
+            this.lines = lines;
+            this.names = names;
+            this.discount = discount;
+            this.taxes = taxes;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Renders bills and product listings as UTF-8 text into one reusable buffer
+ * that is then written to its destination in a single call. Numbers are
+ * written digit by digit straight into the buffer, so rendering allocates
+ * nothing once the buffer has grown to the size of the largest receipt.
+ */
+class ReceiptRenderer {
+
+    // Header printed before the lines of a bill
+    private static final byte[] BILL_HEADER = "Generated Bill:\nitemId\titemName\tquantity\tprice\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    // Header printed before a product listing
+    private static final byte[] PRODUCTS_HEADER = "ID\tName\tPrice\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Label printed before the bill amount
+    private static final byte[] AMOUNT_LABEL = "Bill Amount: ".getBytes(StandardCharsets.US_ASCII);
+
+    // Label printed before the promotion discount
+    private static final byte[] DISCOUNT_LABEL = "Discount: -".getBytes(StandardCharsets.US_ASCII);
+
+    // Label printed before the tax of each rate
+    private static final byte[] TAX_LABEL = "Tax ".getBytes(StandardCharsets.US_ASCII);
+
+    // Marker printed after the percentage of an inclusive rate
+    private static final byte[] INCLUDED_MARK = " incl.".getBytes(StandardCharsets.US_ASCII);
+
+    // Reusable output buffer
+    private byte[] buffer = new byte[4096];
+
+    // Number of rendered bytes in the buffer
+    private int length;
+
+    /**
+     * Renders the columnar lines of a bill followed by the bill amount,
+     * replacing anything rendered before. The lines are read straight from
+     * their arrays, so no line object is built.
+     *
+     * @param bill The compacted lines of the bill.
+     * @param names The dictionary resolving the name codes of the lines.
+     * @param billAmount The total amount of the bill.
+     * @return This renderer, ready to be written.
+     */
+    public ReceiptRenderer renderBill(BillLines bill, NameDictionary names, long billAmount) {
+        return renderBill(bill, names, 0, null, billAmount);
+    }
+
+    /**
+     * Renders the columnar lines of a bill followed by its promotion
+     * discount, the tax of every rate charged on it and the bill amount,
+     * replacing anything rendered before. The lines keep their full prices,
+     * so the discount gets a line of its own.
+     *
+     * @param bill The compacted lines of the bill.
+     * @param names The dictionary resolving the name codes of the lines.
+     * @param discount The promotion discount of the bill, or 0 to render no
+     * discount line.
+     * @param taxes The tax totals of the bill, or null to render no taxes.
+     * @param billAmount The total amount of the bill.
+     * @return This renderer, ready to be written.
+     */
+    public ReceiptRenderer renderBill(BillLines bill, NameDictionary names, long discount, BillTaxes.Totals taxes,
+            long billAmount) {
+        length = 0;
+        append(BILL_HEADER);
+        for (int i = 0, n = bill.size(); i < n; i++) {
+            appendInt(bill.itemIdAt(i));
+            appendByte('\t');
+            appendText(names.decode(bill.nameCodeAt(i)));
+            appendByte('\t');
+            appendInt(bill.quantityAt(i));
+            appendByte('\t');
+            appendMoney(bill.priceAt(i));
+            appendByte('\n');
+        }
+        if (discount != 0) {
+            append(DISCOUNT_LABEL);
+            appendMoney(discount);
+            appendByte('\n');
+        }
+        if (taxes != null) {
+            for (int rate = 0, n = taxes.getRateCount(); rate < n; rate++) {
+                if (taxes.getTax(rate) == 0) {
+                    continue;
+                }
+                TaxTable.Rate details = taxes.getRate(rate);
+                append(TAX_LABEL);
+                appendText(details.name);
+                appendByte(' ');
+                appendPercent(details.basisPoints);
+                appendByte('%');
+                if (details.inclusive) {
+                    append(INCLUDED_MARK);
+                }
+                appendByte(':');
+                appendByte(' ');
+                appendMoney(taxes.getTax(rate));
+                appendByte('\n');
+            }
+        }
+        append(AMOUNT_LABEL);
+        appendMoney(billAmount);
+        appendByte('\n');
+        return this;
+    }
+
+    /**
+     * Renders one page of a catalog listing, one product per line, replacing
+     * anything rendered before.
+     *
+     * @param page The page to list.
+     * @param names The dictionary resolving the name codes of the page.
+     * @return This renderer, ready to be written.
+     */
+    public ReceiptRenderer renderProducts(CatalogListing.Page page, NameDictionary names) {
+        length = 0;
+        append(PRODUCTS_HEADER);
+        for (int i = 0, n = page.size(); i < n; i++) {
+            appendInt(page.getId(i));
+            appendByte('\t');
+            appendText(names.decode(page.getNameCode(i)));
+            appendByte('\t');
+            appendMoney(page.getPrice(i));
+            appendByte('\n');
+        }
+        return this;
+    }
+
+    /**
+     * Writes the rendered text to a stream and flushes it.
+     *
+     * @param out The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+        out.flush();
+    }
+
+    /**
+     * Writes the rendered text to a channel.
+     *
+     * @param channel The channel to write to.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * Retrieves the number of rendered bytes.
+     *
+     * @return The rendered length.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Makes sure the buffer can take the given number of extra bytes.
+     *
+     * @param extra The number of bytes about to be appended.
+     */
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+    /**
+     * Appends raw bytes.
+     *
+     * @param bytes The bytes to append.
+     */
+    private void append(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    /**
+     * Appends a single ASCII character.
+     *
+     * @param c The character to append.
+     */
+    private void appendByte(char c) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) c;
+    }
+
+    /**
+     * Appends the decimal digits of a number without building a String.
+     *
+     * @param value The number to append.
+     */
+    private void appendInt(long value) {
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+        } else {
+            value = -value;
+        }
+        // Work with the negative value so Long.MIN_VALUE needs no special case
+        int end = length;
+        do {
+            buffer[end++] = (byte) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+        // Digits were written least significant first
+        for (int i = length, j = end - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+        length = end;
+    }
+
+    /**
+     * Appends an amount with two decimal places without building a String.
+     *
+     * @param amount The amount in minor currency units.
+     */
+    private void appendMoney(long amount) {
+        long units = amount / Money.ONE;
+        int cents = (int) (amount % Money.ONE);
+        if (amount < 0) {
+            appendByte('-');
+            units = -units;
+            cents = -cents;
+        }
+        appendInt(units);
+        ensureCapacity(3);
+        buffer[length++] = '.';
+        buffer[length++] = (byte) ('0' + cents / 10);
+        buffer[length++] = (byte) ('0' + cents % 10);
+    }
+
+    /**
+     * Appends a rate as a percentage with two decimal places, such as 7.25
+     * for 725 basis points.
+     *
+     * @param basisPoints The rate in hundredths of a percent, not negative.
+     */
+    private void appendPercent(int basisPoints) {
+        appendInt(basisPoints / TaxTable.BASIS_POINTS_PER_PERCENT);
+        int hundredths = basisPoints % TaxTable.BASIS_POINTS_PER_PERCENT;
+        ensureCapacity(3);
+        buffer[length++] = '.';
+        buffer[length++] = (byte) ('0' + hundredths / 10);
+        buffer[length++] = (byte) ('0' + hundredths % 10);
+    }
+
+    /**
+     * Appends text as UTF-8, copying ASCII characters directly.
+     *
+     * @param text The text to append.
+     */
+    private void appendText(String text) {
+        int n = text.length();
+        ensureCapacity(n * 3);
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Fall back to the JDK encoder for the rest of the text
+                byte[] rest = text.substring(i).getBytes(StandardCharsets.UTF_8);
+                append(rest);
+                return;
+            } else {
+                buffer[length++] = (byte) (0xE0 | (c >> 12));
+                buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+}
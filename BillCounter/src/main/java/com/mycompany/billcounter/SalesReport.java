@@ -0,0 +1,252 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Sales figures aggregated over archived bills: revenue and units per
+ * product, revenue and bill counts per hour of the day, and the distribution
+ * of basket sizes. A report is filled by scanning archive ranges as a
+ * BillVisitor; partial reports built on different threads are combined with
+ * merge. Per-product figures are kept in primitive arrays behind an
+ * IntIntMap, so scanning a line allocates nothing.
+ *
+ * The figures come from two different amounts of the archive. The total and
+ * hourly revenue add up the bill totals, which is what the customers paid:
+ * after promotion discounts and with exclusive taxes. The revenue of a
+ * product adds up its line prices, before either. The two therefore only
+ * agree when no promotion or exclusive tax applied; otherwise they differ by
+ * the exclusive taxes less the discounts of the bills.
+ */
+class SalesReport implements BillArchive.BillVisitor {
+
+    // Largest basket size counted on its own; larger baskets share the last
+    // bucket
+    static final int MAX_BASKET_SIZE = 50;
+
+    // Milliseconds in an hour
+    private static final long HOUR_MILLIS = 3_600_000L;
+
+    // Offset of the local time zone, added to timestamps to find the hour
+    private final long zoneOffsetMillis;
+
+    // Slot of each product in the per-product arrays
+    private final IntIntMap slotOfItem = new IntIntMap();
+
+    // Per-product figures, indexed by slot
+    private int[] itemIds = new int[64];
+    private int[] nameCodes = new int[64];
+    private long[] revenue = new long[64];
+    private long[] units = new long[64];
+
+    // Number of products seen
+    private int items;
+
+    // Revenue and number of bills per hour of the day
+    private final long[] hourlyRevenue = new long[24];
+    private final long[] hourlyBills = new long[24];
+
+    // Number of bills by line count, capped at MAX_BASKET_SIZE
+    private final long[] basketSizes = new long[MAX_BASKET_SIZE + 1];
+
+    // Totals over every bill
+    private long billCount;
+    private long lineCount;
+    private long totalRevenue;
+
+    /**
+     * Constructs an empty SalesReport.
+     *
+     * @param zoneOffsetMillis The offset of the local time zone from UTC,
+     * used to place bills in hours of the day.
+     */
+    public SalesReport(long zoneOffsetMillis) {
+        this.zoneOffsetMillis = zoneOffsetMillis;
+    }
+
+    @Override
+    public void visitBill(long billId, long timestamp, int lane, int lines, long total) {
+        int hour = (int) Math.floorMod(Math.floorDiv(timestamp + zoneOffsetMillis, HOUR_MILLIS), 24L);
+        hourlyRevenue[hour] = Money.plus(hourlyRevenue[hour], total);
+        hourlyBills[hour]++;
+        basketSizes[Math.min(lines, MAX_BASKET_SIZE)]++;
+        billCount++;
+        totalRevenue = Money.plus(totalRevenue, total);
+    }
+
+    @Override
+    public void visitLine(int itemId, int quantity, long price, int nameCode) {
+        int slot = slotFor(itemId, nameCode);
+        revenue[slot] = Money.plus(revenue[slot], price);
+        units[slot] += quantity;
+        lineCount++;
+    }
+
+    /**
+     * Finds the slot of a product, adding it if it has not been seen yet.
+     *
+     * @param itemId The item ID.
+     * @param nameCode The archive code of the item name.
+     * @return The slot of the product.
+     */
+    private int slotFor(int itemId, int nameCode) {
+        int slot = slotOfItem.get(itemId);
+        if (slot == IntIntMap.MISSING) {
+            slot = items++;
+            if (slot == itemIds.length) {
+                int capacity = slot * 2;
+                itemIds = Arrays.copyOf(itemIds, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+                revenue = Arrays.copyOf(revenue, capacity);
+                units = Arrays.copyOf(units, capacity);
+            }
+            itemIds[slot] = itemId;
+            nameCodes[slot] = nameCode;
+            slotOfItem.put(itemId, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Adds the figures of another report to this one.
+     *
+     * @param other The report to add.
+     */
+    public void merge(SalesReport other) {
+        for (int i = 0; i < other.items; i++) {
+            int slot = slotFor(other.itemIds[i], other.nameCodes[i]);
+            revenue[slot] = Money.plus(revenue[slot], other.revenue[i]);
+            units[slot] += other.units[i];
+        }
+        for (int hour = 0; hour < 24; hour++) {
+            hourlyRevenue[hour] = Money.plus(hourlyRevenue[hour], other.hourlyRevenue[hour]);
+            hourlyBills[hour] += other.hourlyBills[hour];
+        }
+        for (int size = 0; size <= MAX_BASKET_SIZE; size++) {
+            basketSizes[size] += other.basketSizes[size];
+        }
+        billCount += other.billCount;
+        lineCount += other.lineCount;
+        totalRevenue = Money.plus(totalRevenue, other.totalRevenue);
+    }
+
+    /**
+     * Retrieves the revenue of a product, from its line prices.
+     *
+     * @param itemId The item ID.
+     * @return The revenue before discounts and taxes, in minor currency
+     * units, or 0 if it was not sold.
+     */
+    public long getRevenue(int itemId) {
+        int slot = slotOfItem.get(itemId);
+        return slot == IntIntMap.MISSING ? 0 : revenue[slot];
+    }
+
+    /**
+     * Retrieves the number of units sold of a product.
+     *
+     * @param itemId The item ID.
+     * @return The units sold, or 0 if it was not sold.
+     */
+    public long getUnits(int itemId) {
+        int slot = slotOfItem.get(itemId);
+        return slot == IntIntMap.MISSING ? 0 : units[slot];
+    }
+
+    /**
+     * Retrieves the archive name code last recorded for a product.
+     *
+     * @param itemId The item ID.
+     * @return The name code, or the code of the empty name if it was not sold.
+     */
+    public int getNameCode(int itemId) {
+        int slot = slotOfItem.get(itemId);
+        return slot == IntIntMap.MISSING ? NameDictionary.EMPTY : nameCodes[slot];
+    }
+
+    /**
+     * Retrieves the best-selling products by units sold, ties broken by
+     * revenue.
+     *
+     * @param n The number of products to return.
+     * @return The item IDs, best seller first.
+     */
+    public int[] getTopSellers(int n) {
+        return IntStream.range(0, items).boxed()
+                .sorted((a, b) -> units[a] != units[b]
+                        ? Long.compare(units[b], units[a]) : Long.compare(revenue[b], revenue[a]))
+                .limit(n)
+                .mapToInt(slot -> itemIds[slot])
+                .toArray();
+    }
+
+    /**
+     * Retrieves the revenue per hour of the day, from the bill totals.
+     *
+     * @return 24 amounts after discounts and with exclusive taxes, in minor
+     * currency units, starting at midnight.
+     */
+    public long[] getHourlyRevenue() {
+        return hourlyRevenue.clone();
+    }
+
+    /**
+     * Retrieves the number of bills per hour of the day.
+     *
+     * @return 24 bill counts, starting at midnight.
+     */
+    public long[] getHourlyBills() {
+        return hourlyBills.clone();
+    }
+
+    /**
+     * Retrieves the number of bills by number of lines. The last bucket
+     * counts every bill with MAX_BASKET_SIZE lines or more.
+     *
+     * @return The bill counts, indexed by line count.
+     */
+    public long[] getBasketSizes() {
+        return basketSizes.clone();
+    }
+
+    /**
+     * Retrieves the number of bills in the report.
+     *
+     * @return The bill count.
+     */
+    public long getBillCount() {
+        return billCount;
+    }
+
+    /**
+     * Retrieves the number of bill lines in the report.
+     *
+     * @return The line count.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Retrieves the revenue of every bill in the report, from the bill
+     * totals.
+     *
+     * @return The revenue after discounts and with exclusive taxes, in
+     * minor currency units.
+     */
+    public long getTotalRevenue() {
+        return totalRevenue;
+    }
+
+    /**
+     * Retrieves the number of distinct products sold.
+     *
+     * @return The product count.
+     */
+    public int getProductCount() {
+        return items;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+/**
+ * Represents the outcome of adding a batch of scanned items to a bill.
+ */
+class ScanBatchResult {
+
+    // Number of items added to the bill
+    private final int itemsAdded;
+
+    // Amount the batch added to the bill total
+    private final long batchAmount;
+
+    // Index of the first item not found in the catalog, or -1
+    private final int rejectedIndex;
+
+    // ID of the first item not found in the catalog
+    private final int rejectedId;
+
+    /**
+     * Constructs a ScanBatchResult with the specified details.
+     *
+     * @param itemsAdded The number of items added.
+     * @param batchAmount The amount added to the bill total.
+     * @param rejectedIndex The index of the rejected item, or -1.
+     * @param rejectedId The ID of the rejected item.
+     */
+    private ScanBatchResult(int itemsAdded, long batchAmount, int rejectedIndex, int rejectedId) {
+        this.itemsAdded = itemsAdded;
+        this.batchAmount = batchAmount;
+        this.rejectedIndex = rejectedIndex;
+        this.rejectedId = rejectedId;
+    }
+
+    /**
+     * Creates the result of a batch that was added completely.
+     *
+     * @param itemsAdded The number of items added.
+     * @param batchAmount The amount added to the bill total.
+     * @return The result.
+     */
+    static ScanBatchResult accepted(int itemsAdded, long batchAmount) {
+        return new ScanBatchResult(itemsAdded, batchAmount, -1, 0);
+    }
+
+    /**
+     * Creates the result of a batch that was rejected because an item was
+     * not found in the catalog.
+     *
+     * @param rejectedIndex The index of the item in the batch.
+     * @param rejectedId The ID of the item.
+     * @return The result.
+     */
+    static ScanBatchResult rejected(int rejectedIndex, int rejectedId) {
+        return new ScanBatchResult(0, 0, rejectedIndex, rejectedId);
+    }
+
+    /**
+     * Checks if the whole batch was added to the bill.
+     *
+     * @return true if the batch was added, false if it was rejected.
+     */
+    public boolean isAccepted() {
+        return rejectedIndex < 0;
+    }
+
+    /**
+     * Retrieves the number of items added to the bill.
+     *
+     * @return The item count.
+     */
+    public int getItemsAdded() {
+        return itemsAdded;
+    }
+
+    /**
+     * Retrieves the amount the batch added to the bill total.
+     *
+     * @return The batch amount, in minor currency units.
+     */
+    public long getBatchAmount() {
+        return batchAmount;
+    }
+
+    /**
+     * Retrieves the index in the batch of the item that was not found.
+     *
+     * @return The rejected index, or -1 if the batch was accepted.
+     */
+    public int getRejectedIndex() {
+        return rejectedIndex;
+    }
+
+    /**
+     * Retrieves the ID of the item that was not found.
+     *
+     * @return The rejected ID, only meaningful if the batch was rejected.
+     */
+    public int getRejectedId() {
+        return rejectedId;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+
+/**
+ * Replays a recorded command script against Admin and BillCounterGuy without
+ * rendering menus or prompts. Each line holds one command:
+ *
+ * <pre>
+ * add-product &lt;id&gt; &lt;price&gt; &lt;name&gt;
+ * remove-product &lt;id&gt;
+ * clear-products
+ * add &lt;id&gt; &lt;qty&gt;
+ * scan &lt;barcode&gt; &lt;qty&gt;
+ * modify &lt;id&gt; &lt;qty&gt;
+ * remove &lt;id&gt;
+ * amount
+ * bill
+ * complete
+ * </pre>
+ *
+ * Blank lines and lines starting with '#' are ignored. Commands that are
+ * malformed or refer to unknown items are counted as rejected.
+ */
+class ScriptReplay {
+
+    // Command keywords
+    private static final byte[] ADD_PRODUCT = ascii("add-product");
+    private static final byte[] REMOVE_PRODUCT = ascii("remove-product");
+    private static final byte[] CLEAR_PRODUCTS = ascii("clear-products");
+    private static final byte[] ADD = ascii("add");
+    private static final byte[] SCAN = ascii("scan");
+    private static final byte[] MODIFY = ascii("modify");
+    private static final byte[] REMOVE = ascii("remove");
+    private static final byte[] AMOUNT = ascii("amount");
+    private static final byte[] BILL = ascii("bill");
+    private static final byte[] COMPLETE = ascii("complete");
+
+    // Catalog the script runs against
+    private final Products products;
+
+    // Admin used for catalog commands
+    private final Admin admin;
+
+    // Bill session used for item commands
+    private final BillCounterGuy billCounterGuy;
+
+    // Number of commands executed
+    private long operations;
+
+    // Number of commands rejected
+    private long rejected;
+
+    // Bill amount last read by an amount, bill or complete command
+    private long lastBillAmount;
+
+    /**
+     * Constructs a ScriptReplay over the specified catalog.
+     *
+     * @param products The catalog the script runs against.
+     */
+    public ScriptReplay(Products products) {
+        this.products = products;
+        this.admin = new Admin(products);
+        this.billCounterGuy = new BillCounterGuy(products);
+        this.billCounterGuy.setQuiet(true);
+    }
+
+    /**
+     * Converts a keyword to its ASCII bytes.
+     *
+     * @param keyword The keyword.
+     * @return The keyword bytes.
+     */
+    private static byte[] ascii(String keyword) {
+        return keyword.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Executes every command read from the stream.
+     *
+     * @param in The stream to read commands from.
+     * @throws IOException If the stream cannot be read.
+     */
+    public void run(InputStream in) throws IOException {
+        CommandTokenizer tokens = new CommandTokenizer(in);
+        while (tokens.nextCommand()) {
+            operations++;
+            try {
+                if (!execute(tokens)) {
+                    rejected++;
+                }
+            } catch (InputMismatchException e) {
+                rejected++;
+                tokens.skipLine();
+            }
+        }
+    }
+
+    /**
+     * Executes the current command and consumes the rest of its line.
+     *
+     * @param tokens The tokenizer positioned after the command word.
+     * @return true if the command was applied, false if it was rejected.
+     * @throws IOException If the stream cannot be read.
+     */
+    private boolean execute(CommandTokenizer tokens) throws IOException {
+        boolean applied = true;
+        if (tokens.commandIs(ADD_PRODUCT)) {
+            int id = tokens.nextInt();
+            long price = tokens.nextMoney();
+            admin.addProductDetails(id, tokens.restOfLine(), price);
+            return true;
+        } else if (tokens.commandIs(REMOVE_PRODUCT)) {
+            applied = admin.deleteProductDetails(tokens.nextInt());
+        } else if (tokens.commandIs(CLEAR_PRODUCTS)) {
+            admin.clearAllProductDetails();
+        } else if (tokens.commandIs(ADD)) {
+            int id = tokens.nextInt();
+            int qty = tokens.nextInt();
+            applied = billCounterGuy.isTheIdListed(id) == 1;
+            if (applied) {
+                billCounterGuy.addItem(id, qty);
+            }
+        } else if (tokens.commandIs(SCAN)) {
+            int id = products.findByBarcode(tokens.nextBarcode());
+            int qty = tokens.nextInt();
+            applied = id >= 0 && billCounterGuy.isTheIdListed(id) == 1;
+            if (applied) {
+                billCounterGuy.addItem(id, qty);
+            }
+        } else if (tokens.commandIs(MODIFY)) {
+            int id = tokens.nextInt();
+            int qty = tokens.nextInt();
+            applied = billCounterGuy.isTheIdListed(id) == 1 && billCounterGuy.isTheIdAvailable(id) == 1;
+            if (applied) {
+                billCounterGuy.modifyItem(id, qty);
+            }
+        } else if (tokens.commandIs(REMOVE)) {
+            int id = tokens.nextInt();
+            applied = billCounterGuy.isTheIdAvailable(id) == 1;
+            if (applied) {
+                billCounterGuy.removeItem(id);
+            }
+        } else if (tokens.commandIs(AMOUNT)) {
+            lastBillAmount = billCounterGuy.getBillAmount();
+        } else if (tokens.commandIs(BILL)) {
+            billCounterGuy.generateBill();
+            lastBillAmount = billCounterGuy.getBillAmount();
+        } else if (tokens.commandIs(COMPLETE)) {
+            lastBillAmount = billCounterGuy.getBillAmount();
+            billCounterGuy.completeBill();
+        } else {
+            applied = false;
+        }
+        tokens.skipLine();
+        return applied;
+    }
+
+    /**
+     * Retrieves the number of commands executed.
+     *
+     * @return The operation count.
+     */
+    public long getOperations() {
+        return operations;
+    }
+
+    /**
+     * Retrieves the number of commands rejected.
+     *
+     * @return The rejected count.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Retrieves the bill amount last read by an amount, bill or complete
+     * command.
+     *
+     * @return The bill amount, in minor currency units.
+     */
+    public long getLastBillAmount() {
+        return lastBillAmount;
+    }
+
+    /**
+     * Replays a script from a file, or from standard input for "-", against
+     * a fresh catalog and prints the throughput.
+     *
+     * @param source The script file name, or "-" for standard input.
+     * @throws IOException If the script cannot be read.
+     */
+    static void replay(String source) throws IOException {
+        ScriptReplay script = new ScriptReplay(new Products());
+        long start = System.nanoTime();
+        if (source.equals("-")) {
+            script.run(System.in);
+        } else {
+            try (InputStream in = new FileInputStream(source)) {
+                script.run(in);
+            }
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+        System.out.println("Operations: " + script.getOperations() + " (" + script.getRejected() + " rejected)");
+        System.out.println("Elapsed: " + elapsed / 1_000_000 + " ms");
+        System.out.println("Operations per second: " + script.getOperations() * 1_000_000_000L / elapsed);
+        System.out.println("Bill Amount: " + Money.format(script.getLastBillAmount()));
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Immutable tax rates and tax classes, compiled once into flat tables so a
+ * bill can apply the rates of a product's class without resolving anything
+ * per scan. Every product has a tax class, and each class charges any number
+ * of rates; a class without rates is exempt. A rate is either exclusive,
+ * charged on top of the price, or inclusive, already contained in the
+ * price. The table also holds the class of every product assigned one, so
+ * the assignments do not depend on the catalog: a product may be assigned a
+ * class before it is listed, and keeps it when it is removed and listed
+ * again.
+ *
+ * For every class the table lists one entry per rate it charges, with the
+ * divisor that turns a taxable amount into the tax of that rate: the whole
+ * for an exclusive rate, and the whole plus every inclusive rate of the
+ * class for an inclusive one, so several inclusive rates split the price
+ * between them exactly. Taxes are rounded half up once per rate and class
+ * over the whole bill, not per line.
+ */
+class TaxTable {
+
+    // Basis points in a whole, the scale of tax rates
+    static final int WHOLE = 10_000;
+
+    // Basis points in one percent
+    static final int BASIS_POINTS_PER_PERCENT = 100;
+
+    // Tax class of products that were not assigned one
+    static final int DEFAULT_CLASS = 0;
+
+    // Number of tax classes, numbered from 0
+    static final int CLASSES = 256;
+
+    // Rates, by rate number
+    private final Rate[] rates;
+
+    // Start of the entries of each class; the entry after the last class
+    // ends the table
+    private final int[] classStart = new int[CLASSES + 1];
+
+    // Rate number of each entry
+    private final int[] entryRates;
+
+    // Divisor turning the taxable amount of each entry into its tax
+    private final long[] entryDivisors;
+
+    // Tax class of each product assigned one, by product ID; never changed
+    // after construction, so bills on any thread may read it
+    private final IntIntMap productClasses;
+
+    /**
+     * Compiles a tax table.
+     *
+     * @param rates The rates, numbered by their position.
+     * @param classRates The rate numbers charged by each tax class, indexed
+     * by class; a missing or null entry makes the class exempt.
+     * @param productClasses The tax class of each product assigned one, by
+     * product ID; owned by the table from now on.
+     */
+    public TaxTable(List<Rate> rates, int[][] classRates, IntIntMap productClasses) {
+        this.rates = rates.toArray(new Rate[0]);
+        this.productClasses = productClasses;
+        int entryCount = 0;
+        for (int c = 0; c < CLASSES; c++) {
+            classStart[c] = entryCount;
+            if (c < classRates.length && classRates[c] != null) {
+                entryCount += classRates[c].length;
+            }
+        }
+        classStart[CLASSES] = entryCount;
+        entryRates = new int[entryCount];
+        entryDivisors = new long[entryCount];
+        for (int c = 0; c < classRates.length && c < CLASSES; c++) {
+            if (classRates[c] == null) {
+                continue;
+            }
+            long inclusiveDivisor = WHOLE;
+            for (int rate : classRates[c]) {
+                if (this.rates[rate].inclusive) {
+                    inclusiveDivisor += this.rates[rate].basisPoints;
+                }
+            }
+            int entry = classStart[c];
+            for (int rate : classRates[c]) {
+                entryRates[entry] = rate;
+                entryDivisors[entry++] = this.rates[rate].inclusive ? inclusiveDivisor : WHOLE;
+            }
+        }
+    }
+
+    /**
+     * Loads a tax file. The file has one definition per line, its fields
+     * separated by commas: "rate,name,percentage,exclusive" or
+     * "rate,name,percentage,inclusive" defines a rate,
+     * "class,number[,rate name...]" lists the rates a class charges, and
+     * "product,productId,class" assigns a class to a product, whether or not
+     * it is in the catalog. Products not assigned a class are in class 0.
+     * Empty lines and lines starting with # are skipped.
+     *
+     * @param file The file to read.
+     * @return The compiled tax table.
+     * @throws IOException If the file cannot be read or a line is malformed.
+     */
+    public static TaxTable load(Path file) throws IOException {
+        List<Rate> rates = new ArrayList<>();
+        HashMap<String, Integer> rateNos = new HashMap<>();
+        int[][] classRates = new int[CLASSES][];
+        IntIntMap productClasses = new IntIntMap();
+        int[] ids = new int[64];
+        int assignments = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                for (int i = 0; i < fields.length; i++) {
+                    fields[i] = fields[i].trim();
+                }
+                try {
+                    switch (fields[0]) {
+                        case "rate" -> {
+                            Rate rate = parseRate(fields);
+                            if (rateNos.putIfAbsent(rate.name, rates.size()) != null) {
+                                throw new IllegalArgumentException("Rate " + rate.name + " is defined twice");
+                            }
+                            rates.add(rate);
+                        }
+                        case "class" -> {
+                            int taxClass = parseClass(fields, 2);
+                            if (classRates[taxClass] != null) {
+                                throw new IllegalArgumentException("Class " + taxClass + " is defined twice");
+                            }
+                            classRates[taxClass] = parseClassRates(fields, rateNos);
+                        }
+                        case "product" -> {
+                            if (fields.length != 3) {
+                                throw new IllegalArgumentException("Expected product,productId,class");
+                            }
+                            int id = Integer.parseInt(fields[1]);
+                            if (productClasses.get(id) != IntIntMap.MISSING) {
+                                throw new IllegalArgumentException("Product " + id + " is assigned twice");
+                            }
+                            productClasses.put(id, parseClass(fields, 3));
+                            if (assignments == ids.length) {
+                                ids = Arrays.copyOf(ids, assignments * 2);
+                            }
+                            ids[assignments++] = id;
+                        }
+                        default -> throw new IllegalArgumentException("Unknown definition " + fields[0]);
+                    }
+                } catch (IllegalArgumentException | ArithmeticException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage());
+                }
+            }
+        }
+        for (int i = 0; i < assignments; i++) {
+            int taxClass = productClasses.get(ids[i]);
+            if (taxClass != DEFAULT_CLASS && classRates[taxClass] == null) {
+                throw new IOException(file + ": Class " + taxClass + " of product " + ids[i] + " is not defined");
+            }
+        }
+        return new TaxTable(rates, classRates, productClasses);
+    }
+
+    /**
+     * Parses the fields of a rate definition.
+     *
+     * @param fields The fields of the line.
+     * @return The rate.
+     * @throws IllegalArgumentException If the definition is malformed.
+     */
+    private static Rate parseRate(String[] fields) {
+        if (fields.length != 4 || fields[1].isEmpty()) {
+            throw new IllegalArgumentException("Expected rate,name,percentage,exclusive|inclusive");
+        }
+        // A percentage with two decimals is a whole number of basis points
+        long basisPoints = Money.parse(fields[2]);
+        if (basisPoints < 0 || basisPoints > WHOLE) {
+            throw new IllegalArgumentException("Percentage out of range: " + fields[2]);
+        }
+        boolean inclusive = switch (fields[3]) {
+            case "inclusive" -> true;
+            case "exclusive" -> false;
+            default -> throw new IllegalArgumentException("Expected exclusive or inclusive, not " + fields[3]);
+        };
+        return new Rate(fields[1], (int) basisPoints, inclusive);
+    }
+
+    /**
+     * Parses the class number of a class definition or product assignment.
+     *
+     * @param fields The fields of the line.
+     * @param minimumFields The least number of fields of the line.
+     * @return The class number.
+     * @throws IllegalArgumentException If the class number is invalid.
+     */
+    private static int parseClass(String[] fields, int minimumFields) {
+        if (fields.length < minimumFields) {
+            throw new IllegalArgumentException("Too few fields for " + fields[0]);
+        }
+        int taxClass = Integer.parseInt(fields[minimumFields - 1]);
+        if (taxClass < 0 || taxClass >= CLASSES) {
+            throw new IllegalArgumentException("Class out of range: " + taxClass);
+        }
+        return taxClass;
+    }
+
+    /**
+     * Resolves the rate names of a class definition.
+     *
+     * @param fields The fields of the line.
+     * @param rateNos The numbers of the rates defined so far, by name.
+     * @return The rate numbers of the class.
+     * @throws IllegalArgumentException If a rate is unknown or named twice.
+     */
+    private static int[] parseClassRates(String[] fields, HashMap<String, Integer> rateNos) {
+        int[] classRates = new int[fields.length - 2];
+        for (int i = 0; i < classRates.length; i++) {
+            Integer rate = rateNos.get(fields[i + 2]);
+            if (rate == null) {
+                throw new IllegalArgumentException("Unknown rate " + fields[i + 2]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (classRates[j] == rate) {
+                    throw new IllegalArgumentException("Rate " + fields[i + 2] + " is named twice");
+                }
+            }
+            classRates[i] = rate;
+        }
+        return classRates;
+    }
+
+    /**
+     * Retrieves the tax class of a product.
+     *
+     * @param productId The product ID.
+     * @return The class assigned to the product, or DEFAULT_CLASS.
+     */
+    public int classOf(int productId) {
+        int taxClass = productClasses.get(productId);
+        return taxClass == IntIntMap.MISSING ? DEFAULT_CLASS : taxClass;
+    }
+
+    /**
+     * Retrieves the number of rates.
+     *
+     * @return The rate count.
+     */
+    public int getRateCount() {
+        return rates.length;
+    }
+
+    /**
+     * Retrieves a rate.
+     *
+     * @param rate The rate number.
+     * @return The rate.
+     */
+    public Rate getRate(int rate) {
+        return rates[rate];
+    }
+
+    /**
+     * Retrieves the number of entries over every class.
+     *
+     * @return The entry count.
+     */
+    public int getEntryCount() {
+        return entryRates.length;
+    }
+
+    /**
+     * Retrieves the start of the entries of a tax class.
+     *
+     * @param taxClass The tax class.
+     * @return The index of its first entry.
+     */
+    public int entriesFrom(int taxClass) {
+        return classStart[taxClass];
+    }
+
+    /**
+     * Retrieves the end of the entries of a tax class.
+     *
+     * @param taxClass The tax class.
+     * @return The index after its last entry.
+     */
+    public int entriesTo(int taxClass) {
+        return classStart[taxClass + 1];
+    }
+
+    /**
+     * Retrieves the rate number of an entry.
+     *
+     * @param entry The entry index.
+     * @return The rate number.
+     */
+    public int rateOf(int entry) {
+        return entryRates[entry];
+    }
+
+    /**
+     * Computes the tax an entry charges on a taxable amount, rounded half
+     * up. The whole multiples of the divisor are taxed apart from the
+     * remainder, so the tax of any amount a bill can hold is computed
+     * without overflowing.
+     *
+     * @param entry The entry index.
+     * @param amount The taxable amount, in minor currency units.
+     * @return The tax, in minor currency units.
+     */
+    public long taxOf(int entry, long amount) {
+        if (amount <= 0) {
+            return 0;
+        }
+        long divisor = entryDivisors[entry];
+        long basisPoints = rates[entryRates[entry]].basisPoints;
+        return amount / divisor * basisPoints + (amount % divisor * basisPoints + divisor / 2) / divisor;
+    }
+
+    /**
+     * A named tax rate.
+     */
+    static final class Rate {
+
+        // Name printed on receipts
+        final String name;
+
+        // Share of the taxable amount, in hundredths of a percent
+        final int basisPoints;
+
+        // Whether the tax is contained in the price rather than added to it
+        final boolean inclusive;
+
+        /**
+         * Constructs a Rate.
+         *
+         * @param name The name of the rate.
+         * @param basisPoints The rate in hundredths of a percent.
+         * @param inclusive true if the tax is contained in the price.
+         */
+        Rate(String name, int basisPoints, boolean inclusive) {
+            this.name = name;
+            this.basisPoints = basisPoints;
+            this.inclusive = inclusive;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts lane terminals over TCP and serves each of them as a lane of a
+ * CheckoutLanes. Every connection is handled by its own virtual thread that
+ * reads commands with plain blocking channel calls; a virtual thread waiting
+ * on its terminal releases its carrier thread, so thousands of idle lanes
+ * cost little more than their bill sessions. The protocol is described by
+ * TerminalSession.
+ *
+ * A terminal that sends nothing for longer than the idle timeout is
+ * disconnected and its lane closed, and TCP keepalive finds peers that
+ * vanished without closing, so a half-open connection never holds a lane or
+ * the catalog version its bill pinned. A failure to accept one terminal,
+ * such as running out of file descriptors, is logged and retried after a
+ * pause while the connected lanes keep being served.
+ */
+class TerminalServer implements Closeable {
+
+    // Number of pending connections the listening socket queues
+    private static final int BACKLOG = 1024;
+
+    // Idle time after which a terminal is disconnected when none is
+    // configured
+    static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
+    // Pause after a failed accept before the next attempt
+    private static final long ACCEPT_RETRY_MILLIS = 100;
+
+    // Lanes the terminals are served as
+    private final CheckoutLanes lanes;
+
+    // Listening socket
+    private final ServerSocketChannel server;
+
+    // Connected terminals, closed with the server
+    private final Set<SocketChannel> terminals = ConcurrentHashMap.newKeySet();
+
+    // Time a terminal may send nothing before it is disconnected
+    private final int idleTimeoutMillis;
+
+    /**
+     * Constructs a TerminalServer listening on the given address that
+     * disconnects terminals idle for DEFAULT_IDLE_TIMEOUT_MILLIS.
+     *
+     * @param lanes The lanes to serve the terminals as.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public TerminalServer(CheckoutLanes lanes, SocketAddress address) throws IOException {
+        this(lanes, address, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Constructs a TerminalServer listening on the given address.
+     *
+     * @param lanes The lanes to serve the terminals as.
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param idleTimeoutMillis The time a terminal may send nothing before
+     * it is disconnected and its lane closed.
+     * @throws IOException If the address cannot be bound.
+     */
+    public TerminalServer(CheckoutLanes lanes, SocketAddress address, int idleTimeoutMillis) throws IOException {
+        this.lanes = lanes;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.server = ServerSocketChannel.open();
+        server.bind(address, BACKLOG);
+    }
+
+    /**
+     * Retrieves the port the server listens on.
+     *
+     * @return The port.
+     * @throws IOException If the port cannot be read.
+     */
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Retrieves the number of terminals currently connected.
+     *
+     * @return The terminal count.
+     */
+    public int getTerminalCount() {
+        return terminals.size();
+    }
+
+    /**
+     * Starts accepting terminals on a virtual thread and returns at once.
+     *
+     * @return The accepting thread.
+     */
+    public Thread start() {
+        return Thread.ofVirtual().name("terminal-server").start(this::serve);
+    }
+
+    /**
+     * Accepts terminals until the server is closed or the thread is
+     * interrupted, starting a virtual thread for each of them. A terminal
+     * that cannot be accepted or set up is dropped and accepting goes on.
+     */
+    public void serve() {
+        while (true) {
+            SocketChannel terminal;
+            try {
+                terminal = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Failed to accept a terminal: " + e.getMessage());
+                // Give closing lanes time to free what ran out
+                try {
+                    Thread.sleep(ACCEPT_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                terminal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                terminal.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+                terminal.socket().setSoTimeout(idleTimeoutMillis);
+            } catch (IOException e) {
+                System.out.println("Failed to set up a terminal: " + e.getMessage());
+                try {
+                    terminal.close();
+                } catch (IOException closing) {
+                    // Already broken; nothing left to release
+                }
+                continue;
+            }
+            terminals.add(terminal);
+            int laneNo = lanes.nextLaneNo();
+            Thread.ofVirtual().name("lane-" + laneNo).start(() -> serveTerminal(terminal, laneNo));
+        }
+    }
+
+    /**
+     * Serves one terminal as a lane until it quits, disconnects or stays
+     * idle past the idle timeout, then closes the lane. Commands are read
+     * through the socket adaptor of the channel, which honours the read
+     * timeout.
+     *
+     * @param terminal The connection to the terminal.
+     * @param laneNo The lane number given to the terminal.
+     */
+    private void serveTerminal(SocketChannel terminal, int laneNo) {
+        BillCounterGuy lane = lanes.openLane(laneNo);
+        try (terminal) {
+            new TerminalSession(lanes.getProducts(), lane, terminal.socket().getInputStream(),
+                    Channels.newOutputStream(terminal)).run();
+        } catch (IOException e) {
+            // The terminal went away or fell idle; its open bill is discarded
+            // with the lane
+        } finally {
+            terminals.remove(terminal);
+            lanes.closeLane(laneNo);
+        }
+    }
+
+    /**
+     * Stops accepting terminals and disconnects the connected ones.
+     *
+     * @throws IOException If the listening socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (SocketChannel terminal : terminals) {
+            try {
+                terminal.close();
+            } catch (IOException e) {
+                // Already broken; nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+
+/**
+ * Serves one lane terminal: reads line commands from the terminal, applies
+ * them to the bill of its lane, and answers every command with exactly one
+ * reply line. The commands are the bill commands of ScriptReplay, plus
+ * quit; terminals are not authenticated, so the catalog commands are left
+ * to the console and the HTTP API:
+ *
+ * <pre>
+ * add &lt;id&gt; &lt;qty&gt;                     OK &lt;bill amount&gt;
+ * scan &lt;barcode&gt; &lt;qty&gt;                OK &lt;bill amount&gt;
+ * modify &lt;id&gt; &lt;qty&gt;                  OK &lt;bill amount&gt;
+ * remove &lt;id&gt;                         OK &lt;bill amount&gt;
+ * amount                              OK &lt;bill amount&gt;
+ * bill                                OK &lt;line count&gt; &lt;bill amount&gt;
+ * complete                            OK &lt;bill ID&gt; &lt;bill amount&gt;
+ * quit                                OK
+ * </pre>
+ *
+ * The reply to bill is followed by one line per bill line holding the item
+ * ID, quantity, price and name. A rejected command, such as one with a
+ * quantity below one or one that would overflow the bill amount, is
+ * answered with ERR and a reason and leaves the bill unchanged. Replies are
+ * flushed once no further command is waiting, so a terminal may send
+ * several commands before reading their replies.
+ */
+class TerminalSession {
+
+    // Command keywords
+    private static final byte[] ADD = ascii("add");
+    private static final byte[] SCAN = ascii("scan");
+    private static final byte[] MODIFY = ascii("modify");
+    private static final byte[] REMOVE = ascii("remove");
+    private static final byte[] AMOUNT = ascii("amount");
+    private static final byte[] BILL = ascii("bill");
+    private static final byte[] COMPLETE = ascii("complete");
+    private static final byte[] QUIT = ascii("quit");
+
+    // Size of the input buffer of a session, enough for a burst of commands
+    static final int INPUT_BUFFER_SIZE = 2048;
+
+    // Catalog the lane scans from
+    private final Products products;
+
+    // Bill session of the lane
+    private final BillCounterGuy billCounterGuy;
+
+    // Commands sent by the terminal
+    private final CommandTokenizer tokens;
+
+    // Replies to the terminal
+    private final ReplyWriter replies;
+
+    /**
+     * Constructs a TerminalSession for one connected terminal.
+     *
+     * @param products The catalog the lane scans from.
+     * @param billCounterGuy The bill session of the lane, used by this
+     * session only.
+     * @param in The stream of commands from the terminal.
+     * @param out The stream replies are written to.
+     */
+    public TerminalSession(Products products, BillCounterGuy billCounterGuy, InputStream in, OutputStream out) {
+        this.products = products;
+        this.billCounterGuy = billCounterGuy;
+        this.tokens = new CommandTokenizer(in, INPUT_BUFFER_SIZE);
+        this.replies = new ReplyWriter(out);
+        billCounterGuy.setQuiet(true);
+    }
+
+    /**
+     * Converts a keyword to its ASCII bytes.
+     *
+     * @param keyword The keyword.
+     * @return The keyword bytes.
+     */
+    private static byte[] ascii(String keyword) {
+        return keyword.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Serves commands until the terminal sends quit or disconnects.
+     *
+     * @throws IOException If the connection fails.
+     */
+    public void run() throws IOException {
+        while (tokens.nextCommand()) {
+            boolean more;
+            try {
+                more = execute();
+            } catch (InputMismatchException e) {
+                tokens.skipLine();
+                replies.error(e.getMessage());
+                more = true;
+            } catch (ArithmeticException e) {
+                // Thrown before the bill is changed, since a bill rejects a
+                // change past its gross ceiling; the line is consumed
+                replies.error("Amount out of range");
+                more = true;
+            }
+            if (!more) {
+                replies.flush();
+                return;
+            }
+            if (!tokens.hasBuffered()) {
+                replies.flush();
+            }
+        }
+        replies.flush();
+    }
+
+    /**
+     * Executes the current command, consumes the rest of its line and
+     * writes the reply.
+     *
+     * @return false if the terminal asked to end the session.
+     * @throws IOException If the connection fails.
+     */
+    private boolean execute() throws IOException {
+        if (tokens.commandIs(ADD)) {
+            int id = tokens.nextInt();
+            int qty = tokens.nextInt();
+            tokens.skipLine();
+            addItem(id, qty);
+        } else if (tokens.commandIs(SCAN)) {
+            long barcode = tokens.nextBarcode();
+            int qty = tokens.nextInt();
+            tokens.skipLine();
+            int id = products.findByBarcode(barcode);
+            if (id < 0) {
+                replies.error("Unknown barcode " + barcode);
+            } else {
+                addItem(id, qty);
+            }
+        } else if (tokens.commandIs(MODIFY)) {
+            int id = tokens.nextInt();
+            int qty = tokens.nextInt();
+            tokens.skipLine();
+            if (billCounterGuy.isTheIdAvailable(id) == 0) {
+                replies.error("Item " + id + " is not on the bill");
+            } else if (qty <= 0) {
+                replies.error("A quantity above zero is needed");
+            } else {
+                billCounterGuy.modifyItem(id, qty);
+                replies.ok(billCounterGuy.getBillAmount());
+            }
+        } else if (tokens.commandIs(REMOVE)) {
+            int id = tokens.nextInt();
+            tokens.skipLine();
+            if (billCounterGuy.isTheIdAvailable(id) == 0) {
+                replies.error("Item " + id + " is not on the bill");
+            } else {
+                billCounterGuy.removeItem(id);
+                replies.ok(billCounterGuy.getBillAmount());
+            }
+        } else if (tokens.commandIs(AMOUNT)) {
+            tokens.skipLine();
+            replies.ok(billCounterGuy.getBillAmount());
+        } else if (tokens.commandIs(BILL)) {
+            tokens.skipLine();
+            writeBill();
+        } else if (tokens.commandIs(COMPLETE)) {
+            tokens.skipLine();
+            long amount = billCounterGuy.getBillAmount();
+            try {
+                long billId = billCounterGuy.completeBill();
+                replies.ok(billId, amount);
+            } catch (IOException e) {
+                replies.error("Failed to archive the bill: " + e.getMessage());
+            }
+        } else if (tokens.commandIs(QUIT)) {
+            tokens.skipLine();
+            replies.ok();
+            return false;
+        } else {
+            String command = tokens.command();
+            tokens.skipLine();
+            replies.error("Unknown command " + command);
+        }
+        return true;
+    }
+
+    /**
+     * Adds an item listed in the catalog version of the bill and replies
+     * with the new bill amount.
+     *
+     * @param id The product ID.
+     * @param qty The quantity.
+     * @throws IOException If the connection fails.
+     */
+    private void addItem(int id, int qty) throws IOException {
+        if (qty <= 0) {
+            replies.error("A quantity above zero is needed");
+            return;
+        }
+        if (billCounterGuy.isTheIdListed(id) == 0) {
+            replies.error("Unknown product " + id);
+            return;
+        }
+        billCounterGuy.addItem(id, qty);
+        replies.ok(billCounterGuy.getBillAmount());
+    }
+
+    /**
+     * Replies with the lines of the bill.
+     *
+     * @throws IOException If the connection fails.
+     */
+    private void writeBill() throws IOException {
+        long amount = billCounterGuy.getBillAmount();
+        BillLines lines = billCounterGuy.generateLines();
+        NameDictionary names = billCounterGuy.getNames();
+        replies.ok(lines.size(), amount);
+        for (int position = 0; position < lines.size(); position++) {
+            replies.line(lines.itemIdAt(position), lines.quantityAt(position), lines.priceAt(position),
+                    names.decode(lines.nameCodeAt(position)));
+        }
+    }
+
+    /**
+     * Buffers the reply lines of a session and writes them to the terminal
+     * in as few writes as possible.
+     */
+    private static final class ReplyWriter {
+
+        // Stream the replies are written to
+        private final OutputStream out;
+
+        // Reply bytes not yet written
+        private final StringBuilder pending = new StringBuilder(256);
+
+        /**
+         * Constructs a ReplyWriter over the specified stream.
+         *
+         * @param out The stream replies are written to.
+         */
+        ReplyWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Adds a reply without values.
+         */
+        void ok() {
+            pending.append("OK\n");
+        }
+
+        /**
+         * Adds a reply carrying an amount.
+         *
+         * @param amount The amount, in minor currency units.
+         */
+        void ok(long amount) {
+            pending.append("OK ").append(Money.format(amount)).append('\n');
+        }
+
+        /**
+         * Adds a reply carrying a count or ID and an amount.
+         *
+         * @param number The count or ID.
+         * @param amount The amount, in minor currency units.
+         */
+        void ok(long number, long amount) {
+            pending.append("OK ").append(number).append(' ').append(Money.format(amount)).append('\n');
+        }
+
+        /**
+         * Adds a bill line following the reply to bill.
+         *
+         * @param id The item ID.
+         * @param qty The quantity.
+         * @param price The price of the line, in minor currency units.
+         * @param name The item name.
+         */
+        void line(int id, int qty, long price, String name) {
+            pending.append(id).append(' ').append(qty).append(' ').append(Money.format(price))
+                    .append(' ').append(name).append('\n');
+        }
+
+        /**
+         * Adds a rejection.
+         *
+         * @param reason The reason the command was rejected.
+         */
+        void error(String reason) {
+            pending.append("ERR ").append(reason).append('\n');
+        }
+
+        /**
+         * Writes the pending replies to the terminal.
+         *
+         * @throws IOException If the connection fails.
+         */
+        void flush() throws IOException {
+            if (pending.length() > 0) {
+                out.write(pending.toString().getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                pending.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures barcode scans resolved through the compiled barcode table against
+ * a boxed HashMap from barcode to product ID.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarcodeBenchmark {
+
+    // Number of products in the catalog
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    // Catalog under test, with compiled barcodes
+    Products products;
+
+    // The same barcodes in a HashMap, for comparison
+    HashMap<Long, Integer> barcodeMap;
+
+    // Barcodes scanned in turn, a power of two long
+    long[] scans;
+
+    // Position of the next scan
+    int next;
+
+    /**
+     * Fills the catalog and prepares the scan sequence.
+     */
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.barcodedCatalog(catalogSize);
+        barcodeMap = new HashMap<>();
+        for (int id = 0; id < catalogSize; id++) {
+            barcodeMap.put(BenchmarkData.barcodeOf(id), id);
+        }
+        int[] ids = BenchmarkData.lookups(new Random(42), catalogSize, 1.0, 1 << 16);
+        scans = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            scans[i] = BenchmarkData.barcodeOf(ids[i]);
+        }
+    }
+
+    /**
+     * Resolves a scan through the compiled barcode table.
+     *
+     * @return The product ID, consumed by JMH.
+     */
+    @Benchmark
+    public int findByBarcode() {
+        return products.findByBarcode(scans[next++ & (scans.length - 1)]);
+    }
+
+    /**
+     * Resolves a scan through the HashMap.
+     *
+     * @return The product ID, consumed by JMH.
+     */
+    @Benchmark
+    public Integer hashMapLookup() {
+        return barcodeMap.get(scans[next++ & (scans.length - 1)]);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Random;
+
+/**
+ * Builds the catalogs and ID sequences shared by the benchmarks. Listed
+ * products use the IDs 0 to size - 1, so any larger ID is a miss.
+ */
+final class BenchmarkData {
+
+    /**
+     * Utility class; not meant to be instantiated.
+     */
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds a catalog of the given size.
+     *
+     * @param size The number of products.
+     * @return The filled catalog.
+     */
+    static Products catalog(int size) {
+        Products products = new Products();
+        for (int id = 0; id < size; id++) {
+            products.setDetails(id, "Product " + id, 1 + id % 997);
+        }
+        return products;
+    }
+
+    /**
+     * Computes the barcode given to a product of a barcoded catalog: a
+     * thirteen-digit code spread over the EAN-13 range.
+     *
+     * @param id The product ID.
+     * @return The barcode.
+     */
+    static long barcodeOf(int id) {
+        return 4_000_000_000_000L + id * 7_919L;
+    }
+
+    /**
+     * Builds a catalog of the given size whose products carry the barcodes
+     * of barcodeOf, compiled for scanning.
+     *
+     * @param size The number of products.
+     * @return The filled catalog.
+     */
+    static Products barcodedCatalog(int size) {
+        Products products = new Products();
+        for (int id = 0; id < size; id++) {
+            products.setDetails(id, "Product " + id, 1 + id % 997, barcodeOf(id));
+        }
+        products.compileBarcodes();
+        return products;
+    }
+
+    /**
+     * Builds a random sequence of IDs with the given share of listed IDs.
+     *
+     * @param random The random source.
+     * @param size The number of listed products.
+     * @param hitRatio The share of IDs that are listed.
+     * @param length The length of the sequence.
+     * @return The ID sequence.
+     */
+    static int[] lookups(Random random, int size, double hitRatio, int length) {
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) {
+            ids[i] = random.nextDouble() < hitRatio ? random.nextInt(size) : size + random.nextInt(size);
+        }
+        return ids;
+    }
+
+    /**
+     * Builds a quiet bill with one line for each of the IDs 0 to lines - 1.
+     *
+     * @param products The catalog holding at least that many products.
+     * @param lines The number of lines.
+     * @return The filled bill.
+     */
+    static BillCounterGuy bill(Products products, int lines) {
+        BillCounterGuy bill = new BillCounterGuy(products);
+        bill.setQuiet(true);
+        for (int id = 0; id < lines; id++) {
+            bill.addItem(id, 1 + id % 5);
+        }
+        return bill;
+    }
+}
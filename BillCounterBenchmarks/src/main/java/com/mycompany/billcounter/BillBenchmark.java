@@ -0,0 +1,119 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures bill mutations through BillCounterGuy across bill sizes and the
+ * share of operations that target an item already on the bill.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BillBenchmark {
+
+    // Size of the catalog behind the bill
+    @Param({"100000"})
+    int catalogSize;
+
+    // Number of lines on the bill
+    @Param({"10", "1000", "10000"})
+    int billSize;
+
+    // Share of targeted IDs that are on the bill
+    @Param({"1.0", "0.5"})
+    double hitRatio;
+
+    // Catalog behind the bill
+    Products products;
+
+    // Bill under test, kept at billSize lines
+    BillCounterGuy bill;
+
+    // Bill that addItem grows and discards once it reaches billSize lines
+    BillCounterGuy growingBill;
+
+    // IDs targeted in turn, a power of two long
+    int[] targets;
+
+    // Position of the next target
+    int next;
+
+    /**
+     * Fills the catalog and the bill and prepares the target sequence.
+     */
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.catalog(catalogSize);
+        bill = BenchmarkData.bill(products, billSize);
+        growingBill = BenchmarkData.bill(products, 0);
+        targets = BenchmarkData.lookups(new Random(42), billSize, hitRatio, 1 << 16);
+    }
+
+    /**
+     * Retrieves the next ID of the target sequence.
+     *
+     * @return The ID to target.
+     */
+    private int nextId() {
+        return targets[next++ & (targets.length - 1)];
+    }
+
+    /**
+     * Adds an item, discarding the bill whenever billSize lines are reached
+     * so its pinned catalog version is released.
+     *
+     * @return The bill amount, consumed by JMH.
+     */
+    @Benchmark
+    public long addItem() {
+        if (growingBill.generateLines().size() == billSize) {
+            growingBill.discardBill();
+        }
+        growingBill.addItem(next++ % billSize, 2);
+        return growingBill.getBillAmount();
+    }
+
+    /**
+     * Changes the quantity of an item.
+     *
+     * @return The bill amount, consumed by JMH.
+     */
+    @Benchmark
+    public long modifyItem() {
+        bill.modifyItem(nextId(), 1 + (next & 3));
+        return bill.getBillAmount();
+    }
+
+    /**
+     * Removes an item and scans it again so the bill keeps its size.
+     *
+     * @return The bill amount, consumed by JMH.
+     */
+    @Benchmark
+    public long removeItem() {
+        int id = nextId();
+        if (bill.isTheIdAvailable(id) == 1) {
+            bill.removeItem(id);
+            bill.addItem(id, 1);
+        }
+        return bill.getBillAmount();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures catalog lookups through Products across catalog sizes and the
+ * share of lookups that hit a listed product.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogBenchmark {
+
+    // Number of products in the catalog
+    @Param({"1000", "100000", "1000000"})
+    int catalogSize;
+
+    // Share of looked up IDs that are in the catalog
+    @Param({"1.0", "0.5"})
+    double hitRatio;
+
+    // Catalog under test
+    Products products;
+
+    // IDs looked up in turn, a power of two long
+    int[] lookups;
+
+    // Position of the next lookup
+    int next;
+
+    /**
+     * Fills the catalog and prepares the lookup sequence.
+     */
+    @Setup
+    public void setUp() {
+        products = BenchmarkData.catalog(catalogSize);
+        lookups = BenchmarkData.lookups(new Random(42), catalogSize, hitRatio, 1 << 16);
+    }
+
+    /**
+     * Retrieves the next ID of the lookup sequence.
+     *
+     * @return The ID to look up.
+     */
+    private int nextId() {
+        return lookups[next++ & (lookups.length - 1)];
+    }
+
+    /**
+     * Looks up the name and price of a product.
+     *
+     * @return The details, consumed by JMH.
+     */
+    @Benchmark
+    public StringLongPair getDetails() {
+        return products.getDetails(nextId());
+    }
+
+    /**
+     * Checks if a product is listed.
+     *
+     * @return The availability flag, consumed by JMH.
+     */
+    @Benchmark
+    public int isTheIdAvailable() {
+        return products.isTheIdAvailable(nextId());
+    }
+}
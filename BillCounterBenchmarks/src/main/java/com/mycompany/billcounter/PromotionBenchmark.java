@@ -0,0 +1,84 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a scan and its removal on a bill under a set of promotions across
+ * bill sizes and promotion counts; with incremental re-evaluation the time
+ * should not grow with either.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionBenchmark {
+
+    // Size of the catalog behind the bill
+    static final int CATALOG_SIZE = 100_000;
+
+    // Number of lines on the bill
+    @Param({"100", "5000"})
+    int billSize;
+
+    // Number of active promotions
+    @Param({"0", "100", "1000"})
+    int promotionCount;
+
+    // Bill under test, kept at billSize lines
+    BillCounterGuy bill;
+
+    // Number of scans made so far
+    int next;
+
+    /**
+     * Fills the catalog and the bill and applies promotions of every kind
+     * over the products on the bill.
+     */
+    @Setup
+    public void setUp() {
+        Products products = BenchmarkData.catalog(CATALOG_SIZE);
+        bill = BenchmarkData.bill(products, billSize);
+        List<Promotions.Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < promotionCount; i++) {
+            int id = i % billSize;
+            promotions.add(switch (i % 3) {
+                case 0 -> Promotions.Promotion.multiBuy(id, 3, Money.ONE);
+                case 1 -> Promotions.Promotion.percentOff(1000, id, CATALOG_SIZE - 1 - i);
+                default -> Promotions.Promotion.bundle(Money.ONE, id, (id + 1) % billSize);
+            });
+        }
+        bill.setPromotions(new Promotions(promotions));
+    }
+
+    /**
+     * Scans an item on the bill again and removes its first line, so the
+     * bill keeps its size.
+     *
+     * @return The bill amount, consumed by JMH.
+     */
+    @Benchmark
+    public long scanAndRemove() {
+        int id = next++ % billSize;
+        bill.addItem(id, 1);
+        bill.removeItem(id);
+        return bill.getBillAmount();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures bill generation and receipt rendering across bill sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptBenchmark {
+
+    // Number of lines on the bill
+    @Param({"10", "1000", "10000"})
+    int billSize;
+
+    // Bill to render
+    BillCounterGuy bill;
+
+    // Reused renderer
+    ReceiptRenderer renderer;
+
+    /**
+     * Fills the bill.
+     */
+    @Setup
+    public void setUp() {
+        bill = BenchmarkData.bill(BenchmarkData.catalog(billSize), billSize);
+        renderer = new ReceiptRenderer();
+    }
+
+    /**
+     * Generates the bill view.
+     *
+     * @return The bill lines, consumed by JMH.
+     */
+    @Benchmark
+    public List<BillFormat> generateBill() {
+        return bill.generateBill();
+    }
+
+    /**
+     * Generates the bill and renders it to a stream that discards the text.
+     *
+     * @return The rendered length, consumed by JMH.
+     * @throws IOException Never, the stream discards everything.
+     */
+    @Benchmark
+    public int renderBill() throws IOException {
+        renderer.renderBill(bill.generateLines(), bill.getNames(), bill.getBillAmount())
+                .writeTo(OutputStream.nullOutputStream());
+        return renderer.length();
+    }
+}
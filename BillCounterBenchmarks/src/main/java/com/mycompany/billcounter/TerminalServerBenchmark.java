@@ -0,0 +1,112 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ */
+package com.mycompany.billcounter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a scan round trip from a lane terminal to the terminal server over
+ * loopback while many other terminals stay connected, each served by its own
+ * virtual thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerminalServerBenchmark {
+
+    // Number of products in the catalog
+    static final int CATALOG_SIZE = 100_000;
+
+    // Number of terminals connected to the server
+    @Param({"100", "1000", "4000"})
+    int terminals;
+
+    // Server under test
+    TerminalServer server;
+
+    // Connections of the terminals
+    Socket[] sockets;
+
+    // Command streams of the terminals, parallel to sockets
+    OutputStream[] commands;
+
+    // Reply streams of the terminals, parallel to sockets
+    BufferedReader[] replies;
+
+    // Number of round trips made so far
+    int next;
+
+    /**
+     * Starts the server over a filled catalog and connects the terminals.
+     *
+     * @throws IOException If the server or a terminal cannot connect.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        CheckoutLanes lanes = new CheckoutLanes(BenchmarkData.catalog(CATALOG_SIZE), false);
+        server = new TerminalServer(lanes, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        sockets = new Socket[terminals];
+        commands = new OutputStream[terminals];
+        replies = new BufferedReader[terminals];
+        for (int i = 0; i < terminals; i++) {
+            sockets[i] = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            sockets[i].setTcpNoDelay(true);
+            commands[i] = sockets[i].getOutputStream();
+            replies[i] = new BufferedReader(new InputStreamReader(sockets[i].getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Disconnects the terminals and stops the server.
+     *
+     * @throws IOException If a connection cannot be closed.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        server.close();
+    }
+
+    /**
+     * Adds an item on the next terminal in turn and removes it again, so the
+     * bills stay small, sending both commands before reading the replies.
+     *
+     * @return The last reply, consumed by JMH.
+     * @throws IOException If a terminal loses its connection.
+     */
+    @Benchmark
+    public String scanRoundTrip() throws IOException {
+        int terminal = next++ % terminals;
+        int id = next % CATALOG_SIZE;
+        commands[terminal].write(("add " + id + " 1\nremove " + id + "\n").getBytes(StandardCharsets.US_ASCII));
+        replies[terminal].readLine();
+        return replies[terminal].readLine();
+    }
+}